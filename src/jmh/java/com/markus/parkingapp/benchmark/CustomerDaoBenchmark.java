@@ -0,0 +1,52 @@
+package com.markus.parkingapp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.markus.parkingapp.dao.impl.CustomerDaoImpl;
+import com.markus.parkingapp.model.Customer;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CustomerDaoImpl#findById(int)}. The DAO is a singleton, so each fork
+ * runs one customer count; the counts are separate forks of their own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerDaoBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int customers;
+
+    private int[] customerIds;
+
+    @Setup
+    public void registerCustomers() {
+        customerIds = LotFixtures.registerCustomers(CustomerDaoImpl.getInstance(), customers);
+    }
+
+    @Benchmark
+    public Optional<Customer> findById() {
+        return CustomerDaoImpl.getInstance().findById(customerIds[ThreadLocalRandom.current().nextInt(customerIds.length)]);
+    }
+
+    @Benchmark
+    public Optional<Customer> findByIdMissing() {
+        return CustomerDaoImpl.getInstance().findById(-1 - ThreadLocalRandom.current().nextInt(customers));
+    }
+}
@@ -0,0 +1,52 @@
+package com.markus.parkingapp.benchmark;
+
+import com.markus.parkingapp.dao.CustomerDao;
+import com.markus.parkingapp.dao.impl.ParkingSpotDaoImpl;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Vehicle;
+
+/**
+ * Builds the lots and customers the benchmarks run against.
+ */
+final class LotFixtures {
+
+    static final int FIRST_SPOT_NUMBER = 1;
+    static final int SPOTS_PER_AREA = 1000;
+
+    private LotFixtures() {
+    }
+
+    /**
+     * Creates a lot of numbered spots, split into areas of {@value #SPOTS_PER_AREA} spots.
+     *
+     * @param size           The number of spots.
+     * @param occupiedEveryN Every n-th spot is created occupied, or none if 0.
+     */
+    static ParkingSpotDaoImpl createLot(int size, int occupiedEveryN) {
+        ParkingSpotDaoImpl parkingSpotDao = new ParkingSpotDaoImpl();
+        for (int i = 0; i < size; i++) {
+            int spotNumber = FIRST_SPOT_NUMBER + i;
+            boolean occupied = occupiedEveryN > 0 && i % occupiedEveryN == 0;
+            parkingSpotDao.create(new ParkingSpot(spotNumber, occupied, areaOf(spotNumber)));
+        }
+        return parkingSpotDao;
+    }
+
+    static int areaOf(int spotNumber) {
+        return 100 + (spotNumber - FIRST_SPOT_NUMBER) / SPOTS_PER_AREA;
+    }
+
+    /**
+     * Registers customers and returns their IDs. The customer DAO may already hold customers of earlier runs.
+     */
+    static int[] registerCustomers(CustomerDao customerDao, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            String phoneNumber = String.format("+46%09d", i);
+            Vehicle vehicle = new Vehicle(String.format("BEN%05d", i), "Car");
+            ids[i] = customerDao.create(new Customer("Customer " + i, phoneNumber, vehicle)).getId();
+        }
+        return ids;
+    }
+}
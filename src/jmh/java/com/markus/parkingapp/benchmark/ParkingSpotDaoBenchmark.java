@@ -0,0 +1,67 @@
+package com.markus.parkingapp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.markus.parkingapp.dao.impl.ParkingSpotDaoImpl;
+import com.markus.parkingapp.model.ParkingSpot;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookups and updates of {@link ParkingSpotDaoImpl} for lots of growing size.
+ * Every tenth spot is occupied, so the available spots are most of the lot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParkingSpotDaoBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int lotSize;
+
+    private ParkingSpotDaoImpl parkingSpotDao;
+
+    @Setup
+    public void createLot() {
+        parkingSpotDao = LotFixtures.createLot(lotSize, 10);
+    }
+
+    @Benchmark
+    public Optional<ParkingSpot> findBySpotNumber() {
+        return parkingSpotDao.findBySpotNumber(randomSpotNumber());
+    }
+
+    @Benchmark
+    public List<ParkingSpot> findAvailableSpots() {
+        return parkingSpotDao.findAvailableSpots();
+    }
+
+    /**
+     * Stores a spot with its occupancy flipped, so every call changes the availability index.
+     */
+    @Benchmark
+    public void update() {
+        int spotNumber = randomSpotNumber();
+        boolean occupied = parkingSpotDao.findBySpotNumber(spotNumber).orElseThrow().isOccupied();
+        parkingSpotDao.update(new ParkingSpot(spotNumber, !occupied, LotFixtures.areaOf(spotNumber)));
+    }
+
+    private int randomSpotNumber() {
+        return LotFixtures.FIRST_SPOT_NUMBER + ThreadLocalRandom.current().nextInt(lotSize);
+    }
+}
@@ -0,0 +1,61 @@
+package com.markus.parkingapp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.markus.parkingapp.ParkingService;
+import com.markus.parkingapp.dao.impl.CustomerDaoImpl;
+import com.markus.parkingapp.dao.impl.ReservationDaoImpl;
+import com.markus.parkingapp.model.Reservation;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full reservation cycle through {@link ParkingService}: reserving a spot and
+ * vacating it again, including the booking calendar, the scheduler queue, the occupancy
+ * snapshot and the event bus. Completed reservations stay in the archive, so the
+ * history grows with the number of cycles run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReservationCycleBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int lotSize;
+
+    private ParkingService parkingService;
+    private int customerId;
+
+    @Setup
+    public void createService() {
+        CustomerDaoImpl customerDao = CustomerDaoImpl.getInstance();
+        parkingService = new ParkingService(customerDao, LotFixtures.createLot(lotSize, 0), new ReservationDaoImpl());
+        customerId = LotFixtures.registerCustomers(customerDao, 1)[0];
+    }
+
+    @TearDown
+    public void closeService() {
+        parkingService.close();
+    }
+
+    @Benchmark
+    public Reservation reserveAndVacate() {
+        int spotNumber = LotFixtures.FIRST_SPOT_NUMBER + ThreadLocalRandom.current().nextInt(lotSize);
+        Reservation reservation = parkingService.reserve(spotNumber, customerId, 2);
+        return parkingService.vacate(reservation.getReservationId());
+    }
+}
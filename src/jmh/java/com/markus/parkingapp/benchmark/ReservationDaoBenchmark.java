@@ -0,0 +1,98 @@
+package com.markus.parkingapp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.dao.ReservationDao;
+import com.markus.parkingapp.dao.impl.ColumnarReservationDao;
+import com.markus.parkingapp.dao.impl.CustomerDaoImpl;
+import com.markus.parkingapp.dao.impl.ReservationDaoImpl;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reservation lookups against a history of completed reservations.
+ * Every customer has its own spot, {@code historyDepth} completed reservations of it
+ * and one active reservation, so the DAO holds {@code customers * (historyDepth + 1)} reservations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReservationDaoBenchmark {
+
+    @Param({"heap", "columnar"})
+    public String store;
+
+    @Param({"1000", "10000"})
+    public int customers;
+
+    @Param({"1", "10", "100"})
+    public int historyDepth;
+
+    private ReservationDao reservationDao;
+    private int[] customerIds;
+    private long reservationCount;
+
+    @Setup
+    public void createHistory() {
+        CustomerDaoImpl customerDao = CustomerDaoImpl.getInstance();
+        ParkingSpotDao parkingSpotDao = LotFixtures.createLot(customers, 0);
+        reservationDao = "columnar".equals(store)
+                ? new ColumnarReservationDao(customerDao, parkingSpotDao)
+                : new ReservationDaoImpl();
+        customerIds = LotFixtures.registerCustomers(customerDao, customers);
+
+        LocalDateTime start = LocalDateTime.now().minusHours(historyDepth + 1L);
+        List<Reservation> history = new ArrayList<>(customers * (historyDepth + 1));
+        long id = 0;
+        for (int i = 0; i < customers; i++) {
+            ParkingSpot parkingSpot = parkingSpotDao.findBySpotNumber(LotFixtures.FIRST_SPOT_NUMBER + i).orElseThrow();
+            Customer customer = customerDao.findById(customerIds[i]).orElseThrow();
+            for (int h = 0; h < historyDepth; h++) {
+                history.add(new Reservation(++id, parkingSpot, customer,
+                        start.plusHours(h), start.plusHours(h + 1L), Reservation.Status.COMPLETED));
+            }
+            Reservation active = new Reservation(++id, parkingSpot, customer,
+                    start.plusHours(historyDepth), start.plusHours(historyDepth + 2L), Reservation.Status.ACTIVE);
+            parkingSpotDao.tryOccupy(parkingSpot.getSpotNumber(), active);
+            history.add(active);
+        }
+        reservationDao.createAll(history);
+        reservationCount = id;
+    }
+
+    @Benchmark
+    public Optional<Reservation> findById() {
+        return reservationDao.findById(String.valueOf(1 + ThreadLocalRandom.current().nextLong(reservationCount)));
+    }
+
+    @Benchmark
+    public List<Reservation> findByCustomerId() {
+        return reservationDao.findByCustomerId(customerIds[ThreadLocalRandom.current().nextInt(customerIds.length)]);
+    }
+
+    @Benchmark
+    public Optional<Reservation> findActiveBySpotNumber() {
+        return reservationDao.findActiveBySpotNumber(LotFixtures.FIRST_SPOT_NUMBER + ThreadLocalRandom.current().nextInt(customers));
+    }
+}
@@ -0,0 +1,102 @@
+package com.markus.parkingapp.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.dao.ReservationDao;
+import com.markus.parkingapp.dao.impl.ColumnarReservationDao;
+import com.markus.parkingapp.dao.impl.CustomerDaoImpl;
+import com.markus.parkingapp.dao.impl.ReservationDaoImpl;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap retained per stored reservation, which backs the footprint documented on
+ * {@link ColumnarReservationDao}. Each run stores {@code rows} completed reservations in a new
+ * DAO and reports the growth of the used heap after a full collection, divided by the number
+ * of rows, as the {@code bytesPerRow} counter. The time of the run is of no interest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 3, jvmArgsAppend = {"-Xmx4g", "-XX:+UseSerialGC"})
+public class ReservationFootprintBenchmark {
+
+    private static final int CUSTOMERS = 1000;
+
+    @Param({"heap", "columnar"})
+    public String store;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private CustomerDaoImpl customerDao;
+    private ParkingSpotDao parkingSpotDao;
+    private int[] customerIds;
+    private ReservationDao reservationDao; // Kept reachable until the heap is measured
+
+    /**
+     * Reported by JMH next to the time of the run.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public double bytesPerRow;
+    }
+
+    @Setup
+    public void createLot() {
+        customerDao = CustomerDaoImpl.getInstance();
+        parkingSpotDao = LotFixtures.createLot(CUSTOMERS, 0);
+        customerIds = LotFixtures.registerCustomers(customerDao, CUSTOMERS);
+    }
+
+    @Benchmark
+    public void storeReservations(Footprint footprint) {
+        reservationDao = null;
+        long before = usedHeap();
+
+        reservationDao = "columnar".equals(store)
+                ? new ColumnarReservationDao(customerDao, parkingSpotDao)
+                : new ReservationDaoImpl();
+        LocalDateTime start = LocalDateTime.now().minusYears(1);
+        List<Reservation> history = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            ParkingSpot parkingSpot = parkingSpotDao.findBySpotNumber(LotFixtures.FIRST_SPOT_NUMBER + i % CUSTOMERS).orElseThrow();
+            Customer customer = customerDao.findById(customerIds[i % CUSTOMERS]).orElseThrow();
+            LocalDateTime startTime = start.plusMinutes(i);
+            history.add(new Reservation(i + 1L, parkingSpot, customer,
+                    startTime, startTime.plusHours(1), Reservation.Status.COMPLETED));
+        }
+        reservationDao.createAll(history);
+        history = null; // Only what the DAO keeps is measured
+
+        footprint.bytesPerRow = (double) (usedHeap() - before) / rows;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
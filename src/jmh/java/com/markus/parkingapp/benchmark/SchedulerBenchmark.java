@@ -0,0 +1,91 @@
+package com.markus.parkingapp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.markus.parkingapp.dao.impl.CustomerDaoImpl;
+import com.markus.parkingapp.dao.impl.ParkingSpotDaoImpl;
+import com.markus.parkingapp.dao.impl.ReservationDaoImpl;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+import com.markus.parkingapp.schedule.ReservationScheduler;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one check of {@link ReservationScheduler#checkAndUpdateReservations()}: a tick with
+ * {@code due} expired reservations to complete, while {@code pending} reservations that end
+ * later stay queued. The scheduler thread is not started; the check is called directly.
+ * <p>
+ * Each expired reservation is logged by the scheduler, so run with output redirected
+ * when {@code due} is large.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(1)
+public class SchedulerBenchmark {
+
+    @Param({"0", "10", "1000"})
+    public int due;
+
+    @Param({"1000", "100000"})
+    public int pending;
+
+    private ParkingSpotDaoImpl parkingSpotDao;
+    private ReservationDaoImpl reservationDao;
+    private ReservationScheduler scheduler;
+    private Customer customer;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void createScheduler() {
+        parkingSpotDao = LotFixtures.createLot(pending + due, 0);
+        reservationDao = new ReservationDaoImpl();
+        scheduler = new ReservationScheduler(reservationDao, parkingSpotDao);
+        int customerId = LotFixtures.registerCustomers(CustomerDaoImpl.getInstance(), 1)[0];
+        customer = CustomerDaoImpl.getInstance().findById(customerId).orElseThrow();
+
+        LocalDateTime start = LocalDateTime.now();
+        for (int i = 0; i < pending; i++) {
+            track(LotFixtures.FIRST_SPOT_NUMBER + due + i, start, start.plusDays(1));
+        }
+    }
+
+    /**
+     * Queues the expired reservations for the next check, on spots of their own.
+     */
+    @Setup(Level.Invocation)
+    public void queueExpired() {
+        LocalDateTime end = LocalDateTime.now().minusMinutes(1);
+        for (int i = 0; i < due; i++) {
+            track(LotFixtures.FIRST_SPOT_NUMBER + i, end.minusHours(1), end);
+        }
+    }
+
+    @Benchmark
+    public void checkAndUpdateReservations() {
+        scheduler.checkAndUpdateReservations();
+    }
+
+    private void track(int spotNumber, LocalDateTime startTime, LocalDateTime endTime) {
+        ParkingSpot parkingSpot = parkingSpotDao.findBySpotNumber(spotNumber).orElseThrow();
+        Reservation reservation = reservationDao.create(new Reservation(++nextId, parkingSpot, customer,
+                startTime, endTime, Reservation.Status.ACTIVE));
+        parkingSpotDao.tryOccupy(spotNumber, reservation);
+        scheduler.track(reservation);
+    }
+}
@@ -1,18 +1,46 @@
 package com.markus.parkingapp;
 
-import import com.markus.parkingapp.ParkingService;
-import com.markus.parkingapp.dao.CustomerDao;
-import com.markus.parkingapp.dao.impl.CustomerDaoImpl;
-import com.markus.parkingapp.model.Customer;
-import com.markus.parkingapp.model.Vehicle;
+import com.markus.parkingapp.api.ParkingHttpServer;
+import com.markus.parkingapp.controller.ParkingController;
 import com.markus.parkingapp.view.ConsoleUI;
 
+import java.net.InetSocketAddress;
+
 
 public class Main {
+
+    /**
+     * Starts the console interface. When the system property {@code parkingapp.http.port} is set,
+     * the HTTP/JSON API is started on that port as well, sharing the same {@link ParkingService}.
+     * With {@code parkingapp.http.only} the console is left out and the API runs until the process is stopped.
+     */
     public static void main(String[] args) {
+        ParkingService parkingService = new ParkingService();
+
+        String httpPort = System.getProperty("parkingapp.http.port");
+        ParkingHttpServer httpServer = null;
+        if (httpPort != null) {
+            httpServer = new ParkingHttpServer(parkingService, new InetSocketAddress(Integer.parseInt(httpPort)));
+            httpServer.start();
+            System.out.println("HTTP API listening on port " + httpServer.getAddress().getPort());
+        }
+
+        if (httpServer != null && Boolean.getBoolean("parkingapp.http.only")) {
+            ParkingHttpServer server = httpServer;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                parkingService.close(); // Save a final snapshot
+            }));
+            return; // The server's dispatcher thread keeps the application running
+        }
+
         ConsoleUI consoleUI = new ConsoleUI();
-        ParkingController controller = new ParkingController(consoleUI);
+        ParkingController controller = new ParkingController(consoleUI, parkingService);
         controller.run();
+
+        if (httpServer != null) {
+            httpServer.close();
+        }
     }
 
 
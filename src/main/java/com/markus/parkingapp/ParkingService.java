@@ -0,0 +1,779 @@
+package com.markus.parkingapp;
+
+import com.markus.parkingapp.dao.CustomerDao;
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.dao.ReservationDao;
+import com.markus.parkingapp.dao.impl.ColumnarReservationDao;
+import com.markus.parkingapp.dao.impl.CustomerDaoImpl;
+import com.markus.parkingapp.dao.impl.MappedParkingSpotDao;
+import com.markus.parkingapp.dao.impl.ParkingSpotDaoImpl;
+import com.markus.parkingapp.dao.impl.ReservationDaoImpl;
+import com.markus.parkingapp.dao.metered.MeteredCustomerDao;
+import com.markus.parkingapp.dao.metered.MeteredParkingSpotDao;
+import com.markus.parkingapp.dao.metered.MeteredReservationDao;
+import com.markus.parkingapp.dao.persistence.DurableStore;
+import com.markus.parkingapp.dao.sequencer.CustomerIdSequencer;
+import com.markus.parkingapp.event.EventBus;
+import com.markus.parkingapp.event.ParkingEvent;
+import com.markus.parkingapp.importer.BulkImporter;
+import com.markus.parkingapp.importer.ImportResult;
+import com.markus.parkingapp.metrics.LatencyHistogram;
+import com.markus.parkingapp.metrics.MetricsRegistry;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+import com.markus.parkingapp.occupancy.OccupancyBoard;
+import com.markus.parkingapp.occupancy.OccupancySnapshot;
+import com.markus.parkingapp.report.OccupancyReport;
+import com.markus.parkingapp.report.ReservationExport;
+import com.markus.parkingapp.schedule.BookingCalendar;
+import com.markus.parkingapp.schedule.ReservationScheduler;
+
+import java.io.Closeable;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The parking operations shared by every front-end: registering customers, listing spots,
+ * reserving, booking ahead and vacating.
+ * <p>
+ * The service holds no per-user state and every operation is safe to call from many threads
+ * at once: spots are claimed with compare-and-set, bookings are checked per spot, and the
+ * DAOs are thread-safe. Failed operations throw {@link IllegalArgumentException} for invalid
+ * input, such as an unknown customer or spot, and {@link IllegalStateException} when the
+ * request is valid but conflicts with the current state, such as an occupied spot.
+ * The exception messages are meant to be shown to the user.
+ */
+public class ParkingService implements Closeable {
+
+    private final CustomerDao customerDao;
+    private final ParkingSpotDao parkingSpotDao;
+    private final ReservationDao reservationDao;
+    private final BookingCalendar bookingCalendar;
+    private final ReservationScheduler scheduler;
+    private final DurableStore durableStore; // Null unless data is saved between runs
+    private final EventBus eventBus = new EventBus();
+    private final OccupancyBoard occupancyBoard;
+
+    // Latency of every call, failed or not, and the number of calls that failed;
+    // for batches, the number of entries that failed
+    private final MetricsRegistry metrics;
+    private final LatencyHistogram reserveLatency;
+    private final LatencyHistogram bookLatency;
+    private final LatencyHistogram vacateLatency;
+    private final LatencyHistogram reserveAllLatency;
+    private final LatencyHistogram vacateAllLatency;
+    private final LongAdder reserveFailures;
+    private final LongAdder bookFailures;
+    private final LongAdder vacateFailures;
+    private final LongAdder reserveAllFailures;
+    private final LongAdder vacateAllFailures;
+
+    /**
+     * Initializes the DAOs, the scheduler and the event bus.
+     * Changes are published on the event bus once the saved data has been loaded.
+     * Automatically creates 10 parking spots for a specific area, unless saved spots were loaded.
+     * <p>
+     * Data is kept between runs when the system property {@code parkingapp.durable} is true,
+     * in the directory given by {@code parkingapp.data.dir} (default {@code data}), which also
+     * holds the high-water mark of the customer IDs.
+     * For very large lots, {@code parkingapp.spots.file} keeps the parking spots in a
+     * memory-mapped table file instead of on the heap, and {@code parkingapp.reservations.columnar}
+     * keeps reservations in primitive columns.
+     * With {@code parkingapp.metrics.dao}, the latency of every DAO operation is recorded as well.
+     * Due reservations are checked every minute, or as often as {@code parkingapp.scheduler.tick}
+     * says, either in milliseconds or as an ISO-8601 duration such as {@code PT5S}.
+     * Spots, customers and reservations can be loaded from files with {@code parkingapp.import.spots},
+     * {@code parkingapp.import.customers} and {@code parkingapp.import.reservations}; see {@link BulkImporter}.
+     */
+    public ParkingService() {
+        this(Storage.fromSystemProperties());
+    }
+
+    /**
+     * Initializes the service over existing DAOs, e.g. to measure or test it against a prepared lot.
+     * Nothing is saved between runs. Creates 10 parking spots for a specific area if the spot DAO is empty.
+     *
+     * @param customerDao    The DAO holding the customers.
+     * @param parkingSpotDao The DAO holding the parking spots.
+     * @param reservationDao The DAO holding the reservations.
+     */
+    public ParkingService(CustomerDao customerDao, ParkingSpotDao parkingSpotDao, ReservationDao reservationDao) {
+        this(new Storage(customerDao, parkingSpotDao, reservationDao));
+    }
+
+    private ParkingService(Storage storage) {
+        this.customerDao = storage.customers;
+        this.parkingSpotDao = storage.parkingSpots;
+        this.reservationDao = storage.reservations;
+        this.durableStore = storage.durableStore;
+
+        // Record latencies, readable over JMX and with a metrics dump
+        this.metrics = storage.metrics;
+        this.reserveLatency = metrics.histogram("service.reserve");
+        this.bookLatency = metrics.histogram("service.bookInAdvance");
+        this.vacateLatency = metrics.histogram("service.vacate");
+        this.reserveFailures = metrics.counter("service.reserve.failed");
+        this.bookFailures = metrics.counter("service.bookInAdvance.failed");
+        this.vacateFailures = metrics.counter("service.vacate.failed");
+        this.reserveAllLatency = metrics.histogram("service.reserveAll");
+        this.vacateAllLatency = metrics.histogram("service.vacateAll");
+        this.reserveAllFailures = metrics.counter("service.reserveAll.failed");
+        this.vacateAllFailures = metrics.counter("service.vacateAll.failed");
+        metrics.registerMBeans();
+
+        // Automatically create parking spots for the specified area code
+        if (parkingSpotDao.findAll().isEmpty()) {
+            initializeParkingSpots(101);
+        }
+
+        // Publish occupancy changes from here on
+        parkingSpotDao.addOccupancyListener(eventBus);
+        this.occupancyBoard = new OccupancyBoard(parkingSpotDao);
+
+        // Book the windows of the reservations that have not ended yet
+        this.bookingCalendar = new BookingCalendar(parkingSpotDao);
+        for (Reservation reservation : reservationDao.findActive()) {
+            if (!bookingCalendar.tryBook(reservation)) {
+                // The stored reservations overlap; the calendar cannot guard this window
+                System.err.println("Reservation " + reservation.getReservationId() + " overlaps another booking of parking spot "
+                        + reservation.getParkingSpot().getSpotNumber() + " and was left out of the booking calendar.");
+            }
+        }
+
+        // Start the scheduler for checking and updating reservations
+        this.scheduler = new ReservationScheduler(reservationDao, parkingSpotDao, bookingCalendar, eventBus,
+                storage.schedulerTick, metrics);
+        scheduler.startScheduler();
+    }
+
+    /**
+     * Initializes the parking spots for a specific area code.
+     *
+     * @param areaCode The area code to assign to the parking spots.
+     */
+    private void initializeParkingSpots(int areaCode) {
+        for (int i = 1; i <= 10; i++) {
+            parkingSpotDao.create(new ParkingSpot(i, areaCode)); // Create parking spots
+        }
+    }
+
+    /**
+     * Registers a new customer.
+     *
+     * @param customer The customer to register.
+     * @return The registered customer, with its generated ID.
+     */
+    public Customer registerCustomer(Customer customer) {
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer cannot be null.");
+        }
+        return customerDao.create(customer);
+    }
+
+    /**
+     * Returns the counters and latency histograms of the service, its scheduler and,
+     * if enabled, its DAOs.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the bus publishing spot occupancy changes and reservation lifecycle events.
+     * Subscribe to it to react to changes without polling.
+     */
+    public EventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Returns the latest occupancy snapshot of all spots, without locking or copying.
+     * Meant for displays that read availability far more often than it changes.
+     */
+    public OccupancySnapshot getOccupancy() {
+        return occupancyBoard.getSnapshot();
+    }
+
+    /**
+     * Builds the occupancy report of all reservations, completed ones included, in one
+     * streaming pass. Areas are sized by the spots they have now.
+     */
+    public OccupancyReport buildOccupancyReport() {
+        OccupancySnapshot snapshot = occupancyBoard.getSnapshot();
+        return OccupancyReport.of(reservationDao.stream(), snapshot::getSpotCount, LocalDateTime.now());
+    }
+
+    /**
+     * Writes all reservations, completed ones included, as CSV that {@link BulkImporter} can read back.
+     *
+     * @return The number of reservations written.
+     */
+    public long exportReservations(Writer writer) {
+        return ReservationExport.writeCsv(reservationDao.stream(), writer);
+    }
+
+    public Optional<Customer> findCustomer(int customerId) {
+        return customerDao.findById(customerId);
+    }
+
+    /**
+     * Finds the customer owning a vehicle, e.g. from a plate read at a gate.
+     * Case, spaces and dashes in the plate number are ignored.
+     */
+    public Optional<Customer> findCustomerByPlate(String plateNumber) {
+        return customerDao.findByPlate(plateNumber);
+    }
+
+    /**
+     * Finds a customer by phone number. Spaces and dashes in the number are ignored.
+     */
+    public Optional<Customer> findCustomerByPhone(String phoneNumber) {
+        return customerDao.findByPhone(phoneNumber);
+    }
+
+    public Optional<ParkingSpot> findSpot(int spotNumber) {
+        return parkingSpotDao.findBySpotNumber(spotNumber);
+    }
+
+    public List<ParkingSpot> findAllSpots() {
+        return parkingSpotDao.findAll();
+    }
+
+    public List<ParkingSpot> findAvailableSpots() {
+        return parkingSpotDao.findAvailableSpots();
+    }
+
+    public List<ParkingSpot> findSpotsByArea(int areaCode) {
+        return parkingSpotDao.findByArea(areaCode);
+    }
+
+    public boolean hasAvailableSpots() {
+        return parkingSpotDao.hasAvailableSpots();
+    }
+
+    /**
+     * Finds the parking spots of an area that have no booking overlapping a window.
+     *
+     * @param areaCode  The area code.
+     * @param startTime The start of the window.
+     * @param hours     The length of the window in hours, greater than 0.
+     * @return The free spots.
+     */
+    public List<ParkingSpot> findFreeSpots(int areaCode, LocalDateTime startTime, int hours) {
+        checkHours(hours);
+        return bookingCalendar.findFreeSpots(areaCode, startTime, startTime.plusHours(hours));
+    }
+
+    public Optional<Reservation> findReservation(String reservationId) {
+        return reservationDao.findById(reservationId);
+    }
+
+    public Optional<Reservation> findActiveReservationBySpot(int spotNumber) {
+        return reservationDao.findActiveBySpotNumber(spotNumber);
+    }
+
+    /**
+     * Reserves a parking spot for a customer, starting now.
+     * The window of the reservation is booked and the spot is claimed atomically, so of
+     * several concurrent reservations for the same spot exactly one succeeds.
+     *
+     * @param spotNumber The spot to reserve.
+     * @param customerId The customer reserving the spot.
+     * @param hours      The length of the reservation in hours, greater than 0.
+     * @return The created reservation.
+     * @throws IllegalArgumentException If the spot or customer does not exist.
+     * @throws IllegalStateException    If the spot is occupied or booked within the window.
+     */
+    public Reservation reserve(int spotNumber, int customerId, int hours) {
+        long startNanos = System.nanoTime();
+        try {
+            checkHours(hours);
+            ParkingSpot parkingSpot = requireSpot(spotNumber);
+            Customer customer = requireCustomer(customerId);
+
+            // The window may overlap a booking made in advance, and another client may have
+            // taken the spot since it was selected; in both cases the reservation is refused.
+            Reservation reservation = new Reservation(parkingSpot, customer, hours);
+            if (!bookingCalendar.tryBook(reservation)) {
+                throw new IllegalStateException("Parking spot ID " + spotNumber + " is booked within the next " + hours + " hours.");
+            }
+            if (!parkingSpotDao.tryOccupy(spotNumber, reservation)) {
+                bookingCalendar.release(reservation);
+                throw new IllegalStateException("Parking spot ID " + spotNumber + " is already occupied.");
+            }
+            save(reservation);
+            scheduler.track(reservation); // Complete it automatically once it expires
+            eventBus.publish(ParkingEvent.Type.RESERVATION_CREATED, reservation);
+            return reservation;
+        } catch (RuntimeException e) {
+            reserveFailures.increment();
+            throw e;
+        } finally {
+            reserveLatency.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Books a parking spot for a customer for a window that may start later.
+     * The reservation claims its spot when the window starts, or right away if it already has.
+     *
+     * @param spotNumber The spot to book.
+     * @param customerId The customer booking the spot.
+     * @param startTime  The start of the window.
+     * @param hours      The length of the window in hours, greater than 0.
+     * @return The created reservation.
+     * @throws IllegalArgumentException If the spot or customer does not exist.
+     * @throws IllegalStateException    If the window overlaps another booking or the spot is occupied.
+     */
+    public Reservation bookInAdvance(int spotNumber, int customerId, LocalDateTime startTime, int hours) {
+        long startNanos = System.nanoTime();
+        try {
+            checkHours(hours);
+            if (startTime == null) {
+                throw new IllegalArgumentException("Start time cannot be null.");
+            }
+            ParkingSpot parkingSpot = requireSpot(spotNumber);
+            Customer customer = requireCustomer(customerId);
+
+            Reservation reservation = new Reservation(parkingSpot, customer, startTime, hours);
+            if (!bookingCalendar.tryBook(reservation)) {
+                throw new IllegalStateException("Parking spot ID " + spotNumber + " is already booked for that time.");
+            }
+            if (reservation.getStatus() == Reservation.Status.ACTIVE
+                    && !parkingSpotDao.tryOccupy(spotNumber, reservation)) {
+                // The start time has already come, so the spot is claimed right away
+                bookingCalendar.release(reservation);
+                throw new IllegalStateException("Parking spot ID " + spotNumber + " is already occupied.");
+            }
+            save(reservation);
+            scheduler.track(reservation); // Start and complete it automatically
+            eventBus.publish(ParkingEvent.Type.RESERVATION_CREATED, reservation);
+            return reservation;
+        } catch (RuntimeException e) {
+            bookFailures.increment();
+            throw e;
+        } finally {
+            bookLatency.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Reserves several parking spots for one customer in a single batch.
+     * <p>
+     * Each spot is booked and claimed in turn. With all-or-nothing, a spot that cannot be
+     * claimed releases every spot claimed before it and nothing is reserved; otherwise the
+     * spots that could not be claimed are reported and the rest are reserved. The reservations
+     * are saved with one {@link ReservationDao#createAll} call, so a durable store writes them
+     * as a single batch. If saving fails, every spot claimed for the batch is released.
+     *
+     * @param spotNumbers  The spots to reserve.
+     * @param customerId   The customer reserving the spots.
+     * @param hours        The length of the reservations in hours, greater than 0.
+     * @param allOrNothing Whether to reserve no spot unless every spot can be reserved.
+     * @return The created reservations and the spots that could not be reserved.
+     */
+    public BatchResult<Integer> reserveAll(List<Integer> spotNumbers, int customerId, int hours, boolean allOrNothing) {
+        long startNanos = System.nanoTime();
+        int reserved = 0;
+        try {
+            BatchResult<Integer> result = reserveBatch(spotNumbers, customerId, hours, allOrNothing);
+            reserved = result.getReservations().size();
+            return result;
+        } finally {
+            // Every spot left unreserved counts, including the whole batch if the call fails
+            reserveAllFailures.add(spotNumbers.size() - reserved);
+            reserveAllLatency.recordSince(startNanos);
+        }
+    }
+
+    private BatchResult<Integer> reserveBatch(List<Integer> spotNumbers, int customerId, int hours, boolean allOrNothing) {
+        checkHours(hours);
+        Customer customer = requireCustomer(customerId);
+
+        List<Reservation> claimed = new ArrayList<>();
+        List<Integer> failed = new ArrayList<>();
+        for (Integer spotNumber : spotNumbers) {
+            Optional<ParkingSpot> spotOpt = parkingSpotDao.findBySpotNumber(spotNumber);
+            Reservation reservation = spotOpt.map(spot -> new Reservation(spot, customer, hours)).orElse(null);
+            if (reservation != null && claim(reservation)) {
+                claimed.add(reservation);
+                continue;
+            }
+            failed.add(spotNumber);
+            if (allOrNothing) {
+                for (Reservation claimedReservation : claimed) {
+                    unclaim(claimedReservation);
+                }
+                return new BatchResult<>(List.of(), failed);
+            }
+        }
+
+        if (!claimed.isEmpty()) {
+            try {
+                reservationDao.createAll(claimed); // Save the whole batch at once
+            } catch (RuntimeException e) {
+                for (Reservation reservation : claimed) {
+                    discard(reservation);
+                }
+                throw e;
+            }
+            for (Reservation reservation : claimed) {
+                scheduler.track(reservation);
+                eventBus.publish(ParkingEvent.Type.RESERVATION_CREATED, reservation);
+            }
+        }
+        return new BatchResult<>(claimed, failed);
+    }
+
+    /**
+     * Vacates the parking spot held by a reservation and marks the reservation as completed.
+     * A booking that has not started yet holds no spot, so it is simply cancelled.
+     *
+     * @param reservationId The reservation to complete.
+     * @return The completed reservation.
+     * @throws IllegalArgumentException If the reservation does not exist.
+     * @throws IllegalStateException    If the reservation is already completed.
+     */
+    public Reservation vacate(String reservationId) {
+        long startNanos = System.nanoTime();
+        try {
+            Reservation reservation = reservationDao.findById(reservationId)
+                    .orElseThrow(() -> new IllegalArgumentException("Reservation ID " + reservationId + " does not exist."));
+            return complete(reservation);
+        } catch (RuntimeException e) {
+            vacateFailures.increment();
+            throw e;
+        } finally {
+            vacateLatency.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Vacates a parking spot by completing the active reservation holding it.
+     *
+     * @param spotNumber The spot to vacate.
+     * @return The completed reservation.
+     * @throws IllegalArgumentException If the spot has no active reservation.
+     */
+    public Reservation vacateBySpotNumber(int spotNumber) {
+        long startNanos = System.nanoTime();
+        try {
+            Reservation reservation = reservationDao.findActiveBySpotNumber(spotNumber)
+                    .orElseThrow(() -> new IllegalArgumentException("Parking spot ID " + spotNumber + " has no active reservation."));
+            return complete(reservation);
+        } catch (RuntimeException e) {
+            vacateFailures.increment();
+            throw e;
+        } finally {
+            vacateLatency.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Vacates the parking spots of several reservations in a single batch.
+     * Scheduled bookings in the batch are cancelled. All completed reservations are saved
+     * with one {@link ReservationDao#completeAll} call.
+     *
+     * @param reservationIds The reservations to complete.
+     * @return The completed reservations and the IDs that do not exist or were already completed.
+     */
+    public BatchResult<String> vacateAll(List<String> reservationIds) {
+        long startNanos = System.nanoTime();
+        int vacated = 0;
+        try {
+            BatchResult<String> result = vacateBatch(reservationIds);
+            vacated = result.getReservations().size();
+            return result;
+        } finally {
+            vacateAllFailures.add(reservationIds.size() - vacated);
+            vacateAllLatency.recordSince(startNanos);
+        }
+    }
+
+    private BatchResult<String> vacateBatch(List<String> reservationIds) {
+        List<Reservation> completed = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        for (String reservationId : reservationIds) {
+            Optional<Reservation> reservationOpt = reservationDao.findById(reservationId);
+            if (reservationOpt.isEmpty() || reservationOpt.get().getStatus() == Reservation.Status.COMPLETED) {
+                failed.add(reservationId);
+                continue;
+            }
+            Reservation reservation = reservationOpt.get();
+            Reservation.Status previous = reservation.complete(); // Atomic, as in complete(Reservation)
+            if (previous == Reservation.Status.COMPLETED) {
+                failed.add(reservationId);
+                continue;
+            }
+            if (previous == Reservation.Status.ACTIVE) {
+                reservation.endEarly(LocalDateTime.now()); // As in complete(Reservation)
+                parkingSpotDao.tryVacate(reservation.getParkingSpot().getSpotNumber(), reservation);
+            }
+            completed.add(reservation);
+        }
+
+        if (!completed.isEmpty()) {
+            reservationDao.completeAll(completed); // Save the whole batch at once
+            for (Reservation reservation : completed) {
+                bookingCalendar.release(reservation);
+                eventBus.publish(ParkingEvent.Type.RESERVATION_COMPLETED, reservation);
+            }
+        }
+        return new BatchResult<>(completed, failed);
+    }
+
+    private Reservation complete(Reservation reservation) {
+        // Complete first, atomically: the scheduler may be starting a scheduled reservation right now,
+        // and undoes its claim if it finds the reservation completed
+        Reservation.Status previous = reservation.complete();
+        if (previous == Reservation.Status.COMPLETED) {
+            throw new IllegalStateException("Reservation ID " + reservation.getReservationId() + " is already completed.");
+        }
+        // Vacate the parking spot, which only succeeds while this reservation still holds it.
+        // A car leaving early ends the reservation now, so reports count the time actually parked.
+        if (previous == Reservation.Status.ACTIVE) {
+            reservation.endEarly(LocalDateTime.now());
+            parkingSpotDao.tryVacate(reservation.getParkingSpot().getSpotNumber(), reservation);
+        }
+
+        // Save the completion and free the rest of its booked window
+        reservationDao.update(reservation);
+        bookingCalendar.release(reservation);
+        eventBus.publish(ParkingEvent.Type.RESERVATION_COMPLETED, reservation);
+        return reservation;
+    }
+
+    /**
+     * Books the window of a reservation and claims its parking spot, undoing the booking if the spot is taken.
+     *
+     * @return True if the reservation now holds its spot.
+     */
+    private boolean claim(Reservation reservation) {
+        if (!bookingCalendar.tryBook(reservation)) {
+            return false;
+        }
+        if (!parkingSpotDao.tryOccupy(reservation.getParkingSpot().getSpotNumber(), reservation)) {
+            bookingCalendar.release(reservation);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Undoes {@link #claim} for a reservation that was never saved.
+     */
+    private void unclaim(Reservation reservation) {
+        parkingSpotDao.tryVacate(reservation.getParkingSpot().getSpotNumber(), reservation);
+        bookingCalendar.release(reservation);
+    }
+
+    /**
+     * Saves a reservation whose window is booked, releasing its booking and spot if saving fails.
+     */
+    private void save(Reservation reservation) {
+        try {
+            reservationDao.create(reservation);
+        } catch (RuntimeException e) {
+            discard(reservation);
+            throw e;
+        }
+    }
+
+    /**
+     * Undoes {@link #claim} for a reservation whose saving failed. Part of a failed batch may
+     * have been saved anyway; such a reservation is saved again as completed.
+     */
+    private void discard(Reservation reservation) {
+        unclaim(reservation);
+        if (reservation.complete() != Reservation.Status.COMPLETED
+                && reservationDao.findById(reservation.getReservationId()).isPresent()) {
+            reservationDao.update(reservation);
+        }
+    }
+
+    private ParkingSpot requireSpot(int spotNumber) {
+        return parkingSpotDao.findBySpotNumber(spotNumber)
+                .orElseThrow(() -> new IllegalArgumentException("The parking spot ID " + spotNumber + " does not exist."));
+    }
+
+    private Customer requireCustomer(int customerId) {
+        return customerDao.findById(customerId)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid customer ID: " + customerId));
+    }
+
+    private static void checkHours(int hours) {
+        if (hours <= 0) {
+            throw new IllegalArgumentException("Hours must be greater than 0.");
+        }
+    }
+
+    /**
+     * Completes the event subscribers, removes the metrics from JMX and saves a final snapshot
+     * if data is kept between runs.
+     */
+    @Override
+    public void close() {
+        eventBus.close();
+        metrics.unregisterMBeans();
+        if (durableStore != null) {
+            durableStore.close();
+        }
+    }
+
+    /**
+     * The outcome of a batch operation: the reservations that succeeded and the inputs that failed.
+     *
+     * @param <T> The type of the inputs identifying the failed entries.
+     */
+    public static final class BatchResult<T> {
+        private final List<Reservation> reservations;
+        private final List<T> failed;
+
+        BatchResult(List<Reservation> reservations, List<T> failed) {
+            this.reservations = reservations;
+            this.failed = failed;
+        }
+
+        public List<Reservation> getReservations() {
+            return reservations;
+        }
+
+        public List<T> getFailed() {
+            return failed;
+        }
+    }
+
+    /**
+     * The DAOs a service is built on, and the store saving them if data is kept between runs.
+     */
+    private static final class Storage {
+        private CustomerDao customers;
+        private ParkingSpotDao parkingSpots;
+        private ReservationDao reservations;
+        private DurableStore durableStore; // Null unless data is saved between runs
+        private final MetricsRegistry metrics = new MetricsRegistry();
+        private Duration schedulerTick = Duration.ofMinutes(1);
+
+        private Storage() {
+        }
+
+        private Storage(CustomerDao customers, ParkingSpotDao parkingSpots, ReservationDao reservations) {
+            this.customers = customers;
+            this.parkingSpots = parkingSpots;
+            this.reservations = reservations;
+        }
+
+        /**
+         * Creates the DAOs selected by the system properties described on {@link ParkingService#ParkingService()}.
+         */
+        static Storage fromSystemProperties() {
+            Storage storage = new Storage();
+            Path dataDir = Path.of(System.getProperty("parkingapp.data.dir", "data"));
+            CustomerIdSequencer.useDataDirectory(dataDir); // Customer IDs never repeat, even across runs
+            String tick = System.getProperty("parkingapp.scheduler.tick");
+            if (tick != null) {
+                storage.schedulerTick = parseTick(tick);
+            }
+            storage.customers = CustomerDaoImpl.getInstance();      // Singleton instance for Customer DAO
+            storage.parkingSpots = storage.createParkingSpotDao();  // Instance of ParkingSpot DAO
+            MappedParkingSpotDao mappedSpots = storage.parkingSpots instanceof MappedParkingSpotDao
+                    ? (MappedParkingSpotDao) storage.parkingSpots : null;
+            storage.reservations = Boolean.getBoolean("parkingapp.reservations.columnar")
+                    ? new ColumnarReservationDao(storage.customers, storage.parkingSpots)
+                    : new ReservationDaoImpl();                     // Instance of Reservation DAO
+
+            if (Boolean.getBoolean("parkingapp.durable")) {
+                storage.durableStore = DurableStore.open(dataDir, storage.customers, storage.parkingSpots, storage.reservations);
+                storage.customers = storage.durableStore.getCustomerDao();
+                storage.parkingSpots = storage.durableStore.getParkingSpotDao();
+                storage.reservations = storage.durableStore.getReservationDao();
+            }
+            if (mappedSpots != null) {
+                // Without saved reservations, the table's occupants refer to nothing
+                int released = mappedSpots.releaseStaleOccupants();
+                if (released > 0) {
+                    System.out.println("Vacated " + released + " parking spot(s) held by reservations that were not kept.");
+                }
+            }
+
+            // Measure the DAOs as the service sees them, including any logging to disk
+            if (Boolean.getBoolean("parkingapp.metrics.dao")) {
+                storage.customers = new MeteredCustomerDao(storage.customers, storage.metrics);
+                storage.parkingSpots = new MeteredParkingSpotDao(storage.parkingSpots, storage.metrics);
+                storage.reservations = new MeteredReservationDao(storage.reservations, storage.metrics);
+            }
+
+            storage.importFiles();
+            return storage;
+        }
+
+        /**
+         * Reads a scheduler tick given in milliseconds, e.g. {@code 500}, or as an ISO-8601 duration, e.g. {@code PT5S}.
+         */
+        private static Duration parseTick(String tick) {
+            String value = tick.trim();
+            try {
+                Duration interval = value.chars().allMatch(Character::isDigit) && !value.isEmpty()
+                        ? Duration.ofMillis(Long.parseLong(value))
+                        : Duration.parse(value);
+                if (interval.isNegative() || interval.isZero()) {
+                    throw new IllegalArgumentException("parkingapp.scheduler.tick must be greater than 0: " + tick);
+                }
+                return interval;
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("parkingapp.scheduler.tick is neither milliseconds nor an ISO-8601 duration: "
+                        + tick, e);
+            }
+        }
+
+        /**
+         * Loads the files named by {@code parkingapp.import.spots}, {@code parkingapp.import.customers}
+         * and {@code parkingapp.import.reservations}, in that order, so reservations can refer to both.
+         */
+        private void importFiles() {
+            BulkImporter importer = new BulkImporter(customers, parkingSpots, reservations);
+            importFile("parkingapp.import.spots", importer::importSpots);
+            importFile("parkingapp.import.customers", importer::importCustomers);
+            importFile("parkingapp.import.reservations", importer::importReservations);
+        }
+
+        private static void importFile(String property, Function<Path, ImportResult> importer) {
+            String file = System.getProperty(property);
+            if (file == null) {
+                return;
+            }
+            ImportResult result = importer.apply(Path.of(file));
+            System.out.println(result);
+            for (String error : result.getErrors()) {
+                System.err.println("  " + error);
+            }
+        }
+
+        /**
+         * Creates the parking spot DAO, backed by a memory-mapped table if {@code parkingapp.spots.file} is set.
+         */
+        private ParkingSpotDao createParkingSpotDao() {
+            String spotsFile = System.getProperty("parkingapp.spots.file");
+            if (spotsFile == null) {
+                return new ParkingSpotDaoImpl();
+            }
+            return new MappedParkingSpotDao(Path.of(spotsFile), this::findReservation);
+        }
+
+        /**
+         * Looks up the reservation holding a mapped parking spot.
+         */
+        private Reservation findReservation(long reservationId) {
+            return reservations.findById(String.valueOf(reservationId)).orElse(null);
+        }
+    }
+}
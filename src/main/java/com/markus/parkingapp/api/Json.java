@@ -0,0 +1,319 @@
+package com.markus.parkingapp.api;
+
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+import com.markus.parkingapp.occupancy.OccupancySnapshot;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Minimal JSON encoding of the model and decoding of flat request objects, so the API
+ * needs no external library.
+ * <p>
+ * Requests are flat objects whose values are strings, numbers, booleans or null; nested
+ * objects and arrays are refused. Values are returned as their text, numbers and booleans
+ * unquoted, and converted by the caller.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Parses a flat JSON object.
+     *
+     * @param text The JSON text.
+     * @return The values by name; null values are left out.
+     * @throws IllegalArgumentException If the text is not a flat JSON object.
+     */
+    static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> values = parser.object();
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) {
+            throw parser.error("Unexpected content after the object");
+        }
+        return values;
+    }
+
+    /**
+     * Reads a required value, converting it with the given function.
+     *
+     * @throws IllegalArgumentException If the value is missing or cannot be converted.
+     */
+    static <T> T required(Map<String, String> values, String name, Function<String, T> converter) {
+        String value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field '" + name + "'.");
+        }
+        try {
+            return converter.apply(value);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid value for field '" + name + "': " + value);
+        }
+    }
+
+    static String customer(Customer customer) {
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"id\":").append(customer.getId());
+        json.append(",\"name\":");
+        string(json, customer.getName());
+        json.append(",\"phoneNumber\":");
+        string(json, customer.getPhoneNumber());
+        if (customer.getVehicle() != null) {
+            json.append(",\"vehicle\":{\"plateNumber\":");
+            string(json, customer.getVehicle().getPlateNumber());
+            json.append(",\"type\":");
+            string(json, customer.getVehicle().getType());
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    static String spot(ParkingSpot spot) {
+        return appendSpot(new StringBuilder(64), spot).toString();
+    }
+
+    static String spots(List<ParkingSpot> spots) {
+        return array(spots, 64, Json::appendSpot);
+    }
+
+    static String reservation(Reservation reservation) {
+        return appendReservation(new StringBuilder(192), reservation).toString();
+    }
+
+    static String reservations(List<Reservation> reservations) {
+        return array(reservations, 192, Json::appendReservation);
+    }
+
+    static String occupancy(OccupancySnapshot snapshot) {
+        int[] areaCodes = snapshot.getAreaCodes();
+        StringBuilder json = new StringBuilder(96 + areaCodes.length * 64);
+        json.append("{\"version\":").append(snapshot.getVersion())
+                .append(",\"spots\":").append(snapshot.size())
+                .append(",\"available\":").append(snapshot.getAvailableCount())
+                .append(",\"areas\":[");
+        for (int i = 0; i < areaCodes.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"areaCode\":").append(areaCodes[i])
+                    .append(",\"spots\":").append(snapshot.getSpotCount(areaCodes[i]))
+                    .append(",\"available\":").append(snapshot.getAvailableCount(areaCodes[i]))
+                    .append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    static String error(String message) {
+        StringBuilder json = new StringBuilder(64).append("{\"error\":");
+        string(json, message);
+        return json.append('}').toString();
+    }
+
+    private static StringBuilder appendSpot(StringBuilder json, ParkingSpot spot) {
+        return json.append("{\"spotNumber\":").append(spot.getSpotNumber())
+                .append(",\"areaCode\":").append(spot.getAreaCode())
+                .append(",\"occupied\":").append(spot.isOccupied())
+                .append('}');
+    }
+
+    private static StringBuilder appendReservation(StringBuilder json, Reservation reservation) {
+        json.append("{\"id\":");
+        string(json, reservation.getReservationId());
+        json.append(",\"spotNumber\":").append(reservation.getParkingSpot().getSpotNumber())
+                .append(",\"areaCode\":").append(reservation.getParkingSpot().getAreaCode())
+                .append(",\"customerId\":").append(reservation.getCustomer().getId())
+                .append(",\"startTime\":\"").append(reservation.getStartTime())
+                .append("\",\"endTime\":\"").append(reservation.getEndTime())
+                .append("\",\"status\":\"").append(reservation.getStatus())
+                .append("\"}");
+        return json;
+    }
+
+    private interface Appender<T> {
+        StringBuilder append(StringBuilder json, T value);
+    }
+
+    private static <T> String array(List<T> values, int bytesPerValue, Appender<T> appender) {
+        StringBuilder json = new StringBuilder(2 + values.size() * bytesPerValue).append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appender.append(json, values.get(i));
+        }
+        return json.append(']').toString();
+    }
+
+    private static void string(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Recursive-descent parser for a single flat object.
+     */
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> object() {
+            skipWhitespace();
+            expect('{');
+            Map<String, String> values = new HashMap<>();
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return values;
+            }
+            while (true) {
+                skipWhitespace();
+                String name = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                String value = value();
+                if (value != null) {
+                    values.put(name, value);
+                }
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return values;
+                }
+            }
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw error("Nested objects and arrays are not supported");
+            }
+            int start = pos;
+            while (pos < text.length() && "{}[],: \t\r\n\"".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || isNumber(literal)) {
+                return literal;
+            }
+            throw error("Invalid value '" + literal + "'");
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (pos >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) {
+                            throw error("Invalid unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid unicode escape");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw error("Invalid escape '\\" + escaped + "'");
+                }
+            }
+        }
+
+        private static boolean isNumber(String literal) {
+            if (literal.isEmpty()) {
+                return false;
+            }
+            try {
+                Double.parseDouble(literal);
+                return Character.isDigit(literal.charAt(literal.length() - 1));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            if (pos >= text.length()) {
+                throw error("Unexpected end of input");
+            }
+            return text.charAt(pos);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSON at position " + pos + ": " + message + ".");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.markus.parkingapp.api;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test for the HTTP API: a number of client threads send requests back to back for a
+ * while and the throughput and latency are reported. The target is 10,000 requests per
+ * second on a laptop, with the server and the load generator on the same machine.
+ * <p>
+ * Nine in ten requests look up a spot; the rest reserve a random spot and, if that
+ * succeeded, vacate it again, so the write path and its conflicts are exercised too.
+ * <p>
+ * Usage: {@code LoadGenerator <base-url> [threads] [seconds] [spots]}, e.g.
+ * {@code LoadGenerator http://localhost:8080 64 30 10}. A customer is registered first.
+ */
+public class LoadGenerator {
+
+    private static final Pattern ID_FIELD = Pattern.compile("\"id\":\"?(\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: LoadGenerator <base-url> [threads] [seconds] [spots]");
+            return;
+        }
+        String baseUrl = args[0].replaceAll("/+$", "");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int spots = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        String customer = client.send(post(baseUrl + "/customers",
+                        "{\"name\":\"Load Test\",\"phoneNumber\":\"0701234567\",\"plateNumber\":\"LOAD001\",\"vehicleType\":\"Car\"}"),
+                HttpResponse.BodyHandlers.ofString()).body();
+        String customerId = extractId(customer);
+        if (customerId == null) {
+            System.err.println("Cannot register the load test customer: " + customer);
+            return;
+        }
+
+        // Status counts by hundreds (2xx, 4xx, 5xx) and errors, plus per-thread latency samples
+        AtomicLongArray statusCounts = new AtomicLongArray(6);
+        long[][] latencies = new long[threads][];
+        int[] latencyCounts = new int[threads];
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                long[] samples = new long[1 << 16];
+                int count = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int spot = 1 + random.nextInt(spots);
+                    boolean write = random.nextInt(10) == 0;
+                    HttpRequest request = write
+                            ? post(baseUrl + "/reservations", "{\"spotNumber\":" + spot + ",\"customerId\":" + customerId + ",\"hours\":1}")
+                            : HttpRequest.newBuilder(URI.create(baseUrl + "/spots/" + spot)).build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        samples[count++ & (samples.length - 1)] = System.nanoTime() - start;
+                        statusCounts.incrementAndGet(response.statusCode() / 100);
+                        String reservationId = write && response.statusCode() == 201 ? extractId(response.body()) : null;
+                        if (reservationId != null) {
+                            start = System.nanoTime();
+                            HttpResponse<String> vacated = client.send(
+                                    HttpRequest.newBuilder(URI.create(baseUrl + "/reservations/" + reservationId)).DELETE().build(),
+                                    HttpResponse.BodyHandlers.ofString());
+                            samples[count++ & (samples.length - 1)] = System.nanoTime() - start;
+                            statusCounts.incrementAndGet(vacated.statusCode() / 100);
+                        }
+                    } catch (Exception e) {
+                        statusCounts.incrementAndGet(0);
+                    }
+                }
+                latencies[worker] = samples;
+                latencyCounts[worker] = Math.min(count, samples.length);
+            }, "load-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long total = 0;
+        for (int i = 0; i < statusCounts.length(); i++) {
+            total += statusCounts.get(i);
+        }
+        long[] all = new long[Arrays.stream(latencyCounts).sum()];
+        int offset = 0;
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, offset, latencyCounts[t]);
+            offset += latencyCounts[t];
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%d requests in %d s with %d threads: %.0f req/s%n", total, seconds, threads, (double) total / seconds);
+        System.out.printf("2xx: %d, 4xx: %d, 5xx: %d, errors: %d%n",
+                statusCounts.get(2), statusCounts.get(4), statusCounts.get(5), statusCounts.get(0));
+        if (all.length > 0) {
+            System.out.printf("Latency p50: %.2f ms, p99: %.2f ms, max: %.2f ms%n",
+                    percentile(all, 0.50), percentile(all, 0.99), all[all.length - 1] / 1e6);
+        }
+    }
+
+    private static HttpRequest post(String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private static String extractId(String json) {
+        Matcher matcher = ID_FIELD.matcher(json);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1e6;
+    }
+}
@@ -0,0 +1,370 @@
+package com.markus.parkingapp.api;
+
+import com.markus.parkingapp.ParkingService;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+import com.markus.parkingapp.model.Vehicle;
+import com.markus.parkingapp.occupancy.OccupancySnapshot;
+import com.markus.parkingapp.report.OccupancyReport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * HTTP/JSON front-end for a {@link ParkingService}, built on the JDK's HTTP server.
+ * <p>
+ * The server's dispatcher thread accepts connections and reads requests without blocking,
+ * and hands each request to its own virtual thread when the runtime supports them (Java 21
+ * and later); on older runtimes a fixed pool of platform threads is used instead. Handlers
+ * may block on the DAOs without holding up other requests.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *     <li>{@code POST /customers} with {@code name}, {@code phoneNumber}, {@code plateNumber} and {@code vehicleType}</li>
+ *     <li>{@code GET /customers/{id}}, and {@code GET /customers?plate=} or {@code ?phone=} to look a customer up</li>
+ *     <li>{@code GET /spots}, optionally filtered with {@code ?area=} and {@code ?available=true}</li>
+ *     <li>{@code GET /spots/{spotNumber}}</li>
+ *     <li>{@code GET /occupancy} returns the available spots in total and per area. The response
+ *     carries the snapshot version as its ETag, so displays polling with {@code If-None-Match}
+ *     get an empty 304 until something changes.</li>
+ *     <li>{@code DELETE /spots/{spotNumber}/reservation} vacates the spot</li>
+ *     <li>{@code POST /reservations} with {@code spotNumber}, {@code customerId}, {@code hours} and an optional ISO {@code startTime}</li>
+ *     <li>{@code GET /reservations/{id}}</li>
+ *     <li>{@code DELETE /reservations/{id}} vacates the reservation's spot, or cancels a booking</li>
+ *     <li>{@code GET /reports/occupancy} returns the utilisation per area and hour of the day, the average
+ *     dwell time and the peak hour over all reservations, as JSON or, with {@code ?format=csv}, as CSV</li>
+ *     <li>{@code GET /reports/reservations} streams all reservations, completed ones included, as CSV
+ *     that the bulk importer reads back</li>
+ * </ul>
+ * Invalid input is answered with 400, unknown resources with 404 and conflicts, such as an
+ * occupied spot, with 409. Error bodies are {@code {"error": "..."}}.
+ */
+public class ParkingHttpServer implements Closeable {
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final ParkingService parkingService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server bound to the given address. Call {@link #start()} to accept requests.
+     *
+     * @param parkingService The service performing the parking operations.
+     * @param address        The address to listen on; port 0 picks a free port.
+     */
+    public ParkingHttpServer(ParkingService parkingService, InetSocketAddress address) {
+        this.parkingService = parkingService;
+        // The JDK server writes the headers and the body of a response separately, which with
+        // Nagle's algorithm waits out the client's delayed ACK (~40 ms) on every keep-alive request.
+        // Read once when the server classes initialize, so it must be set before the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        try {
+            this.server = HttpServer.create(address, 1024);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen on " + address, e);
+        }
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/customers", this::handleCustomers);
+        server.createContext("/spots", this::handleSpots);
+        server.createContext("/reservations", this::handleReservations);
+        server.createContext("/occupancy", this::handleOccupancy);
+        server.createContext("/reports", this::handleReports);
+    }
+
+    /**
+     * Creates an executor starting a virtual thread per request, or a pool of platform
+     * threads on runtimes without virtual threads. Looked up reflectively so the
+     * application still builds and runs on Java 17.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(16, 4 * Runtime.getRuntime().availableProcessors()), task -> {
+                Thread thread = new Thread(task, "http-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the address the server listens on, with the actual port if port 0 was requested.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests, giving running ones a second to finish.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void handleCustomers(HttpExchange exchange) {
+        handle(exchange, path -> {
+            String method = exchange.getRequestMethod();
+            if (path.length == 1 && method.equals("POST")) {
+                Map<String, String> body = readBody(exchange);
+                Vehicle vehicle = new Vehicle(Json.required(body, "plateNumber", String::valueOf),
+                        Json.required(body, "vehicleType", String::valueOf));
+                Customer customer = new Customer(Json.required(body, "name", String::valueOf),
+                        Json.required(body, "phoneNumber", String::valueOf), vehicle);
+                send(exchange, 201, Json.customer(parkingService.registerCustomer(customer)));
+            } else if (path.length == 1 && method.equals("GET")) {
+                Map<String, String> query = parseQuery(exchange.getRequestURI());
+                if (query.containsKey("plate")) {
+                    sendFound(exchange, parkingService.findCustomerByPlate(query.get("plate")).map(Json::customer));
+                } else if (query.containsKey("phone")) {
+                    sendFound(exchange, parkingService.findCustomerByPhone(query.get("phone")).map(Json::customer));
+                } else {
+                    throw new IllegalArgumentException("Query parameter plate or phone is required.");
+                }
+            } else if (path.length == 2 && method.equals("GET")) {
+                sendFound(exchange, parkingService.findCustomer(parseInt(path[1], "customer ID")).map(Json::customer));
+            } else {
+                sendUnsupported(exchange, path.length <= 2);
+            }
+        });
+    }
+
+    private void handleSpots(HttpExchange exchange) {
+        handle(exchange, path -> {
+            String method = exchange.getRequestMethod();
+            if (path.length == 1 && method.equals("GET")) {
+                Map<String, String> query = parseQuery(exchange.getRequestURI());
+                boolean availableOnly = Boolean.parseBoolean(query.get("available"));
+                List<ParkingSpot> spots;
+                if (query.containsKey("area")) {
+                    spots = parkingService.findSpotsByArea(parseInt(query.get("area"), "area code"));
+                    if (availableOnly) {
+                        spots = spots.stream().filter(spot -> !spot.isOccupied()).collect(Collectors.toList());
+                    }
+                } else {
+                    spots = availableOnly ? parkingService.findAvailableSpots() : parkingService.findAllSpots();
+                }
+                send(exchange, 200, Json.spots(spots));
+            } else if (path.length == 2 && method.equals("GET")) {
+                sendFound(exchange, parkingService.findSpot(parseInt(path[1], "spot ID")).map(Json::spot));
+            } else if (path.length == 3 && path[2].equals("reservation") && method.equals("DELETE")) {
+                send(exchange, 200, Json.reservation(parkingService.vacateBySpotNumber(parseInt(path[1], "spot ID"))));
+            } else {
+                sendUnsupported(exchange, path.length <= 2 || path.length == 3 && path[2].equals("reservation"));
+            }
+        });
+    }
+
+    private void handleReservations(HttpExchange exchange) {
+        handle(exchange, path -> {
+            String method = exchange.getRequestMethod();
+            if (path.length == 1 && method.equals("POST")) {
+                Map<String, String> body = readBody(exchange);
+                int spotNumber = Json.required(body, "spotNumber", Integer::valueOf);
+                int customerId = Json.required(body, "customerId", Integer::valueOf);
+                int hours = Json.required(body, "hours", Integer::valueOf);
+                Reservation reservation = body.containsKey("startTime")
+                        ? parkingService.bookInAdvance(spotNumber, customerId, parseTime(body.get("startTime")), hours)
+                        : parkingService.reserve(spotNumber, customerId, hours);
+                send(exchange, 201, Json.reservation(reservation));
+            } else if (path.length == 2 && method.equals("GET")) {
+                sendFound(exchange, parkingService.findReservation(path[1]).map(Json::reservation));
+            } else if (path.length == 2 && method.equals("DELETE")) {
+                if (parkingService.findReservation(path[1]).isEmpty()) {
+                    sendFound(exchange, Optional.empty());
+                } else {
+                    send(exchange, 200, Json.reservation(parkingService.vacate(path[1])));
+                }
+            } else {
+                sendUnsupported(exchange, path.length <= 2);
+            }
+        });
+    }
+
+    private void handleOccupancy(HttpExchange exchange) {
+        handle(exchange, path -> {
+            if (path.length != 1) {
+                sendUnsupported(exchange, false);
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendUnsupported(exchange, true);
+                return;
+            }
+            OccupancySnapshot snapshot = parkingService.getOccupancy();
+            String etag = "\"" + snapshot.getVersion() + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            send(exchange, 200, Json.occupancy(snapshot));
+        });
+    }
+
+    private void handleReports(HttpExchange exchange) {
+        handle(exchange, path -> {
+            boolean knownPath = path.length == 2 && (path[1].equals("occupancy") || path[1].equals("reservations"));
+            if (!knownPath || !exchange.getRequestMethod().equals("GET")) {
+                sendUnsupported(exchange, knownPath);
+            } else if (path[1].equals("occupancy")) {
+                String format = parseQuery(exchange.getRequestURI()).getOrDefault("format", "json");
+                if (!format.equals("json") && !format.equals("csv")) {
+                    throw new IllegalArgumentException("Invalid format: " + format);
+                }
+                OccupancyReport report = parkingService.buildOccupancyReport();
+                exchange.getResponseHeaders().set("Content-Type",
+                        format.equals("csv") ? "text/csv; charset=utf-8" : "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(200, 0); // Chunked
+                try (Writer writer = responseWriter(exchange)) {
+                    if (format.equals("csv")) {
+                        report.writeCsv(writer);
+                    } else {
+                        report.writeJson(writer);
+                    }
+                }
+            } else {
+                // Streamed as it is read, so the export never holds the history in memory
+                exchange.getResponseHeaders().set("Content-Type", "text/csv; charset=utf-8");
+                exchange.sendResponseHeaders(200, 0); // Chunked
+                try (Writer writer = responseWriter(exchange)) {
+                    parkingService.exportReservations(writer);
+                }
+            }
+        });
+    }
+
+    private static Writer responseWriter(HttpExchange exchange) {
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private interface Handler {
+        void handle(String[] path) throws IOException;
+    }
+
+    /**
+     * Runs a handler with the request path split into segments, answering failures with an error response.
+     */
+    private static void handle(HttpExchange exchange, Handler handler) {
+        try (exchange) {
+            try {
+                String path = exchange.getRequestURI().getPath();
+                String[] segments = path.replaceAll("^/+|/+$", "").split("/+");
+                handler.handle(segments);
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, Json.error(e.getMessage()));
+            } catch (IllegalStateException e) {
+                send(exchange, 409, Json.error(e.getMessage()));
+            } catch (RuntimeException e) {
+                System.err.println("Error handling " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + e);
+                send(exchange, 500, Json.error("Internal server error."));
+            }
+        } catch (IOException e) {
+            // The client went away; there is nobody left to answer
+        }
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body is larger than " + MAX_BODY_BYTES + " bytes.");
+            }
+            return Json.parseObject(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Splits the raw query first and then decodes each key and value, so an encoded
+     * {@code &} or {@code =} stays part of its value and {@code +} decodes to a space.
+     */
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> query = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return query;
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid start time: " + value);
+        }
+    }
+
+    private static void sendFound(HttpExchange exchange, Optional<String> json) throws IOException {
+        if (json.isPresent()) {
+            send(exchange, 200, json.get());
+        } else {
+            send(exchange, 404, Json.error("Not found."));
+        }
+    }
+
+    private static void sendUnsupported(HttpExchange exchange, boolean knownPath) throws IOException {
+        if (knownPath) {
+            send(exchange, 405, Json.error("Method " + exchange.getRequestMethod() + " is not allowed."));
+        } else {
+            send(exchange, 404, Json.error("Not found."));
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -1,50 +1,56 @@
 package com.markus.parkingapp.controller;
 
-import se.lexicon.dao.CustomerDao;
-import se.lexicon.dao.ParkingSpotDao;
-import se.lexicon.dao.ReservationDao;
-import se.lexicon.dao.impl.CustomerDaoImpl;
-import se.lexicon.dao.impl.ParkingSpotDaoImpl;
-import se.lexicon.dao.impl.ReservationDaoImpl;
-import se.lexicon.model.Customer;
-import se.lexicon.model.ParkingSpot;
-import se.lexicon.model.Reservation;
-import se.lexicon.model.Vehicle;
-import se.lexicon.schedule.ReservationScheduler;
-import se.lexicon.view.ConsoleUI;
-
+import com.markus.parkingapp.ParkingService;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+import com.markus.parkingapp.report.OccupancyReport;
+import com.markus.parkingapp.view.ConsoleUI;
+import com.markus.parkingapp.view.SpotFilter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 /**
- * The main controller for managing parking-related operations in the application.
- * Handles user input, interacts with DAOs, and coordinates actions across the model and view layers.
+ * The console controller of the application.
+ * Handles user input and shows the results of the operations of a {@link ParkingService}.
  */
 public class ParkingController {
 
+    private static final int PAGE_SIZE = 50; // Spots per page when listing a large lot
+
     private final ConsoleUI consoleUI;
-    private final CustomerDao customerDao;
-    private final ParkingSpotDao parkingSpotDao;
-    private final ReservationDao reservationDao;
+    private final ParkingService parkingService;
 
     /**
-     * Initializes the controller, DAOs, and scheduler.
-     * Automatically creates 10 parking spots for a specific area.
+     * Initializes the controller with its own parking service.
      *
      * @param consoleUI The console-based user interface.
+     * @see ParkingService#ParkingService()
      */
     public ParkingController(ConsoleUI consoleUI) {
-        this.consoleUI = consoleUI;
-        this.customerDao = CustomerDaoImpl.getInstance(); // Singleton instance for Customer DAO
-        this.parkingSpotDao = new ParkingSpotDaoImpl();   // Instance of ParkingSpot DAO
-        this.reservationDao = new ReservationDaoImpl();   // Instance of Reservation DAO
-
-        // Automatically create parking spots for the specified area code
-        initializeParkingSpots(101);
+        this(consoleUI, new ParkingService());
+    }
 
-        // Start the scheduler for checking and updating reservations
-        ReservationScheduler scheduler = new ReservationScheduler(reservationDao, parkingSpotDao);
-        scheduler.startScheduler();
+    /**
+     * Initializes the controller with a parking service that may be shared with other front-ends.
+     *
+     * @param consoleUI      The console-based user interface.
+     * @param parkingService The service performing the parking operations.
+     */
+    public ParkingController(ConsoleUI consoleUI, ParkingService parkingService) {
+        this.consoleUI = consoleUI;
+        this.parkingService = parkingService;
     }
 
     /**
@@ -57,17 +63,28 @@ public class ParkingController {
             consoleUI.displayMenu(); // Display the main menu
             String choice = consoleUI.getInput("Choose an option: "); // Get user choice
 
-            switch (choice) {
-                case "1" ->
-                        registerCustomer();          // Register a new customer
-                case "2" -> displayParkingSpots();       // Display all parking spots
-                case "3" -> reserveParkingSpot();        // Reserve a parking spot
-                case "4" -> vacateParkingSpot();         // Vacate a parking spot
-                case "5" -> {                            // Exit the application
-                    consoleUI.displayMessage("Exiting the application. Goodbye!");
-                    running = false;
+            try {
+                switch (choice) {
+                    case "1" -> registerCustomer();          // Register a new customer
+                    case "2" -> displayParkingSpots();       // Display all parking spots
+                    case "3" -> reserveParkingSpot();        // Reserve a parking spot
+                    case "4" -> vacateParkingSpot();         // Vacate a parking spot by reservation ID
+                    case "5" -> vacateBySpotNumber();        // Vacate a parking spot by spot number
+                    case "6" -> bookInAdvance();             // Book a parking spot for a later time
+                    case "7" -> reserveMultipleSpots();      // Reserve several parking spots at once
+                    case "8" -> vacateMultipleSpots();       // Vacate several parking spots at once
+                    case "9" -> dumpMetrics();               // Write the metrics to a file
+                    case "10" -> writeOccupancyReport();     // Write the occupancy report to a file
+                    case "11" -> {                           // Exit the application
+                        consoleUI.displayMessage("Exiting the application. Goodbye!");
+                        parkingService.close(); // Save a final snapshot
+                        running = false;
+                    }
+                    default -> consoleUI.displayMessage("Invalid option. Please try again.");
                 }
-                default -> consoleUI.displayMessage("Invalid option. Please try again.");
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // Also covers NumberFormatException, thrown for non-numeric input
+                consoleUI.displayErrorMessage("Error: " + e.getMessage());
             }
         }
     }
@@ -77,26 +94,59 @@ public class ParkingController {
      */
     private void registerCustomer() {
         Customer customerInfo = consoleUI.getCustomerInfoWithVehicle();
-        Customer savedCustomer = customerDao.create(customerInfo);      // Save the customer
+        Customer savedCustomer = parkingService.registerCustomer(customerInfo);      // Save the customer
         consoleUI.displaySuccessMessage("Customer registered successfully with ID: " + savedCustomer.getId());
     }
 
     /**
-     * Displays all parking spots using the view.
+     * Displays the parking spots using the view, from the latest occupancy snapshot.
+     * A lot that fits on one page is shown at once; larger lots are shown a page at a time
+     * and can be filtered by area and status.
      */
     private void displayParkingSpots() {
-        List<ParkingSpot> parkingSpots = parkingSpotDao.findAll(); // Fetch all parking spots
-        consoleUI.displayParkingSpots(parkingSpots);              // Display the parking spots in the view
+        SpotFilter filter = SpotFilter.ALL;
+        int page = 0;
+        while (true) {
+            int matched = consoleUI.displayOccupancy(parkingService.getOccupancy(), filter, page, PAGE_SIZE);
+            int pages = Math.max(1, (matched + PAGE_SIZE - 1) / PAGE_SIZE);
+            if (pages == 1 && filter == SpotFilter.ALL) {
+                return;
+            }
+            page = Math.min(page, pages - 1); // The filter may now match fewer spots
+
+            switch (consoleUI.getInput("[n]ext page, [p]revious page, [f]ilter, [q]uit: ").toLowerCase()) {
+                case "n" -> page = Math.min(page + 1, pages - 1);
+                case "p" -> page = Math.max(page - 1, 0);
+                case "f" -> {
+                    filter = promptSpotFilter();
+                    page = 0;
+                }
+                case "q" -> {
+                    return;
+                }
+                default -> consoleUI.displayMessage("Invalid option. Please try again.");
+            }
+        }
     }
 
     /**
-     * Initializes the parking spots for a specific area code.
-     *
-     * @param areaCode The area code to assign to the parking spots.
+     * Asks for the area and status of the spots to display.
      */
-    private void initializeParkingSpots(int areaCode) {
-        for (int i = 1; i <= 10; i++) {
-            parkingSpotDao.create(new ParkingSpot(i, areaCode)); // Create parking spots
+    private SpotFilter promptSpotFilter() {
+        String area = consoleUI.getInput("Enter the Area Code to show, or 'all': ");
+        Integer areaCode = area.equalsIgnoreCase("all") ? null : Integer.valueOf(area);
+        Boolean occupied = null;
+        while (true) {
+            String status = consoleUI.getInput("Show which spots? (all/free/occupied): ").toLowerCase();
+            if (status.equals("free")) {
+                occupied = false;
+            } else if (status.equals("occupied")) {
+                occupied = true;
+            } else if (!status.equals("all")) {
+                consoleUI.displayErrorMessage("Error: Enter all, free or occupied.");
+                continue;
+            }
+            return new SpotFilter(areaCode, occupied);
         }
     }
 
@@ -104,54 +154,207 @@ public class ParkingController {
      * Handles reserving a parking spot for a customer.
      */
     private void reserveParkingSpot() {
-        List<ParkingSpot> availableSpots = parkingSpotDao.findAvailableSpots();
-
         // If no spots are available, exit early
-        if (availableSpots.isEmpty()) {
+        if (!parkingService.hasAvailableSpots()) {
             consoleUI.displayErrorMessage("No available parking spots to reserve.");
             return;
         }
 
-        consoleUI.displayParkingSpots(availableSpots);
+        consoleUI.displayParkingSpots(parkingService.findAvailableSpots());
 
         ParkingSpot selectedSpot = null;
         while (selectedSpot == null) {
-            //try {
-                int spotNumber = Integer.parseInt(consoleUI.getInput("Enter the Spot ID to reserve: "));
-
-                // Validate if the spot exists
-                Optional<ParkingSpot> selectedSpotOpt = parkingSpotDao.findBySpotNumber(spotNumber);
-                if (selectedSpotOpt.isEmpty()) {
-                    consoleUI.displayErrorMessage("Error: The entered parking spot does not exist. Try again.");
-                    continue;
-                }
+            int spotNumber = Integer.parseInt(consoleUI.getInput("Enter the Spot ID to reserve: "));
 
-                // Check if the spot is actually available
-                if (!availableSpots.contains(selectedSpotOpt.get())) {
-                    consoleUI.displayErrorMessage("Error: The selected parking spot is already occupied. Try again.");
-                    continue;
-                }
+            // Validate if the spot exists
+            Optional<ParkingSpot> selectedSpotOpt = parkingService.findSpot(spotNumber);
+            if (selectedSpotOpt.isEmpty()) {
+                consoleUI.displayErrorMessage("Error: The entered parking spot does not exist. Try again.");
+                continue;
+            }
 
-                selectedSpot = selectedSpotOpt.get(); // Valid spot found
-            //} catch (NumberFormatException e) {
-            //    consoleUI.displayErrorMessage("Invalid input. Please enter a valid numeric spot number.");
-            //}
+            // Check if the spot is actually available
+            if (selectedSpotOpt.get().isOccupied()) {
+                consoleUI.displayErrorMessage("Error: The selected parking spot is already occupied. Try again.");
+                continue;
+            }
+
+            selectedSpot = selectedSpotOpt.get(); // Valid spot found
         }
 
         // Proceed to customer validation
-        int customerId;
+        Customer customer = promptCustomer();
+        int hours = promptHours();
+
+        // Another client may have taken the spot since it was selected, in which case the service refuses it
+        Reservation reservation = parkingService.reserve(selectedSpot.getSpotNumber(), customer.getId(), hours);
+
+        // Provide success feedback
+        consoleUI.displaySuccessMessage("Reservation created successfully!");
+        consoleUI.displaySuccessMessage(reservation.toString());
+    }
+
+    /**
+     * Handles reserving several parking spots for one customer in a single batch.
+     *
+     * @see ParkingService#reserveAll
+     */
+    private void reserveMultipleSpots() {
+        List<Integer> spotNumbers = new ArrayList<>();
+        for (String id : parseIds(consoleUI.getInput("Enter the Spot IDs to reserve, separated by commas (e.g. 1,2,3): "))) {
+            spotNumbers.add(Integer.parseInt(id));
+        }
+        if (spotNumbers.isEmpty()) {
+            consoleUI.displayErrorMessage("Error: No spot IDs entered.");
+            return;
+        }
+        boolean allOrNothing = consoleUI.getInput("Reserve all spots or none? (y/n): ").equalsIgnoreCase("y");
+        Customer customer = promptCustomer();
+        int hours = promptHours();
+
+        ParkingService.BatchResult<Integer> result = parkingService.reserveAll(spotNumbers, customer.getId(), hours, allOrNothing);
+        if (allOrNothing && !result.getFailed().isEmpty()) {
+            consoleUI.displayErrorMessage("Error: Parking spot ID " + result.getFailed().get(0) + " is not available. No spots were reserved.");
+            return;
+        }
+        if (!result.getReservations().isEmpty()) {
+            consoleUI.displaySuccessMessage(result.getReservations().size() + " reservations created successfully!");
+            for (Reservation reservation : result.getReservations()) {
+                consoleUI.displaySuccessMessage(reservation.toString());
+            }
+        }
+        if (!result.getFailed().isEmpty()) {
+            consoleUI.displayErrorMessage("Error: Parking spot IDs " + result.getFailed() + " are not available and were not reserved.");
+        }
+    }
+
+    /**
+     * Handles vacating the parking spots of several reservations in a single batch.
+     *
+     * @see ParkingService#vacateAll
+     */
+    private void vacateMultipleSpots() {
+        List<String> reservationIds = parseIds(consoleUI.getInput("Enter the Reservation IDs to vacate, separated by commas: "));
+
+        ParkingService.BatchResult<String> result = parkingService.vacateAll(reservationIds);
+        if (!result.getReservations().isEmpty()) {
+            consoleUI.displaySuccessMessage(result.getReservations().size() + " reservations have been marked as completed.");
+        }
+        if (!result.getFailed().isEmpty()) {
+            consoleUI.displayErrorMessage("Error: Reservation IDs " + result.getFailed() + " do not exist or were already completed.");
+        }
+    }
+
+    /**
+     * Writes the service's counters and latency percentiles to a file chosen by the user.
+     */
+    private void dumpMetrics() {
+        String file = consoleUI.getInput("Enter the file to write the metrics to (e.g. metrics.txt): ");
+        try {
+            String path = parkingService.getMetrics().dump(file);
+            consoleUI.displaySuccessMessage("Metrics have been written to " + path + ".");
+        } catch (UncheckedIOException e) {
+            consoleUI.displayErrorMessage("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the occupancy report to a file chosen by the user, as JSON if the file name ends
+     * with {@code .json} and as CSV otherwise.
+     */
+    private void writeOccupancyReport() {
+        String file = consoleUI.getInput("Enter the file to write the report to (e.g. occupancy.csv): ");
+        OccupancyReport report = parkingService.buildOccupancyReport();
+        Path path = Path.of(file).toAbsolutePath();
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (file.toLowerCase(Locale.ROOT).endsWith(".json")) {
+                report.writeJson(writer);
+            } else {
+                report.writeCsv(writer);
+            }
+            consoleUI.displaySuccessMessage("The occupancy report of " + report.getAreas().size()
+                    + " area(s) has been written to " + path + ".");
+        } catch (IOException | UncheckedIOException e) {
+            consoleUI.displayErrorMessage("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Splits a comma-separated list of IDs, ignoring blank entries.
+     */
+    private static List<String> parseIds(String input) {
+        List<String> ids = new ArrayList<>();
+        for (String part : input.split(",")) {
+            if (!part.isBlank()) {
+                ids.add(part.trim());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Handles booking a parking spot in an area for a time window in the future.
+     * The reservation claims its spot when the window starts.
+     */
+    private void bookInAdvance() {
+        int areaCode = Integer.parseInt(consoleUI.getInput("Enter the Area Code: "));
+
+        LocalDateTime startTime = null;
+        while (startTime == null) {
+            try {
+                startTime = LocalDateTime.parse(consoleUI.getInput("Enter the start time (e.g. 2025-01-31T14:30): "));
+            } catch (DateTimeParseException e) {
+                consoleUI.displayErrorMessage("Error: Invalid date and time. Try again.");
+            }
+        }
+        int hours = promptHours();
+
+        // Only spots without an overlapping booking are offered
+        List<ParkingSpot> freeSpots = parkingService.findFreeSpots(areaCode, startTime, hours);
+        if (freeSpots.isEmpty()) {
+            consoleUI.displayErrorMessage("No parking spots in area " + areaCode + " are free for that time.");
+            return;
+        }
+        consoleUI.displayParkingSpots(freeSpots);
+
+        ParkingSpot selectedSpot = null;
+        while (selectedSpot == null) {
+            int spotNumber = Integer.parseInt(consoleUI.getInput("Enter the Spot ID to book: "));
+            selectedSpot = freeSpots.stream()
+                    .filter(spot -> spot.getSpotNumber() == spotNumber)
+                    .findFirst()
+                    .orElse(null);
+            if (selectedSpot == null) {
+                consoleUI.displayErrorMessage("Error: The entered parking spot is not free for that time. Try again.");
+            }
+        }
+
+        Customer customer = promptCustomer();
+        Reservation reservation = parkingService.bookInAdvance(selectedSpot.getSpotNumber(), customer.getId(), startTime, hours);
+
+        consoleUI.displaySuccessMessage("Booking created successfully!");
+        consoleUI.displaySuccessMessage(reservation.toString());
+    }
+
+    /**
+     * Asks for a customer ID until an existing customer is entered.
+     */
+    private Customer promptCustomer() {
         Optional<Customer> customerOpt;
         do {
-            customerId = Integer.parseInt(consoleUI.getInput("Enter the Customer ID: "));
-            customerOpt = customerDao.findById(customerId);
+            int customerId = Integer.parseInt(consoleUI.getInput("Enter the Customer ID: "));
+            customerOpt = parkingService.findCustomer(customerId);
             if (customerOpt.isEmpty()) {
                 consoleUI.displayErrorMessage("Error: Invalid customer ID. Try again.");
             }
         } while (customerOpt.isEmpty());
+        return customerOpt.get();
+    }
 
-        // Valid customer retrieved
-        Customer customer = customerOpt.get();
-
+    /**
+     * Asks for the duration of a reservation until a positive number of hours is entered.
+     */
+    private int promptHours() {
         int hours;
         do {
             hours = Integer.parseInt(consoleUI.getInput("Enter the number of hours for the reservation: "));
@@ -159,24 +362,9 @@ public class ParkingController {
                 consoleUI.displayErrorMessage("Error: Hours must be greater than 0.");
             }
         } while (hours <= 0);
-
-        // Create a new reservation
-        Reservation reservation = new Reservation(selectedSpot, customer, hours);
-        reservationDao.create(reservation); // Save the reservation
-
-        // Update the parking spot status to occupied
-        selectedSpot.occupy();
-        parkingSpotDao.update(selectedSpot);
-
-        // Provide success feedback
-        consoleUI.displaySuccessMessage("Reservation created successfully!");
-        consoleUI.displaySuccessMessage(reservation.toString());
+        return hours;
     }
 
-
-    /**
-     * Handles vacating a parking spot by completing its associated reservation.
-     */
     /**
      * Handles vacating a parking spot by completing its associated reservation.
      */
@@ -186,31 +374,38 @@ public class ParkingController {
 
         do {
             reservationId = consoleUI.getInput("Enter the Reservation ID to vacate: ");
-            reservationOpt = reservationDao.findById(reservationId);
+            reservationOpt = parkingService.findReservation(reservationId);
 
             if (reservationOpt.isEmpty()) {
                 consoleUI.displayErrorMessage("Error: Reservation ID " + reservationId + " does not exist. Try again.");
             }
         } while (reservationOpt.isEmpty()); // Loop until a valid reservation ID is entered
 
-        Reservation reservation = reservationOpt.get();
-        ParkingSpot parkingSpot = reservation.getParkingSpot();
+        boolean cancelled = reservationOpt.get().getStatus() == Reservation.Status.SCHEDULED;
+        displayCompleted(parkingService.vacate(reservationId), cancelled);
+    }
+
+    /**
+     * Handles vacating a parking spot looked up by its spot number.
+     */
+    private void vacateBySpotNumber() {
+        int spotNumber = Integer.parseInt(consoleUI.getInput("Enter the Spot ID to vacate: "));
+        displayCompleted(parkingService.vacateBySpotNumber(spotNumber), false);
+    }
 
-        // Ensure the parking spot is currently occupied
-        if (!parkingSpot.isOccupied()) {
-            consoleUI.displayErrorMessage("Error: Parking spot ID " + parkingSpot.getSpotNumber() + " is already vacant.");
+    /**
+     * Shows the outcome of completing a reservation.
+     *
+     * @param reservation The completed reservation.
+     * @param cancelled   Whether it was a booking that had not started yet, and so held no spot.
+     */
+    private void displayCompleted(Reservation reservation, boolean cancelled) {
+        if (cancelled) {
+            consoleUI.displaySuccessMessage("Booking ID " + reservation.getReservationId() + " has been cancelled.");
             return;
         }
-
-        // Vacate the parking spot and mark the reservation as completed
-        parkingSpot.vacate();
-        parkingSpotDao.update(parkingSpot);
-        reservation.complete();
-        reservationDao.update(reservation);
-
-        // Provide success feedback
-        consoleUI.displaySuccessMessage("Reservation ID " + reservationId + " has been marked as completed.");
-        consoleUI.displaySuccessMessage("Parking spot ID " + parkingSpot.getSpotNumber() + " has been vacated.");
+        consoleUI.displaySuccessMessage("Reservation ID " + reservation.getReservationId() + " has been marked as completed.");
+        consoleUI.displaySuccessMessage("Parking spot ID " + reservation.getParkingSpot().getSpotNumber() + " has been vacated.");
     }
 
 }
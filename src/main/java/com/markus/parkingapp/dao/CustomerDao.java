@@ -1,8 +1,9 @@
 package com.markus.parkingapp.dao;
 
 
-import se.lexicon.model.Customer;
+import com.markus.parkingapp.model.Customer;
 
+import java.util.List;
 import java.util.Optional;
 
 
@@ -10,6 +11,14 @@ public interface CustomerDao {
 
     Customer create(Customer customer);
 
+    Customer restore(Customer customer); // Store a customer under its existing ID, e.g. when loading saved data
+
     Optional<Customer> findById(int id);
 
+    Optional<Customer> findByPlate(String plateNumber); // Find the customer owning a vehicle, ignoring case, spaces and dashes
+
+    Optional<Customer> findByPhone(String phoneNumber); // Find a customer by phone number, ignoring spaces and dashes
+
+    List<Customer> findAll();
+
 }
@@ -1,9 +1,11 @@
 package com.markus.parkingapp.dao;
 
-import se.lexicon.model.ParkingSpot;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Data Access Object (DAO) interface for ParkingSpot management.
@@ -18,6 +20,34 @@ public interface ParkingSpotDao {
 
     List<ParkingSpot> findAvailableSpots(); // Retrieve all available (vacant) parking spots
 
+    Iterable<ParkingSpot> availableSpots(); // Lazily iterate available spots without building a list
+
+    int countAvailableSpots(); // Number of available (vacant) parking spots
+
+    default boolean hasAvailableSpots() { // Check whether any parking spot is vacant
+        return countAvailableSpots() > 0;
+    }
+
+    Optional<ParkingSpot> findFirstAvailableSpot(); // First vacant spot in findAll order
+
+    Optional<ParkingSpot> findNextAvailableSpot(Integer spotNumber); // First vacant spot at or after the given spot, in findAll order
+
+    default List<ParkingSpot> findByArea(int areaCode) { // Retrieve all spots in the given area, vacant or not
+        return findAll().stream().filter(spot -> spot.getAreaCode() == areaCode).collect(Collectors.toList());
+    }
+
+    List<ParkingSpot> findAvailableByArea(int areaCode); // Retrieve available spots in the given area
+
+    int countAvailableByArea(int areaCode); // Number of available spots in the given area
+
+    boolean tryOccupy(Integer spotNumber, Reservation reservation); // Atomically claim a vacant spot, false if already occupied
+
+    boolean tryVacate(Integer spotNumber, Reservation reservation); // Atomically release a spot still held by the reservation
+
+    void addOccupancyListener(ParkingSpot.OccupancyListener listener); // Be notified whenever a stored spot is occupied or vacated
+
+    void removeOccupancyListener(ParkingSpot.OccupancyListener listener); // Stop notifying a listener
+
     void update(ParkingSpot parkingSpot); // Update a parking spot's details
 
     boolean delete(Integer spotNumber); // Remove a parking spot by its spot number
@@ -1,16 +1,43 @@
 package com.markus.parkingapp.dao;
 
-import se.lexicon.model.Reservation;
+import com.markus.parkingapp.model.Reservation;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ReservationDao {
     Reservation create(Reservation reservation);          // Add a new reservation
 
     Optional<Reservation> findById(String reservationId); // Find a reservation by its ID
 
-    List<Reservation> findAll();                          // Retrieve all reservations
+    List<Reservation> findAll();                          // Retrieve all reservations, including completed ones
+
+    List<Reservation> findActive();                       // Retrieve reservations that are not completed yet, including scheduled ones
+
+    List<Reservation> findByCustomerId(Integer customerId); // Retrieve all reservations of a customer
+
+    Optional<Reservation> findActiveBySpotNumber(Integer spotNumber); // Find the active reservation holding a spot
 
     void update(Reservation reservation);
+
+    default Stream<Reservation> stream() { // Stream all reservations, including completed ones; copies them unless overridden
+        return findAll().stream();
+    }
+
+    default List<Reservation> createAll(List<Reservation> reservations) { // Add several reservations, one at a time unless overridden
+        List<Reservation> created = new ArrayList<>(reservations.size());
+        for (Reservation reservation : reservations) {
+            created.add(create(reservation));
+        }
+        return created;
+    }
+
+    default void completeAll(List<Reservation> reservations) { // Mark several reservations completed and store them
+        for (Reservation reservation : reservations) {
+            reservation.complete();
+            update(reservation);
+        }
+    }
 }
@@ -0,0 +1,180 @@
+package com.markus.parkingapp.dao.archive;
+
+import com.markus.parkingapp.dao.index.LongIndexMap;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Append-only store for completed reservations.
+ * <p>
+ * Rows are kept column by column in fixed-size chunks of primitive arrays, so appending
+ * never copies the history, and are never changed once appended. A row takes 32 bytes:
+ * the ID, the start and end time as epoch nanoseconds (UTC), and references to the
+ * parking spot and customer, which are shared with the rest of the application.
+ * The index by ID adds another 24 to 48 bytes. Reservations read from the archive are
+ * rebuilt from their row, so two reads of the same row give equal but distinct objects.
+ * <p>
+ * Appends are serialized. Reading rows by position is lock-free and sees every row appended
+ * before the size it read; lookups by ID share a read lock.
+ */
+public class ReservationArchive {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS; // 4096 rows per chunk
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * The columns of {@link #CHUNK_SIZE} consecutive rows.
+     */
+    private static final class Chunk {
+        final long[] ids = new long[CHUNK_SIZE];
+        final long[] startTimes = new long[CHUNK_SIZE]; // Epoch nanoseconds, UTC
+        final long[] endTimes = new long[CHUNK_SIZE];   // Epoch nanoseconds, UTC
+        final ParkingSpot[] parkingSpots = new ParkingSpot[CHUNK_SIZE];
+        final Customer[] customers = new Customer[CHUNK_SIZE];
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+
+    private volatile Chunk[] chunks = new Chunk[8];
+    private volatile int size; // Number of rows, written after the row itself so readers never see a missing row
+
+    private final LongIndexMap rowsById = new LongIndexMap(); // Reservation ID -> row, guarded by the lock
+
+    /**
+     * Appends a completed reservation, unless a reservation with the same ID is already archived.
+     *
+     * @param reservation The completed reservation.
+     * @return True if the reservation was appended, false if it was already archived.
+     */
+    public boolean append(Reservation reservation) {
+        if (reservation.getStatus() != Reservation.Status.COMPLETED) {
+            throw new IllegalArgumentException("Only completed reservations can be archived: " + reservation.getReservationId());
+        }
+        long id = reservation.getId();
+        writeLock.lock();
+        try {
+            if (rowsById.containsKey(id)) {
+                return false;
+            }
+
+            int row = size;
+            int chunkIndex = row >>> CHUNK_BITS;
+            Chunk[] current = chunks;
+            if (chunkIndex == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            if (current[chunkIndex] == null) {
+                current[chunkIndex] = new Chunk();
+            }
+            Chunk chunk = current[chunkIndex];
+            int i = row & CHUNK_MASK;
+            chunk.ids[i] = id;
+            chunk.startTimes[i] = toEpochNanos(reservation.getStartTime());
+            chunk.endTimes[i] = toEpochNanos(reservation.getEndTime());
+            chunk.parkingSpots[i] = reservation.getParkingSpot();
+            chunk.customers[i] = reservation.getCustomer();
+            chunks = current;
+            rowsById.put(id, row);
+            size = row + 1;
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Optional<Reservation> findById(String reservationId) {
+        int row = rowOf(reservationId);
+        return row == LongIndexMap.NO_VALUE ? Optional.empty() : Optional.of(get(row));
+    }
+
+    public boolean contains(String reservationId) {
+        return rowOf(reservationId) != LongIndexMap.NO_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the reservation at a row, in the order the rows were appended.
+     *
+     * @param row The row, between 0 and {@link #size()} - 1.
+     * @return The archived reservation.
+     */
+    public Reservation get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Archive row " + row + " out of bounds for size " + size);
+        }
+        return read(chunks, row);
+    }
+
+    /**
+     * Returns a spliterator over the rows archived so far, oldest first.
+     * Rows appended afterwards are not included.
+     */
+    public Spliterator<Reservation> spliterator() {
+        int end = size;
+        Chunk[] current = chunks;
+        return new RowSpliterator(row -> read(current, row), 0, end);
+    }
+
+    /**
+     * Passes every archived reservation to the action, oldest first.
+     * Rows appended while iterating are not included.
+     */
+    public void forEach(Consumer<Reservation> action) {
+        int end = size;
+        Chunk[] current = chunks;
+        for (int row = 0; row < end; row++) {
+            action.accept(read(current, row));
+        }
+    }
+
+    /**
+     * Returns the row of an archived reservation, or {@link LongIndexMap#NO_VALUE} if it is not archived.
+     */
+    private int rowOf(String reservationId) {
+        long id;
+        try {
+            id = reservationId == null ? 0 : Long.parseLong(reservationId);
+        } catch (NumberFormatException e) {
+            return LongIndexMap.NO_VALUE; // Not an ID of any reservation
+        }
+        readLock.lock();
+        try {
+            return rowsById.get(id);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private static Reservation read(Chunk[] chunks, int row) {
+        Chunk chunk = chunks[row >>> CHUNK_BITS];
+        int i = row & CHUNK_MASK;
+        return new Reservation(chunk.ids[i], chunk.parkingSpots[i], chunk.customers[i],
+                toLocalDateTime(chunk.startTimes[i]), toLocalDateTime(chunk.endTimes[i]), Reservation.Status.COMPLETED);
+    }
+
+    private static long toEpochNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + time.getNano();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(epochNanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,69 @@
+package com.markus.parkingapp.dao.archive;
+
+import com.markus.parkingapp.model.Reservation;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Spliterator over a range of rows of an append-only reservation store. The range is fixed
+ * when the spliterator is created, and it splits in halves, so parallel streams can divide
+ * a large history evenly without copying it first.
+ */
+public final class RowSpliterator implements Spliterator<Reservation> {
+
+    private final IntFunction<Reservation> rowReader;
+    private int row;
+    private final int end;
+
+    /**
+     * @param rowReader Reads the reservation at a row.
+     * @param start     The first row, inclusive.
+     * @param end       The last row, exclusive.
+     */
+    public RowSpliterator(IntFunction<Reservation> rowReader, int start, int end) {
+        this.rowReader = rowReader;
+        this.row = start;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Reservation> action) {
+        if (row >= end) {
+            return false;
+        }
+        action.accept(rowReader.apply(row++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Reservation> action) {
+        int last = end;
+        for (int current = row; current < last; current++) {
+            action.accept(rowReader.apply(current));
+        }
+        row = last;
+    }
+
+    @Override
+    public Spliterator<Reservation> trySplit() {
+        int middle = (row + end) >>> 1;
+        if (middle <= row) {
+            return null;
+        }
+        Spliterator<Reservation> prefix = new RowSpliterator(rowReader, row, middle);
+        row = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - row;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,532 @@
+package com.markus.parkingapp.dao.impl;
+
+import com.markus.parkingapp.dao.CustomerDao;
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.dao.ReservationDao;
+import com.markus.parkingapp.dao.archive.RowSpliterator;
+import com.markus.parkingapp.dao.index.IntIndexMap;
+import com.markus.parkingapp.dao.index.LongIndexMap;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link ReservationDao} that stores reservations column by column in primitive arrays,
+ * for histories of millions of reservations.
+ * <p>
+ * A row takes 41 bytes in a handful of shared arrays: the ID, spot number, area code,
+ * customer ID, start and end time as epoch seconds (UTC), the status as a byte, and a link
+ * to the customer's next row. The index by ID adds another 24 to 48 bytes, depending on how
+ * full its table is, so a row costs 65 to 90 bytes in all, about 70 for a million rows
+ * (see {@code ReservationFootprintBenchmark}).
+ * The garbage collector only sees a few arrays per 4096 rows instead of several objects per
+ * reservation. Times are kept to the second.
+ * <p>
+ * Reservations returned by this DAO are lightweight views of their row. Their spot and
+ * customer are looked up in the given DAOs when asked for, and {@link Reservation#complete()},
+ * {@link Reservation#activate()}, {@link Reservation#setEndTimeByHours(int)} or
+ * {@link Reservation#endEarly(LocalDateTime)} on a view write through to the row at once.
+ */
+public class ColumnarReservationDao implements ReservationDao {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS; // 4096 rows per chunk
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int NO_ROW = -1;
+
+    private static final Reservation.Status[] STATUSES = Reservation.Status.values();
+
+    /**
+     * The columns of {@link #CHUNK_SIZE} consecutive rows.
+     */
+    private static final class Chunk {
+        final long[] ids = new long[CHUNK_SIZE];
+        final int[] spotNumbers = new int[CHUNK_SIZE];
+        final int[] areaCodes = new int[CHUNK_SIZE];
+        final int[] customerIds = new int[CHUNK_SIZE];
+        final long[] startTimes = new long[CHUNK_SIZE]; // Epoch seconds, UTC
+        final long[] endTimes = new long[CHUNK_SIZE];   // Epoch seconds, UTC
+        final byte[] statuses = new byte[CHUNK_SIZE];   // Status ordinal
+        final int[] nextByCustomer = new int[CHUNK_SIZE]; // Next row of the same customer, or NO_ROW
+    }
+
+    private final CustomerDao customerDao;
+    private final ParkingSpotDao parkingSpotDao;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+
+    private Chunk[] chunks = new Chunk[8];
+    private int size; // Number of rows
+
+    private final LongIndexMap rowsById = new LongIndexMap();             // Reservation ID -> row
+    private final IntIndexMap activeRowBySpot = new IntIndexMap();        // Spot number -> row of its active reservation
+    private final IntIndexMap firstRowByCustomer = new IntIndexMap();     // Customer ID -> oldest row
+    private final IntIndexMap lastRowByCustomer = new IntIndexMap();      // Customer ID -> newest row
+    private final BitSet activeRows = new BitSet();
+
+    /**
+     * @param customerDao    Resolves the customers of stored reservations.
+     * @param parkingSpotDao Resolves the parking spots of stored reservations.
+     */
+    public ColumnarReservationDao(CustomerDao customerDao, ParkingSpotDao parkingSpotDao) {
+        this.customerDao = customerDao;
+        this.parkingSpotDao = parkingSpotDao;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned reservation is a view of the stored row; later changes to the given
+     * object are only stored by {@link #update(Reservation)}.
+     */
+    @Override
+    public Reservation create(Reservation reservation) {
+        validate(reservation);
+        writeLock.lock();
+        try {
+            if (rowsById.containsKey(reservation.getId())) {
+                throw new IllegalArgumentException("Reservation already exists: " + reservation.getReservationId());
+            }
+            return append(reservation);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The whole batch is added under a single lock acquisition. Every reservation is checked
+     * before any is added, so a batch with an invalid or duplicate reservation is refused as a whole.
+     */
+    @Override
+    public List<Reservation> createAll(List<Reservation> reservations) {
+        for (Reservation reservation : reservations) {
+            validate(reservation);
+        }
+        writeLock.lock();
+        try {
+            LongIndexMap batchIds = new LongIndexMap(reservations.size());
+            for (Reservation reservation : reservations) {
+                long id = reservation.getId();
+                if (rowsById.containsKey(id) || batchIds.put(id, 0) != IntIndexMap.NO_VALUE) {
+                    throw new IllegalArgumentException("Reservation already exists: " + reservation.getReservationId());
+                }
+            }
+            List<Reservation> created = new ArrayList<>(reservations.size());
+            for (Reservation reservation : reservations) {
+                created.add(append(reservation));
+            }
+            return created;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The whole batch is completed under a single lock acquisition, after checking that every reservation exists.
+     */
+    @Override
+    public void completeAll(List<Reservation> reservations) {
+        for (Reservation reservation : reservations) {
+            validate(reservation);
+        }
+        writeLock.lock();
+        try {
+            int[] rows = new int[reservations.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = rowsById.get(reservations.get(i).getId());
+                if (rows[i] == IntIndexMap.NO_VALUE) {
+                    throw new IllegalArgumentException("Reservation not found: " + reservations.get(i).getReservationId());
+                }
+            }
+            for (int i = 0; i < rows.length; i++) {
+                Reservation reservation = reservations.get(i);
+                if (!(reservation instanceof ReservationView && ((ReservationView) reservation).owner() == this)) {
+                    reservation.complete(); // Keep the caller's copy in step with the row
+                    Chunk chunk = chunkOf(rows[i]);
+                    if (STATUSES[chunk.statuses[rows[i] & CHUNK_MASK]] != Reservation.Status.COMPLETED) {
+                        chunk.endTimes[rows[i] & CHUNK_MASK] = toEpochSecond(reservation.getEndTime()); // e.g. ended early
+                    }
+                }
+                completeRow(rows[i]);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Appends a reservation as a new row. Requires the write lock and a checked, unused ID.
+     */
+    private Reservation append(Reservation reservation) {
+        long id = reservation.getId();
+        int row = size;
+        int chunkIndex = row >>> CHUNK_BITS;
+        if (chunkIndex == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunkIndex] == null) {
+            chunks[chunkIndex] = new Chunk();
+        }
+        Chunk chunk = chunks[chunkIndex];
+        int i = row & CHUNK_MASK;
+        ParkingSpot parkingSpot = reservation.getParkingSpot();
+        int customerId = reservation.getCustomer().getId();
+        chunk.ids[i] = id;
+        chunk.spotNumbers[i] = parkingSpot.getSpotNumber();
+        chunk.areaCodes[i] = parkingSpot.getAreaCode();
+        chunk.customerIds[i] = customerId;
+        chunk.startTimes[i] = toEpochSecond(reservation.getStartTime());
+        chunk.endTimes[i] = toEpochSecond(reservation.getEndTime());
+        chunk.statuses[i] = (byte) reservation.getStatus().ordinal();
+        chunk.nextByCustomer[i] = NO_ROW;
+        size = row + 1;
+
+        rowsById.put(id, row);
+        int lastRow = lastRowByCustomer.put(customerId, row);
+        if (lastRow == IntIndexMap.NO_VALUE) {
+            firstRowByCustomer.put(customerId, row);
+        } else {
+            chunkOf(lastRow).nextByCustomer[lastRow & CHUNK_MASK] = row;
+        }
+        if (reservation.getStatus() != Reservation.Status.COMPLETED) {
+            activeRows.set(row);
+        }
+        if (reservation.getStatus() == Reservation.Status.ACTIVE) {
+            activeRowBySpot.put(parkingSpot.getSpotNumber(), row);
+        }
+        return new ReservationView(chunk, row);
+    }
+
+    @Override
+    public Optional<Reservation> findById(String reservationId) {
+        long id;
+        try {
+            id = reservationId == null ? 0 : Long.parseLong(reservationId);
+        } catch (NumberFormatException e) {
+            return Optional.empty(); // Not an ID this store can hold
+        }
+        readLock.lock();
+        try {
+            return viewOf(rowsById.get(id));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Reservation> findAll() {
+        readLock.lock();
+        try {
+            // Views in the order the reservations were created
+            List<Reservation> list = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                list.add(new ReservationView(chunkOf(row), row));
+            }
+            return list;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Streams views of the rows stored so far, in the order they were created, without copying
+     * them into a list. The rows split evenly for parallel streams.
+     */
+    @Override
+    public Stream<Reservation> stream() {
+        Chunk[] current;
+        int end;
+        readLock.lock();
+        try {
+            current = chunks;
+            end = size;
+        } finally {
+            readLock.unlock();
+        }
+        return StreamSupport.stream(
+                new RowSpliterator(row -> new ReservationView(current[row >>> CHUNK_BITS], row), 0, end), false);
+    }
+
+    @Override
+    public List<Reservation> findActive() {
+        readLock.lock();
+        try {
+            List<Reservation> list = new ArrayList<>(activeRows.cardinality());
+            for (int row = activeRows.nextSetBit(0); row >= 0; row = activeRows.nextSetBit(row + 1)) {
+                list.add(new ReservationView(chunkOf(row), row));
+            }
+            return list;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Finds reservations associated with a specific customer.
+     *
+     * @param customerId The ID of the customer.
+     * @return A list of reservations belonging to the given customer, oldest first.
+     */
+    @Override
+    public List<Reservation> findByCustomerId(Integer customerId) {
+        List<Reservation> list = new ArrayList<>();
+        if (customerId == null) {
+            return list;
+        }
+        readLock.lock();
+        try {
+            for (int row = firstRowByCustomer.get(customerId); row >= 0; row = chunkOf(row).nextByCustomer[row & CHUNK_MASK]) {
+                list.add(new ReservationView(chunkOf(row), row));
+            }
+            return list;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Reservation> findActiveBySpotNumber(Integer spotNumber) {
+        if (spotNumber == null) {
+            return Optional.empty();
+        }
+        readLock.lock();
+        try {
+            return viewOf(activeRowBySpot.get(spotNumber));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void update(Reservation reservation) {
+        validate(reservation);
+        writeLock.lock();
+        try {
+            int row = rowsById.get(reservation.getId());
+            if (row == IntIndexMap.NO_VALUE) {
+                throw new IllegalArgumentException("Reservation not found: " + reservation.getReservationId());
+            }
+            if (reservation instanceof ReservationView && ((ReservationView) reservation).owner() == this) {
+                return; // Changes to a view are already in its row
+            }
+
+            Chunk chunk = chunkOf(row);
+            int i = row & CHUNK_MASK;
+            boolean completed = STATUSES[chunk.statuses[i]] == Reservation.Status.COMPLETED;
+            if (reservation.getStatus() == Reservation.Status.COMPLETED) {
+                // A reservation completed twice (e.g. vacated while expiring) is completed only once
+                if (!completed) {
+                    chunk.endTimes[i] = toEpochSecond(reservation.getEndTime());
+                    completeRow(row);
+                }
+                return;
+            }
+            if (completed) {
+                throw new IllegalArgumentException("Reservation is completed and can no longer be updated: "
+                        + reservation.getReservationId());
+            }
+            chunk.endTimes[i] = toEpochSecond(reservation.getEndTime());
+            chunk.statuses[i] = (byte) reservation.getStatus().ordinal();
+            if (reservation.getStatus() == Reservation.Status.ACTIVE) {
+                activeRowBySpot.put(chunk.spotNumbers[i], row);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of stored reservations, including completed ones.
+     */
+    public int size() {
+        readLock.lock();
+        try {
+            return size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Marks a row completed and drops it from the active indexes. Requires the write lock.
+     *
+     * @return The status the row had before.
+     */
+    private Reservation.Status completeRow(int row) {
+        Chunk chunk = chunkOf(row);
+        int i = row & CHUNK_MASK;
+        Reservation.Status previous = STATUSES[chunk.statuses[i]];
+        chunk.statuses[i] = (byte) Reservation.Status.COMPLETED.ordinal();
+        activeRows.clear(row);
+        if (activeRowBySpot.get(chunk.spotNumbers[i]) == row) {
+            activeRowBySpot.remove(chunk.spotNumbers[i]);
+        }
+        return previous;
+    }
+
+    private Chunk chunkOf(int row) {
+        return chunks[row >>> CHUNK_BITS];
+    }
+
+    private Optional<Reservation> viewOf(int row) {
+        return row < 0 ? Optional.empty() : Optional.of(new ReservationView(chunkOf(row), row));
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    private void validate(Reservation reservation) {
+        if (reservation == null || reservation.getReservationId() == null) {
+            throw new IllegalArgumentException("Reservation or Reservation ID cannot be null.");
+        }
+    }
+
+    /**
+     * Flyweight reservation that reads and changes its row. Two views of the same row are interchangeable.
+     * The ID, spot, customer and start time never change, so they are read without locking.
+     */
+    private final class ReservationView extends Reservation {
+
+        private final Chunk chunk;
+        private final int row;
+
+        ReservationView(Chunk chunk, int row) {
+            this.chunk = chunk;
+            this.row = row;
+        }
+
+        ColumnarReservationDao owner() {
+            return ColumnarReservationDao.this;
+        }
+
+        @Override
+        public long getId() {
+            return chunk.ids[row & CHUNK_MASK];
+        }
+
+        @Override
+        public String getReservationId() {
+            return String.valueOf(getId());
+        }
+
+        @Override
+        public LocalDateTime getStartTime() {
+            return toLocalDateTime(chunk.startTimes[row & CHUNK_MASK]);
+        }
+
+        @Override
+        public LocalDateTime getEndTime() {
+            readLock.lock();
+            try {
+                return toLocalDateTime(chunk.endTimes[row & CHUNK_MASK]);
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        @Override
+        public ParkingSpot getParkingSpot() {
+            int i = row & CHUNK_MASK;
+            int spotNumber = chunk.spotNumbers[i];
+            int areaCode = chunk.areaCodes[i];
+            // A deleted spot is still reported, detached from the spot DAO
+            return parkingSpotDao.findBySpotNumber(spotNumber).orElseGet(() -> new ParkingSpot(spotNumber, areaCode));
+        }
+
+        @Override
+        public Customer getCustomer() {
+            int customerId = chunk.customerIds[row & CHUNK_MASK];
+            return customerDao.findById(customerId).orElseThrow(() ->
+                    new IllegalStateException("Reservation " + getId() + " refers to unknown customer " + customerId));
+        }
+
+        @Override
+        public Reservation.Status getStatus() {
+            readLock.lock();
+            try {
+                return STATUSES[chunk.statuses[row & CHUNK_MASK]];
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        @Override
+        public void setEndTimeByHours(int hours) {
+            if (hours <= 0) {
+                throw new IllegalArgumentException("Hours must be greater than 0.");
+            }
+            writeLock.lock();
+            try {
+                int i = row & CHUNK_MASK;
+                chunk.endTimes[i] = chunk.startTimes[i] + hours * 3600L;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public void endEarly(LocalDateTime time) {
+            Objects.requireNonNull(time, "End time cannot be null.");
+            long end = toEpochSecond(time);
+            writeLock.lock();
+            try {
+                int i = row & CHUNK_MASK;
+                if (end > chunk.startTimes[i] && end < chunk.endTimes[i]) {
+                    chunk.endTimes[i] = end;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public boolean tryActivate() {
+            writeLock.lock();
+            try {
+                int i = row & CHUNK_MASK;
+                if (STATUSES[chunk.statuses[i]] != Reservation.Status.SCHEDULED) {
+                    return false;
+                }
+                chunk.statuses[i] = (byte) Reservation.Status.ACTIVE.ordinal();
+                activeRowBySpot.put(chunk.spotNumbers[i], row);
+                return true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public Reservation.Status complete() {
+            writeLock.lock();
+            try {
+                return completeRow(row);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package com.markus.parkingapp.dao.impl;
 
-import se.lexicon.dao.CustomerDao;
-import se.lexicon.dao.sequencer.CustomerIdSequencer;
-import se.lexicon.model.Customer;
+import com.markus.parkingapp.dao.CustomerDao;
+import com.markus.parkingapp.dao.sequencer.CustomerIdSequencer;
+import com.markus.parkingapp.model.Customer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CustomerDaoImpl implements CustomerDao {
 
@@ -26,27 +29,132 @@ public class CustomerDaoImpl implements CustomerDao {
         return instance;
     }
 
-    // Data storage
-    private List<Customer> customers = new ArrayList<>();
+    // Data storage, keyed by customer ID and safe for concurrent access
+    private final Map<Integer, Customer> customers = new ConcurrentHashMap<>();
 
+    // Unique indexes on the normalized plate and phone numbers, for lookups at the gates and by support staff
+    private final Map<String, Customer> customersByPlate = new ConcurrentHashMap<>();
+    private final Map<String, Customer> customersByPhone = new ConcurrentHashMap<>();
+
+    // Serializes writes, so a plate or phone number is checked and indexed in one step; reads do not lock
+    private final Object writeLock = new Object();
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException If another customer has the same plate number or phone number.
+     * @throws IllegalStateException If the generated ID already belongs to a stored customer.
+     */
     @Override
     public Customer create(Customer customer) {
-        // Assign a unique ID to the customer
-        int generatedId = CustomerIdSequencer.nextId();
-        customer.setId(generatedId);
-        
-        customers.add(customer);
+        synchronized (writeLock) {
+            String plate = normalizePlate(customer.getVehicle().getPlateNumber());
+            String phone = normalizePhone(customer.getPhoneNumber());
+            checkUnique(plate, phone);
+
+            // Assign a unique ID to the customer
+            int generatedId = CustomerIdSequencer.nextId();
+            if (customers.containsKey(generatedId)) {
+                // The sequencer lost its high-water mark; never overwrite a stored customer
+                throw new IllegalStateException("Customer ID " + generatedId + " is already taken.");
+            }
+            customer.setId(generatedId);
+
+            customers.put(generatedId, customer);
+            customersByPlate.put(plate, customer);
+            customersByPhone.put(phone, customer);
+        }
         return customer;
     }
 
+    /**
+     * {@inheritDoc}
+     * A customer stored under the same ID before is replaced, together with its index entries.
+     * Uniqueness is not enforced, so data saved before it was cannot fail to load; a plate or
+     * phone number shared by several restored customers finds the first of them.
+     */
+    @Override
+    public Customer restore(Customer customer) {
+        if (customer == null || customer.getId() == null) {
+            throw new IllegalArgumentException("Customer or Customer ID cannot be null.");
+        }
+        synchronized (writeLock) {
+            String plate = normalizePlate(customer.getVehicle().getPlateNumber());
+            String phone = normalizePhone(customer.getPhoneNumber());
+
+            Customer previous = customers.put(customer.getId(), customer);
+            if (previous != null) {
+                customersByPlate.remove(normalizePlate(previous.getVehicle().getPlateNumber()), previous);
+                customersByPhone.remove(normalizePhone(previous.getPhoneNumber()), previous);
+            }
+            customersByPlate.putIfAbsent(plate, customer);
+            customersByPhone.putIfAbsent(phone, customer);
+        }
+        return customer;
+    }
+
+    /**
+     * Throws if a customer already has the plate or phone number.
+     */
+    private void checkUnique(String plate, String phone) {
+        if (customersByPlate.containsKey(plate)) {
+            throw new IllegalArgumentException("A customer with plate number " + plate + " already exists.");
+        }
+        if (customersByPhone.containsKey(phone)) {
+            throw new IllegalArgumentException("A customer with phone number " + phone + " already exists.");
+        }
+    }
 
     @Override
     public Optional<Customer> findById(int id) {
-        for (Customer customer : customers) {
-            if (customer.getId() == id) {
-                return Optional.of(customer); // Return an Optional
+        return Optional.ofNullable(customers.get(id)); // Empty if no customer has this ID
+    }
+
+    @Override
+    public Optional<Customer> findByPlate(String plateNumber) {
+        if (plateNumber == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(customersByPlate.get(normalizePlate(plateNumber)));
+    }
+
+    @Override
+    public Optional<Customer> findByPhone(String phoneNumber) {
+        if (phoneNumber == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(customersByPhone.get(normalizePhone(phoneNumber)));
+    }
+
+    @Override
+    public List<Customer> findAll() {
+        return new ArrayList<>(customers.values()); // Return a copy to prevent modification
+    }
+
+    /**
+     * Normalizes a plate number as read by a camera or typed in: letters in upper case,
+     * without spaces, dashes or dots, so "abc-123" and "ABC 123" are the same plate.
+     */
+    static String normalizePlate(String plateNumber) {
+        return stripSeparators(plateNumber).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalizes a phone number to its digits, with a leading + kept,
+     * so "+46 70-123 45 67" and "+46701234567" are the same number.
+     */
+    static String normalizePhone(String phoneNumber) {
+        return stripSeparators(phoneNumber).replace("(", "").replace(")", "");
+    }
+
+    private static String stripSeparators(String value) {
+        StringBuilder normalized = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != ' ' && c != '-' && c != '.' && !Character.isWhitespace(c)) {
+                normalized.append(c);
             }
         }
-        return Optional.empty(); // Explicitly indicate no value
+        return normalized.toString();
     }
 }
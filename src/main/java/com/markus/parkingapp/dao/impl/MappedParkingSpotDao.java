@@ -0,0 +1,833 @@
+package com.markus.parkingapp.dao.impl;
+
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.dao.index.AreaPartition;
+import com.markus.parkingapp.dao.index.FreeSpotBitmap;
+import com.markus.parkingapp.dao.index.IntIndexMap;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+
+/**
+ * {@link ParkingSpotDao} backed by a memory-mapped file of fixed-width binary records,
+ * for lots with millions of spots.
+ * <p>
+ * Each spot is a 16-byte record {@code [spotNumber][areaCode][occupant]}, where the occupant
+ * is 0 for a vacant spot, -1 for a spot occupied without a reservation, or the ID of the
+ * reservation holding it. The spots returned by this DAO are flyweight views that read and
+ * compare-and-set their record in place, so no per-spot objects are kept on the heap and
+ * the file itself is the state: opening it only maps it, and the OS pages in the records
+ * that are actually touched.
+ * <p>
+ * The indexes that need a full scan are built on first use: the free-spot bitmap and area
+ * partitions on the first availability query, and a spot number index only when spots were
+ * not created in ascending order (otherwise lookups binary-search the file). Deleted spots
+ * leave a tombstone record behind that is not reclaimed.
+ * <p>
+ * Only reservation IDs are stored, so {@link ParkingSpot#getCurrentReservation()} needs a
+ * resolver to turn them back into reservations; without one it returns null.
+ */
+public class MappedParkingSpotDao implements ParkingSpotDao, Closeable {
+
+    private static final int MAGIC = 0x504B5354; // "PKST"
+    private static final int VERSION = 1;
+
+    // File header
+    private static final int HEADER_BYTES = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int RECORD_BYTES_OFFSET = 8;
+    private static final int FLAGS_OFFSET = 12;
+    private static final int COUNT_OFFSET = 16;
+    private static final int FLAG_UNSORTED = 1; // Set once a spot was created out of ascending order
+
+    // Record layout: [int spotNumber][int areaCode][long occupant]
+    private static final int RECORD_BYTES = 16;
+    private static final int AREA_OFFSET = 4;
+    private static final int OCCUPANT_OFFSET = 8;
+
+    // Occupant values; any positive value is the ID of the reservation holding the spot
+    private static final long VACANT = 0;
+    private static final long OCCUPIED_WITHOUT_RESERVATION = -1;
+    private static final long DELETED = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES; // One mapping per file
+
+    private static final VarHandle OCCUPANT =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final LongFunction<Reservation> reservationResolver;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+
+    private volatile MappedByteBuffer buffer; // Replaced by a larger mapping when the file grows
+    private int capacity;                     // Records that fit in the current mapping
+    private volatile int recordCount;         // Records in the file, including tombstones
+    private volatile boolean sorted;          // Spot numbers ascend with record position; never set again once cleared
+
+    // Spot number -> record, only kept once the records are no longer sorted
+    private final IntIndexMap spotIndex = new IntIndexMap();
+    private volatile boolean spotIndexBuilt;
+
+    // Availability indexes over record positions, built on first use
+    private final FreeSpotBitmap freeSpots = new FreeSpotBitmap();
+    private final IntIndexMap areaIndex = new IntIndexMap(); // Area code -> index into areas
+    private final List<AreaPartition> areas = new ArrayList<>();
+    private int[] areaPositions = new int[0]; // Record -> local position within its area
+    private volatile boolean availabilityBuilt;
+
+    private final List<ParkingSpot.OccupancyListener> occupancyListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Opens or creates a spot table without a reservation resolver.
+     *
+     * @param file The table file.
+     */
+    public MappedParkingSpotDao(Path file) {
+        this(file, reservationId -> null);
+    }
+
+    /**
+     * Opens or creates a spot table.
+     *
+     * @param file                The table file.
+     * @param reservationResolver Looks up a reservation by its numeric ID, returning null if it is unknown.
+     */
+    public MappedParkingSpotDao(Path file, LongFunction<Reservation> reservationResolver) {
+        this.file = file;
+        this.reservationResolver = reservationResolver;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            long size = channel.size();
+            if (size == 0) {
+                map(INITIAL_CAPACITY);
+                buffer.putInt(MAGIC_OFFSET, MAGIC);
+                buffer.putInt(VERSION_OFFSET, VERSION);
+                buffer.putInt(RECORD_BYTES_OFFSET, RECORD_BYTES);
+                buffer.putInt(FLAGS_OFFSET, 0);
+                buffer.putLong(COUNT_OFFSET, 0);
+                sorted = true;
+                return;
+            }
+
+            if (size < HEADER_BYTES) {
+                throw new IllegalArgumentException("Not a parking spot table: " + file);
+            }
+            map((int) Math.min((size - HEADER_BYTES) / RECORD_BYTES, MAX_CAPACITY));
+            if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION
+                    || buffer.getInt(RECORD_BYTES_OFFSET) != RECORD_BYTES) {
+                throw new IllegalArgumentException("Not a parking spot table: " + file);
+            }
+            long count = buffer.getLong(COUNT_OFFSET);
+            if (count < 0 || count > capacity) {
+                throw new IllegalArgumentException("Corrupt parking spot table, bad record count " + count + ": " + file);
+            }
+            recordCount = (int) count;
+            sorted = (buffer.getInt(FLAGS_OFFSET) & FLAG_UNSORTED) == 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open parking spot table " + file, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the spot's number, area and occupancy are stored; the returned spot is a view of
+     * the stored record, and later changes to the given object are not seen by this DAO.
+     */
+    @Override
+    public ParkingSpot create(ParkingSpot parkingSpot) {
+        validate(parkingSpot);
+        int spotNumber = parkingSpot.getSpotNumber();
+        int areaCode = parkingSpot.getAreaCode();
+        long occupant = occupantOf(parkingSpot);
+
+        writeLock.lock();
+        try {
+            if (!sorted) {
+                buildSpotIndex();
+            }
+            if (locate(spotNumber) != -1) {
+                throw new IllegalArgumentException("Parking spot already exists: " + spotNumber);
+            }
+
+            int record = recordCount;
+            if (sorted && record > 0 && spotNumber <= spotNumberAt(record - 1)) {
+                // Binary search no longer works, switch to a hash index for good
+                sorted = false;
+                buffer.putInt(FLAGS_OFFSET, buffer.getInt(FLAGS_OFFSET) | FLAG_UNSORTED);
+                buildSpotIndex();
+            }
+            ensureCapacity(record + 1);
+
+            MappedByteBuffer current = buffer;
+            int offset = offset(record);
+            current.putInt(offset, spotNumber);
+            current.putInt(offset + AREA_OFFSET, areaCode);
+            OCCUPANT.setVolatile(current, offset + OCCUPANT_OFFSET, occupant);
+            if (!sorted) {
+                spotIndex.put(spotNumber, record);
+            }
+            if (availabilityBuilt) {
+                if (record == areaPositions.length) {
+                    areaPositions = Arrays.copyOf(areaPositions, Math.max(16, record * 2));
+                }
+                freeSpots.ensureCapacity(record); // Whether vacant or not, so vacating never grows it
+                freeSpots.set(record, occupant == VACANT);
+                areaPositions[record] = partitionFor(areaCode).add(record, occupant == VACANT);
+            }
+
+            // Publish the record only after it is fully written
+            current.putLong(COUNT_OFFSET, record + 1);
+            recordCount = record + 1;
+            return new SpotView(record);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<ParkingSpot> findAll() {
+        readLock.lock();
+        try {
+            int count = recordCount;
+            List<ParkingSpot> list = new ArrayList<>(count);
+            for (int record = 0; record < count; record++) {
+                if (occupantAt(record) != DELETED) {
+                    list.add(new SpotView(record));
+                }
+            }
+            return list;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<ParkingSpot> findBySpotNumber(Integer spotNumber) {
+        if (spotNumber == null) {
+            return Optional.empty();
+        }
+        ensureSpotIndex();
+        readLock.lock();
+        try {
+            return spotAt(locate(spotNumber));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<ParkingSpot> findAvailableSpots() {
+        ensureAvailability();
+        readLock.lock();
+        try {
+            List<ParkingSpot> list = new ArrayList<>(freeSpots.freeCount());
+            for (int i = freeSpots.nextFree(0); i != FreeSpotBitmap.NONE; i = freeSpots.nextFree(i + 1)) {
+                list.add(new SpotView(i));
+            }
+            return list;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The iteration is weakly consistent: it never fails with concurrent changes, but may
+     * or may not reflect spots occupied, vacated, created or deleted while it is in progress.
+     */
+    @Override
+    public Iterable<ParkingSpot> availableSpots() {
+        ensureAvailability();
+        return () -> new Iterator<>() {
+            private int nextRecord = advance(0);
+
+            @Override
+            public boolean hasNext() {
+                return nextRecord != FreeSpotBitmap.NONE;
+            }
+
+            @Override
+            public ParkingSpot next() {
+                if (nextRecord == FreeSpotBitmap.NONE) {
+                    throw new NoSuchElementException();
+                }
+                ParkingSpot spot = new SpotView(nextRecord);
+                nextRecord = advance(nextRecord + 1);
+                return spot;
+            }
+
+            private int advance(int fromRecord) {
+                readLock.lock();
+                try {
+                    return freeSpots.nextFree(fromRecord);
+                } finally {
+                    readLock.unlock();
+                }
+            }
+        };
+    }
+
+    @Override
+    public int countAvailableSpots() {
+        ensureAvailability();
+        return freeSpots.freeCount();
+    }
+
+    @Override
+    public Optional<ParkingSpot> findFirstAvailableSpot() {
+        ensureAvailability();
+        readLock.lock();
+        try {
+            return spotAt(freeSpots.nextFree(0));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<ParkingSpot> findNextAvailableSpot(Integer spotNumber) {
+        if (spotNumber == null) {
+            return Optional.empty();
+        }
+        ensureSpotIndex();
+        ensureAvailability();
+        readLock.lock();
+        try {
+            int record = locate(spotNumber);
+            return record == -1 ? Optional.empty() : spotAt(freeSpots.nextFree(record));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<ParkingSpot> findByArea(int areaCode) {
+        ensureAvailability();
+        readLock.lock();
+        try {
+            int areaSlot = areaIndex.get(areaCode);
+            if (areaSlot == IntIndexMap.NO_VALUE) {
+                return new ArrayList<>();
+            }
+
+            AreaPartition area = areas.get(areaSlot);
+            List<ParkingSpot> list = new ArrayList<>(area.spotCount());
+            for (int i = 0; i < area.positionCount(); i++) {
+                if (area.slotAt(i) != AreaPartition.REMOVED) {
+                    list.add(new SpotView(area.slotAt(i)));
+                }
+            }
+            return list;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<ParkingSpot> findAvailableByArea(int areaCode) {
+        ensureAvailability();
+        readLock.lock();
+        try {
+            int areaSlot = areaIndex.get(areaCode);
+            if (areaSlot == IntIndexMap.NO_VALUE) {
+                return new ArrayList<>();
+            }
+
+            AreaPartition area = areas.get(areaSlot);
+            List<ParkingSpot> list = new ArrayList<>(area.freeCount());
+            for (int i = area.nextFree(0); i != FreeSpotBitmap.NONE; i = area.nextFree(i + 1)) {
+                list.add(new SpotView(area.slotAt(i)));
+            }
+            return list;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int countAvailableByArea(int areaCode) {
+        ensureAvailability();
+        readLock.lock();
+        try {
+            int areaSlot = areaIndex.get(areaCode);
+            return areaSlot == IntIndexMap.NO_VALUE ? 0 : areas.get(areaSlot).freeCount();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryOccupy(Integer spotNumber, Reservation reservation) {
+        if (reservation == null || !reservation.getParkingSpot().getSpotNumber().equals(spotNumber)) {
+            throw new IllegalArgumentException("Reservation is not for parking spot: " + spotNumber);
+        }
+        return findBySpotNumber(spotNumber)
+                .orElseThrow(() -> new IllegalArgumentException("Parking spot not found: " + spotNumber))
+                .tryOccupy(reservation);
+    }
+
+    @Override
+    public boolean tryVacate(Integer spotNumber, Reservation reservation) {
+        return findBySpotNumber(spotNumber)
+                .orElseThrow(() -> new IllegalArgumentException("Parking spot not found: " + spotNumber))
+                .tryVacate(reservation);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Listeners are notified of changes made through the views of this DAO.
+     */
+    @Override
+    public void addOccupancyListener(ParkingSpot.OccupancyListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+        occupancyListeners.add(listener);
+    }
+
+    @Override
+    public void removeOccupancyListener(ParkingSpot.OccupancyListener listener) {
+        occupancyListeners.remove(listener);
+    }
+
+    @Override
+    public void update(ParkingSpot parkingSpot) {
+        validate(parkingSpot);
+        int spotNumber = parkingSpot.getSpotNumber();
+
+        ensureSpotIndex();
+        writeLock.lock();
+        try {
+            int record = locate(spotNumber);
+            if (record == -1) {
+                throw new IllegalArgumentException("Parking spot not found: " + spotNumber);
+            }
+            if (parkingSpot instanceof SpotView && ((SpotView) parkingSpot).owner() == this) {
+                return; // A view of the stored record, so there is nothing to copy
+            }
+
+            // Copy the area and occupancy of the given spot into the record
+            int oldAreaCode = areaCodeAt(record);
+            int newAreaCode = parkingSpot.getAreaCode();
+            MappedByteBuffer current = buffer;
+            current.putInt(offset(record) + AREA_OFFSET, newAreaCode);
+            OCCUPANT.setVolatile(current, offset(record) + OCCUPANT_OFFSET, occupantOf(parkingSpot));
+
+            if (availabilityBuilt) {
+                boolean free = !parkingSpot.isOccupied();
+                freeSpots.set(record, free);
+                if (oldAreaCode == newAreaCode) {
+                    partitionFor(oldAreaCode).setFree(areaPositions[record], free);
+                } else {
+                    partitionFor(oldAreaCode).remove(areaPositions[record]);
+                    areaPositions[record] = partitionFor(newAreaCode).add(record, free);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(Integer spotNumber) {
+        if (spotNumber == null) {
+            throw new IllegalArgumentException("Spot number cannot be null.");
+        }
+
+        ensureSpotIndex();
+        writeLock.lock();
+        try {
+            int record = locate(spotNumber);
+            if (record == -1) {
+                return false; // Spot not found
+            }
+
+            OCCUPANT.setVolatile(buffer, offset(record) + OCCUPANT_OFFSET, DELETED);
+            if (!sorted) {
+                spotIndex.remove(spotNumber);
+            }
+            if (availabilityBuilt) {
+                freeSpots.set(record, false);
+                partitionFor(areaCodeAt(record)).remove(areaPositions[record]);
+            }
+            return true; // Successfully deleted
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Vacates every spot whose stored occupant is not the active reservation of that spot.
+     * <p>
+     * The table outlives the process, but the reservations it refers to are only kept when
+     * they are saved as well. Call this once the reservations are loaded, before new ones are
+     * made: occupants the resolver does not know, or that resolve to a reservation that is not
+     * active or is for another spot, would otherwise hold their spots forever, or be taken for
+     * new reservations that happen to reuse their IDs. Spots occupied without a reservation
+     * are kept. Listeners are not notified.
+     *
+     * @return The number of spots vacated.
+     */
+    public int releaseStaleOccupants() {
+        int released = 0;
+        int count = recordCount;
+        for (int record = 0; record < count; record++) {
+            long occupant = occupantAt(record);
+            if (occupant <= VACANT) {
+                continue; // Vacant, occupied without a reservation, or deleted
+            }
+            Reservation reservation = reservationResolver.apply(occupant);
+            boolean held = reservation != null
+                    && reservation.getStatus() == Reservation.Status.ACTIVE
+                    && reservation.getParkingSpot().getSpotNumber() == spotNumberAt(record);
+            if (!held && casOccupant(record, occupant, VACANT)) {
+                released++;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Writes all changed records to the storage device.
+     */
+    public void flush() {
+        readLock.lock();
+        try {
+            buffer.force();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes and closes the table. Spots returned earlier must no longer be used.
+     */
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close parking spot table " + file, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Compare-and-sets the occupant of a record and brings the availability indexes up to date.
+     */
+    private boolean casOccupant(int record, long expected, long occupant) {
+        readLock.lock();
+        try {
+            if (!OCCUPANT.compareAndSet(buffer, offset(record) + OCCUPANT_OFFSET, expected, occupant)) {
+                return false;
+            }
+            if (availabilityBuilt) {
+                // Concurrent changes of the same record can race here, so copy its state
+                // until it is seen unchanged after the write; the last change then always wins
+                AreaPartition area = partitionFor(areaCodeAt(record));
+                boolean free;
+                do {
+                    free = occupantAt(record) == VACANT;
+                    freeSpots.set(record, free);
+                    area.setFree(areaPositions[record], free);
+                } while (free != (occupantAt(record) == VACANT));
+            }
+            return true;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the record of a live spot, or -1. Requires a lock and, for unsorted records, the spot index.
+     */
+    private int locate(int spotNumber) {
+        if (!sorted) {
+            return spotIndex.get(spotNumber); // NO_VALUE is -1 as well
+        }
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midNumber = spotNumberAt(mid);
+            if (midNumber < spotNumber) {
+                low = mid + 1;
+            } else if (midNumber > spotNumber) {
+                high = mid - 1;
+            } else {
+                return occupantAt(mid) == DELETED ? -1 : mid;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureSpotIndex() {
+        if (sorted || spotIndexBuilt) {
+            return; // Sorted records are binary-searched instead
+        }
+        writeLock.lock();
+        try {
+            if (!sorted) {
+                buildSpotIndex();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Indexes the live records by spot number. Requires the write lock.
+     */
+    private void buildSpotIndex() {
+        if (spotIndexBuilt) {
+            return;
+        }
+        int count = recordCount;
+        for (int record = 0; record < count; record++) {
+            if (occupantAt(record) != DELETED) {
+                spotIndex.put(spotNumberAt(record), record);
+            }
+        }
+        spotIndexBuilt = true;
+    }
+
+    /**
+     * Builds the free-spot bitmap and area partitions with one scan of the file, on first use.
+     */
+    private void ensureAvailability() {
+        if (availabilityBuilt) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            if (availabilityBuilt) {
+                return;
+            }
+            int count = recordCount;
+            areaPositions = new int[Math.max(16, count)];
+            freeSpots.ensureCapacity(Math.max(0, count - 1));
+            for (int record = 0; record < count; record++) {
+                long occupant = occupantAt(record);
+                if (occupant != DELETED) {
+                    freeSpots.set(record, occupant == VACANT);
+                    areaPositions[record] = partitionFor(areaCodeAt(record)).add(record, occupant == VACANT);
+                }
+            }
+            availabilityBuilt = true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the partition of an area, creating it on first use. Creating one requires the write lock;
+     * the area of a stored record always has a partition once the availability indexes are built.
+     */
+    private AreaPartition partitionFor(int areaCode) {
+        int areaSlot = areaIndex.get(areaCode);
+        if (areaSlot == IntIndexMap.NO_VALUE) {
+            areaSlot = areas.size();
+            areas.add(new AreaPartition(areaCode));
+            areaIndex.put(areaCode, areaSlot);
+        }
+        return areas.get(areaSlot);
+    }
+
+    /**
+     * Grows the mapping so that it holds at least the given number of records. Requires the write lock.
+     */
+    private void ensureCapacity(int records) {
+        if (records <= capacity) {
+            return;
+        }
+        if (records > MAX_CAPACITY) {
+            throw new IllegalStateException("Parking spot table is full: " + file);
+        }
+        try {
+            map((int) Math.min(Math.max((long) capacity * 2, records), MAX_CAPACITY));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not grow parking spot table " + file, e);
+        }
+    }
+
+    private void map(int records) throws IOException {
+        buffer = (MappedByteBuffer) channel.map(FileChannel.MapMode.READ_WRITE, 0, offset(records))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        capacity = records;
+    }
+
+    private static int offset(int record) {
+        return HEADER_BYTES + record * RECORD_BYTES;
+    }
+
+    private int spotNumberAt(int record) {
+        return buffer.getInt(offset(record));
+    }
+
+    private int areaCodeAt(int record) {
+        return buffer.getInt(offset(record) + AREA_OFFSET);
+    }
+
+    private long occupantAt(int record) {
+        return (long) OCCUPANT.getVolatile(buffer, offset(record) + OCCUPANT_OFFSET);
+    }
+
+    private Optional<ParkingSpot> spotAt(int record) {
+        return record < 0 ? Optional.empty() : Optional.of(new SpotView(record));
+    }
+
+    private static long occupantOf(ParkingSpot parkingSpot) {
+        Reservation reservation = parkingSpot.getCurrentReservation();
+        if (reservation != null) {
+            return reservation.getId();
+        }
+        return parkingSpot.isOccupied() ? OCCUPIED_WITHOUT_RESERVATION : VACANT;
+    }
+
+    private static long reservationIdOf(Reservation reservation) {
+        if (reservation == null) {
+            throw new IllegalArgumentException("Reservation cannot be null.");
+        }
+        if (reservation.getId() <= 0) {
+            throw new IllegalArgumentException("Reservation ID must be positive: " + reservation.getId());
+        }
+        return reservation.getId();
+    }
+
+    private void validate(ParkingSpot parkingSpot) {
+        if (parkingSpot == null || parkingSpot.getSpotNumber() == null) {
+            throw new IllegalArgumentException("Invalid parking spot: spotNumber cannot be null.");
+        }
+        if (parkingSpot.getAreaCode() == null) {
+            throw new IllegalArgumentException("Invalid parking spot: areaCode cannot be null.");
+        }
+    }
+
+    /**
+     * Flyweight parking spot that reads and changes its record in the mapped file.
+     * Two views of the same record are interchangeable.
+     */
+    private final class SpotView extends ParkingSpot {
+
+        private final int record;
+
+        SpotView(int record) {
+            super(null, null);
+            this.record = record;
+        }
+
+        MappedParkingSpotDao owner() {
+            return MappedParkingSpotDao.this;
+        }
+
+        @Override
+        public Integer getSpotNumber() {
+            return spotNumberAt(record);
+        }
+
+        @Override
+        public Integer getAreaCode() {
+            return areaCodeAt(record);
+        }
+
+        @Override
+        public boolean isOccupied() {
+            long occupant = occupantAt(record);
+            return occupant != VACANT && occupant != DELETED;
+        }
+
+        @Override
+        public Reservation getCurrentReservation() {
+            long occupant = occupantAt(record);
+            return occupant > 0 ? reservationResolver.apply(occupant) : null;
+        }
+
+        @Override
+        public boolean tryOccupy(Reservation reservation) {
+            if (!casOccupant(record, VACANT, reservationIdOf(reservation))) {
+                return false;
+            }
+            notifyListener(true);
+            return true;
+        }
+
+        @Override
+        public boolean tryVacate(Reservation reservation) {
+            if (!casOccupant(record, reservationIdOf(reservation), VACANT)) {
+                return false;
+            }
+            notifyListener(false);
+            return true;
+        }
+
+        @Override
+        public void occupy() {
+            if (casOccupant(record, VACANT, OCCUPIED_WITHOUT_RESERVATION)) {
+                notifyListener(true);
+            }
+        }
+
+        @Override
+        public void vacate() {
+            while (true) {
+                long occupant = occupantAt(record);
+                if (occupant == VACANT || occupant == DELETED) {
+                    return;
+                }
+                if (casOccupant(record, occupant, VACANT)) {
+                    notifyListener(false);
+                    return;
+                }
+            }
+        }
+
+        private void notifyListener(boolean occupied) {
+            OccupancyListener listener = getOccupancyListener();
+            if (listener != null) {
+                listener.occupancyChanged(this, occupied);
+            }
+            for (OccupancyListener occupancyListener : occupancyListeners) {
+                occupancyListener.occupancyChanged(this, occupied);
+            }
+        }
+    }
+}
@@ -1,81 +1,354 @@
 package com.markus.parkingapp.dao.impl;
 
-import se.lexicon.dao.ParkingSpotDao;
-import se.lexicon.model.ParkingSpot;
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.dao.index.AreaPartition;
+import com.markus.parkingapp.dao.index.FreeSpotBitmap;
+import com.markus.parkingapp.dao.index.IntIndexMap;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Thread-safe in-memory implementation of {@link ParkingSpotDao}.
+ * <p>
+ * Lookups and occupancy changes share a read lock: spots are claimed and the free-spot
+ * bitmaps are updated with compare-and-set, so reserving and vacating proceed in parallel.
+ * Only structural changes (create, delete, replacing a spot object) take the write lock.
+ */
 public class ParkingSpotDaoImpl implements ParkingSpotDao {
 
-    private final List<ParkingSpot> parkingSpots = new ArrayList<>(); // In-memory storage for parking spots
+    private static final int MIN_COMPACT_SIZE = 64; // Below this many deleted slots, compaction is not worth it
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+
+    // In-memory storage for parking spots, kept in insertion order.
+    // Deleted spots leave a null slot behind until the array is compacted.
+    private ParkingSpot[] slots = new ParkingSpot[16];
+    private int slotCount;    // Number of used slots, including deleted ones
+    private int deletedCount; // Number of deleted (null) slots below slotCount
+
+    private final IntIndexMap spotIndex = new IntIndexMap(); // Spot number -> slot position
+    private final FreeSpotBitmap freeSpots = new FreeSpotBitmap(); // Slot positions of vacant spots
+
+    // Spots partitioned by area code, each partition with its own availability counter
+    private final IntIndexMap areaIndex = new IntIndexMap(); // Area code -> index into areas
+    private final List<AreaPartition> areas = new ArrayList<>();
+    private int[] areaPositions = new int[16]; // Slot position -> local position within its area
+
+    private final List<ParkingSpot.OccupancyListener> occupancyListeners = new CopyOnWriteArrayList<>();
+
+    // Keeps the free-spot bitmaps current when a stored spot is occupied or vacated.
+    // Notifications of one spot can race, so the spot's current state is copied until
+    // it is seen unchanged after the write; the last notification then always wins.
+    // Registered listeners are notified afterwards, outside the lock.
+    private final ParkingSpot.OccupancyListener occupancyTracker = (spot, occupied) -> {
+        boolean stored = false;
+        readLock.lock();
+        try {
+            int slot = spotIndex.get(spot.getSpotNumber());
+            if (slot != IntIndexMap.NO_VALUE && slots[slot] == spot) {
+                stored = true;
+                AreaPartition area = partitionOf(spot);
+                boolean free;
+                do {
+                    free = !spot.isOccupied();
+                    freeSpots.set(slot, free);
+                    area.setFree(areaPositions[slot], free);
+                } while (free == spot.isOccupied());
+            }
+        } finally {
+            readLock.unlock();
+        }
+        if (stored) {
+            for (ParkingSpot.OccupancyListener listener : occupancyListeners) {
+                listener.occupancyChanged(spot, occupied);
+            }
+        }
+    };
+
+    @Override
+    public void addOccupancyListener(ParkingSpot.OccupancyListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+        occupancyListeners.add(listener);
+    }
+
+    @Override
+    public void removeOccupancyListener(ParkingSpot.OccupancyListener listener) {
+        occupancyListeners.remove(listener);
+    }
 
     @Override
     public ParkingSpot create(ParkingSpot parkingSpot) {
-        parkingSpots.add(parkingSpot);
-        return parkingSpot;
+        validate(parkingSpot);
+        int spotNumber = parkingSpot.getSpotNumber();
+
+        writeLock.lock();
+        try {
+            if (spotIndex.containsKey(spotNumber)) {
+                throw new IllegalArgumentException("Parking spot already exists: " + spotNumber);
+            }
+
+            if (slotCount == slots.length) {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+                areaPositions = Arrays.copyOf(areaPositions, slots.length);
+            }
+            int slot = slotCount++;
+            store(slot, parkingSpot);
+            areaPositions[slot] = partitionFor(parkingSpot.getAreaCode()).add(slot, !parkingSpot.isOccupied());
+            spotIndex.put(spotNumber, slot);
+            return parkingSpot;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
     public List<ParkingSpot> findAll() {
-        return new ArrayList<>(parkingSpots); // Return a copy to avoid modification of the original list
+        readLock.lock();
+        try {
+            // Return a copy to avoid modification of the original storage
+            List<ParkingSpot> list = new ArrayList<>(slotCount - deletedCount);
+            for (int i = 0; i < slotCount; i++) {
+                if (slots[i] != null) {
+                    list.add(slots[i]);
+                }
+            }
+            return list;
+        } finally {
+            readLock.unlock();
+        }
     }
 
     @Override
     public Optional<ParkingSpot> findBySpotNumber(Integer spotNumber) {
-        for (ParkingSpot spot : parkingSpots) {
-            if (spot.getSpotNumber().equals(spotNumber)) {
-                return Optional.of(spot);
-            }
+        if (spotNumber == null) {
+            return Optional.empty();
+        }
+        readLock.lock();
+        try {
+            int slot = spotIndex.get(spotNumber);
+            return slot == IntIndexMap.NO_VALUE ? Optional.empty() : Optional.of(slots[slot]);
+        } finally {
+            readLock.unlock();
         }
-        return Optional.empty();
     }
 
     @Override
     public List<ParkingSpot> findAvailableSpots() {
-        // Filter for vacant spots
-        List<ParkingSpot> list = new ArrayList<>();
-        for (ParkingSpot spot : parkingSpots) {
-            if (!spot.isOccupied()) {
-                list.add(spot);
+        readLock.lock();
+        try {
+            // Visit only the vacant slots recorded in the bitmap
+            List<ParkingSpot> list = new ArrayList<>(freeSpots.freeCount());
+            for (int i = freeSpots.nextFree(0); i != FreeSpotBitmap.NONE; i = freeSpots.nextFree(i + 1)) {
+                list.add(slots[i]);
             }
+            return list;
+        } finally {
+            readLock.unlock();
         }
-        return list;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The iteration is weakly consistent: it never fails with concurrent changes, but may
+     * or may not reflect spots occupied, vacated, created or deleted while it is in progress.
+     */
+    @Override
+    public Iterable<ParkingSpot> availableSpots() {
+        return () -> new Iterator<>() {
+            private ParkingSpot next = advance(0);
+            private int nextSlot;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public ParkingSpot next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                ParkingSpot spot = next;
+                next = advance(nextSlot + 1);
+                return spot;
+            }
+
+            private ParkingSpot advance(int fromSlot) {
+                readLock.lock();
+                try {
+                    int slot = freeSpots.nextFree(fromSlot);
+                    if (slot == FreeSpotBitmap.NONE) {
+                        return null;
+                    }
+                    nextSlot = slot;
+                    return slots[slot];
+                } finally {
+                    readLock.unlock();
+                }
+            }
+        };
+    }
 
     @Override
-    public void update(ParkingSpot parkingSpot) {
-        // Validate input
-        if (parkingSpot == null || parkingSpot.getSpotNumber() == null) {
-            throw new IllegalArgumentException("Invalid parking spot: spotNumber cannot be null.");
+    public int countAvailableSpots() {
+        return freeSpots.freeCount();
+    }
+
+    @Override
+    public Optional<ParkingSpot> findFirstAvailableSpot() {
+        readLock.lock();
+        try {
+            return spotAt(freeSpots.nextFree(0));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<ParkingSpot> findNextAvailableSpot(Integer spotNumber) {
+        if (spotNumber == null) {
+            return Optional.empty();
+        }
+        readLock.lock();
+        try {
+            int slot = spotIndex.get(spotNumber);
+            return slot == IntIndexMap.NO_VALUE ? Optional.empty() : spotAt(freeSpots.nextFree(slot));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryOccupy(Integer spotNumber, Reservation reservation) {
+        if (reservation == null || !reservation.getParkingSpot().getSpotNumber().equals(spotNumber)) {
+            throw new IllegalArgumentException("Reservation is not for parking spot: " + spotNumber);
+        }
+        return findBySpotNumber(spotNumber)
+                .orElseThrow(() -> new IllegalArgumentException("Parking spot not found: " + spotNumber))
+                .tryOccupy(reservation);
+    }
+
+    @Override
+    public boolean tryVacate(Integer spotNumber, Reservation reservation) {
+        return findBySpotNumber(spotNumber)
+                .orElseThrow(() -> new IllegalArgumentException("Parking spot not found: " + spotNumber))
+                .tryVacate(reservation);
+    }
+
+    @Override
+    public List<ParkingSpot> findByArea(int areaCode) {
+        readLock.lock();
+        try {
+            int areaSlot = areaIndex.get(areaCode);
+            if (areaSlot == IntIndexMap.NO_VALUE) {
+                return new ArrayList<>();
+            }
+
+            AreaPartition area = areas.get(areaSlot);
+            List<ParkingSpot> list = new ArrayList<>(area.spotCount());
+            for (int i = 0; i < area.positionCount(); i++) {
+                if (area.slotAt(i) != AreaPartition.REMOVED) {
+                    list.add(slots[area.slotAt(i)]);
+                }
+            }
+            return list;
+        } finally {
+            readLock.unlock();
         }
+    }
 
-        // Find the existing parking spot
-        Optional<ParkingSpot> existingSpot = findBySpotNumber(parkingSpot.getSpotNumber());
-        if (existingSpot.isPresent()) {
-            // Update the existing parking spot
-            int index = parkingSpots.indexOf(existingSpot.get());
-            parkingSpots.set(index, parkingSpot);
-        } else {
-            throw new IllegalArgumentException("Parking spot not found: " + parkingSpot.getSpotNumber());
+    @Override
+    public List<ParkingSpot> findAvailableByArea(int areaCode) {
+        readLock.lock();
+        try {
+            int areaSlot = areaIndex.get(areaCode);
+            if (areaSlot == IntIndexMap.NO_VALUE) {
+                return new ArrayList<>();
+            }
+
+            // Visit only the vacant spots of this area
+            AreaPartition area = areas.get(areaSlot);
+            List<ParkingSpot> list = new ArrayList<>(area.freeCount());
+            for (int i = area.nextFree(0); i != FreeSpotBitmap.NONE; i = area.nextFree(i + 1)) {
+                list.add(slots[area.slotAt(i)]);
+            }
+            return list;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int countAvailableByArea(int areaCode) {
+        readLock.lock();
+        try {
+            int areaSlot = areaIndex.get(areaCode);
+            return areaSlot == IntIndexMap.NO_VALUE ? 0 : areas.get(areaSlot).freeCount();
+        } finally {
+            readLock.unlock();
         }
     }
 
 
-    /*@Override
+    @Override
     public void update(ParkingSpot parkingSpot) {
-        // Find the existing parking spot
-        Optional<ParkingSpot> existingSpot = findBySpotNumber(parkingSpot.getSpotNumber());
-        if (existingSpot.isPresent()) {
-            // Replace the old entry with the updated one
-            parkingSpots.remove(existingSpot.get());
-            parkingSpots.add(parkingSpot);
-        } else {
-            throw new IllegalArgumentException("Parking spot not found: " + parkingSpot.getSpotNumber());
+        // Validate input
+        validate(parkingSpot);
+
+        // Fast path: the stored spot object itself was changed, and its occupancy
+        // listener has already brought the indexes up to date
+        readLock.lock();
+        try {
+            int slot = spotIndex.get(parkingSpot.getSpotNumber());
+            if (slot == IntIndexMap.NO_VALUE) {
+                throw new IllegalArgumentException("Parking spot not found: " + parkingSpot.getSpotNumber());
+            }
+            if (slots[slot] == parkingSpot && parkingSpot.getOccupancyListener() == occupancyTracker) {
+                return;
+            }
+        } finally {
+            readLock.unlock();
         }
-    }*/
+
+        writeLock.lock();
+        try {
+            // Replace the existing parking spot in its slot, keeping its position in findAll
+            int slot = spotIndex.get(parkingSpot.getSpotNumber());
+            if (slot == IntIndexMap.NO_VALUE) {
+                throw new IllegalArgumentException("Parking spot not found: " + parkingSpot.getSpotNumber());
+            }
+            ParkingSpot existing = slots[slot];
+            if (existing != parkingSpot) {
+                release(existing);
+            }
+
+            // Move the spot to its new area if the area code changed
+            if (existing.getAreaCode().equals(parkingSpot.getAreaCode())) {
+                partitionOf(existing).setFree(areaPositions[slot], !parkingSpot.isOccupied());
+            } else {
+                partitionOf(existing).remove(areaPositions[slot]);
+                areaPositions[slot] = partitionFor(parkingSpot.getAreaCode()).add(slot, !parkingSpot.isOccupied());
+            }
+            store(slot, parkingSpot);
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
     @Override
     public boolean delete(Integer spotNumber) {
@@ -83,14 +356,103 @@ public class ParkingSpotDaoImpl implements ParkingSpotDao {
             throw new IllegalArgumentException("Spot number cannot be null.");
         }
 
-        for (ParkingSpot spot : parkingSpots) {
-            if (spot.getSpotNumber().equals(spotNumber)) {
-                parkingSpots.remove(spot);
-                return true; // Successfully deleted
+        writeLock.lock();
+        try {
+            int slot = spotIndex.remove(spotNumber);
+            if (slot == IntIndexMap.NO_VALUE) {
+                return false; // Spot not found
             }
+
+            ParkingSpot existing = slots[slot];
+            release(existing);
+            partitionOf(existing).remove(areaPositions[slot]);
+            slots[slot] = null;
+            freeSpots.set(slot, false);
+            deletedCount++;
+            if (deletedCount >= MIN_COMPACT_SIZE && deletedCount * 2 > slotCount) {
+                compact();
+            }
+            return true; // Successfully deleted
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void validate(ParkingSpot parkingSpot) {
+        if (parkingSpot == null || parkingSpot.getSpotNumber() == null) {
+            throw new IllegalArgumentException("Invalid parking spot: spotNumber cannot be null.");
+        }
+        if (parkingSpot.getAreaCode() == null) {
+            throw new IllegalArgumentException("Invalid parking spot: areaCode cannot be null.");
+        }
+    }
+
+    /**
+     * Returns the partition of an area, creating it on first use. Requires the write lock.
+     */
+    private AreaPartition partitionFor(int areaCode) {
+        int areaSlot = areaIndex.get(areaCode);
+        if (areaSlot == IntIndexMap.NO_VALUE) {
+            areaSlot = areas.size();
+            areas.add(new AreaPartition(areaCode));
+            areaIndex.put(areaCode, areaSlot);
         }
+        return areas.get(areaSlot);
+    }
+
+    private AreaPartition partitionOf(ParkingSpot parkingSpot) {
+        return areas.get(areaIndex.get(parkingSpot.getAreaCode()));
+    }
 
-        return false; // Spot not found
+    /**
+     * Puts a spot into a slot and starts tracking its occupancy. Requires the write lock.
+     * The bitmap is sized for the slot whether the spot is vacant or not, so a later
+     * vacate only flips a bit under the read lock.
+     */
+    private void store(int slot, ParkingSpot parkingSpot) {
+        slots[slot] = parkingSpot;
+        freeSpots.ensureCapacity(slot);
+        parkingSpot.setOccupancyListener(occupancyTracker);
+        freeSpots.set(slot, !parkingSpot.isOccupied());
+    }
+
+    /**
+     * Stops tracking a spot that is no longer stored in this DAO.
+     */
+    private void release(ParkingSpot parkingSpot) {
+        if (parkingSpot.getOccupancyListener() == occupancyTracker) {
+            parkingSpot.setOccupancyListener(null);
+        }
+    }
+
+    private Optional<ParkingSpot> spotAt(int slot) {
+        return slot == FreeSpotBitmap.NONE ? Optional.empty() : Optional.of(slots[slot]);
+    }
+
+    /**
+     * Removes the null slots left by deletions and re-points the indexes at the new positions.
+     * The area partitions are rebuilt as well, which drops the positions of removed spots.
+     * Runs only once more than half of the slots are deleted, so deletes stay amortized O(1).
+     * Requires the write lock.
+     */
+    private void compact() {
+        freeSpots.clear();
+        areas.clear();
+        areaIndex.clear();
+        int target = 0;
+        for (int i = 0; i < slotCount; i++) {
+            ParkingSpot spot = slots[i];
+            if (spot != null) {
+                slots[target] = spot;
+                spotIndex.put(spot.getSpotNumber(), target);
+                freeSpots.set(target, !spot.isOccupied());
+                areaPositions[target] = partitionFor(spot.getAreaCode()).add(target, !spot.isOccupied());
+                target++;
+            }
+        }
+        Arrays.fill(slots, target, slotCount, null);
+        slotCount = target;
+        deletedCount = 0;
     }
 
 }
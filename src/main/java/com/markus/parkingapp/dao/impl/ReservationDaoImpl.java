@@ -1,68 +1,217 @@
 package com.markus.parkingapp.dao.impl;
 
-import se.lexicon.dao.ReservationDao;
-import se.lexicon.model.Reservation;
+import com.markus.parkingapp.dao.ReservationDao;
+import com.markus.parkingapp.dao.archive.ReservationArchive;
+import com.markus.parkingapp.model.Reservation;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Thread-safe in-memory implementation of {@link ReservationDao}.
+ * <p>
+ * Active reservations are kept in a concurrent map keyed by reservation ID, so the console
+ * thread and the reservation scheduler can read and write without external locking.
+ * Once a reservation is completed it moves to an append-only {@link ReservationArchive},
+ * so lookups of active reservations scale with the number of parked cars, not with history.
+ * <p>
+ * Two secondary indexes are kept in sync by {@link #create} and {@link #update}:
+ * customer ID to the IDs of all their reservations, and spot number to the active
+ * reservation holding the spot. Scheduled reservations count as active reservations
+ * but do not hold their spot until they start.
+ */
 public class ReservationDaoImpl implements ReservationDao {
 
-    private final List<Reservation> reservations = new ArrayList<>(); // In-memory storage
+    private final Map<String, Reservation> activeReservations = new ConcurrentHashMap<>(); // Hot state
+    private final ReservationArchive archive = new ReservationArchive(); // Completed reservations
+
+    private final Map<Integer, Queue<String>> reservationIdsByCustomer = new ConcurrentHashMap<>(); // Oldest first
+    private final Map<Integer, Reservation> activeBySpot = new ConcurrentHashMap<>();
 
     @Override
     public Reservation create(Reservation reservation) {
-        reservations.add(reservation);
+        validate(reservation);
+        String reservationId = reservation.getReservationId();
+        if (archive.contains(reservationId)) {
+            throw new IllegalArgumentException("Reservation already exists: " + reservationId);
+        }
+
+        if (reservation.getStatus() == Reservation.Status.COMPLETED) {
+            if (activeReservations.containsKey(reservationId) || !archive.append(reservation)) {
+                throw new IllegalArgumentException("Reservation already exists: " + reservationId);
+            }
+        } else if (activeReservations.putIfAbsent(reservationId, reservation) != null) {
+            throw new IllegalArgumentException("Reservation already exists: " + reservationId);
+        } else if (reservation.getStatus() == Reservation.Status.ACTIVE) {
+            indexBySpot(reservation);
+        }
+
+        reservationIdsByCustomer
+                .computeIfAbsent(reservation.getCustomer().getId(), id -> new ConcurrentLinkedQueue<>())
+                .add(reservationId);
         return reservation;
     }
 
     @Override
     public Optional<Reservation> findById(String reservationId) {
-        for (Reservation reservation : reservations) {
-            if (reservation.getReservationId().equals(reservationId)) {
-                return Optional.of(reservation);
-            }
+        if (reservationId == null) {
+            return Optional.empty();
         }
-        return Optional.empty();
+        Reservation reservation = activeReservations.get(reservationId);
+        return reservation != null ? Optional.of(reservation) : archive.findById(reservationId);
     }
 
     @Override
     public List<Reservation> findAll() {
-        return new ArrayList<>(reservations); // Return a copy to prevent modification
+        // Return a copy to prevent modification, completed reservations first
+        List<Reservation> list = new ArrayList<>(archive.size() + activeReservations.size());
+        archive.forEach(list::add);
+        list.addAll(activeReservations.values());
+        return list;
+    }
+
+    /**
+     * Streams the archive without copying it, completed reservations first. The archive splits
+     * evenly for parallel streams; reservations completed while streaming may be seen twice or not at all.
+     */
+    @Override
+    public Stream<Reservation> stream() {
+        return Stream.concat(StreamSupport.stream(archive.spliterator(), false), activeReservations.values().stream());
+    }
+
+    @Override
+    public List<Reservation> findActive() {
+        return new ArrayList<>(activeReservations.values());
     }
 
 
     @Override
     public void update(Reservation reservation) {
-        if (reservation == null || reservation.getReservationId() == null) {
-            throw new IllegalArgumentException("Reservation or Reservation ID cannot be null.");
+        validate(reservation);
+        String reservationId = reservation.getReservationId();
+
+        if (reservation.getStatus() == Reservation.Status.COMPLETED) {
+            // Archive first and then drop from the active map, so readers always find it in one of the two.
+            // A reservation completed twice (e.g. vacated while expiring) is archived only once.
+            if (!activeReservations.containsKey(reservationId) && !archive.contains(reservationId)) {
+                throw new IllegalArgumentException("Reservation not found: " + reservationId);
+            }
+            archive.append(reservation);
+            activeReservations.remove(reservationId);
+            removeFromSpotIndex(reservation);
+            return;
+        }
+
+        if (archive.contains(reservationId)) {
+            throw new IllegalArgumentException("Reservation is completed and can no longer be updated: " + reservationId);
         }
 
-        for (int i = 0; i < reservations.size(); i++) {
-            if (reservations.get(i).getReservationId().equals(reservation.getReservationId())) {
-                reservations.set(i, reservation); // Update the reservation in place
-                return;
+        // Update the reservation in place, only if it exists
+        if (activeReservations.replace(reservationId, reservation) == null) {
+            throw new IllegalArgumentException("Reservation not found: " + reservationId);
+        }
+        if (reservation.getStatus() == Reservation.Status.ACTIVE) {
+            indexBySpot(reservation); // e.g. a scheduled one that started
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every reservation is checked before any is added, so a batch with an invalid or
+     * duplicate reservation is refused as a whole.
+     */
+    @Override
+    public List<Reservation> createAll(List<Reservation> reservations) {
+        Set<String> batchIds = new HashSet<>();
+        for (Reservation reservation : reservations) {
+            validate(reservation);
+            String reservationId = reservation.getReservationId();
+            if (!batchIds.add(reservationId) || activeReservations.containsKey(reservationId) || archive.contains(reservationId)) {
+                throw new IllegalArgumentException("Reservation already exists: " + reservationId);
             }
         }
+        List<Reservation> created = new ArrayList<>(reservations.size());
+        for (Reservation reservation : reservations) {
+            created.add(create(reservation));
+        }
+        return created;
+    }
 
-        throw new IllegalArgumentException("Reservation not found: " + reservation.getReservationId());
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every reservation is checked to exist before any is completed.
+     */
+    @Override
+    public void completeAll(List<Reservation> reservations) {
+        for (Reservation reservation : reservations) {
+            validate(reservation);
+            String reservationId = reservation.getReservationId();
+            if (!activeReservations.containsKey(reservationId) && !archive.contains(reservationId)) {
+                throw new IllegalArgumentException("Reservation not found: " + reservationId);
+            }
+        }
+        for (Reservation reservation : reservations) {
+            reservation.complete();
+            update(reservation);
+        }
     }
 
     /**
      * Finds reservations associated with a specific customer.
      *
      * @param customerId The ID of the customer.
-     * @return A list of reservations belonging to the given customer.
+     * @return A list of reservations belonging to the given customer, oldest first.
      */
+    @Override
     public List<Reservation> findByCustomerId(Integer customerId) {
         List<Reservation> list = new ArrayList<>();
-        for (Reservation reservation : reservations) {
-            if (reservation.getCustomer().getId().equals(customerId)) {
-                list.add(reservation);
+        Queue<String> reservationIds = customerId == null ? null : reservationIdsByCustomer.get(customerId);
+        if (reservationIds != null) {
+            for (String reservationId : reservationIds) {
+                findById(reservationId).ifPresent(list::add);
             }
         }
         return list;
     }
+
+    @Override
+    public Optional<Reservation> findActiveBySpotNumber(Integer spotNumber) {
+        return spotNumber == null ? Optional.empty() : Optional.ofNullable(activeBySpot.get(spotNumber));
+    }
+
+    /**
+     * Indexes an active reservation by its spot. A completion racing with this call may already
+     * have dropped the spot's entry, so the status is checked again once the entry is in place.
+     */
+    private void indexBySpot(Reservation reservation) {
+        activeBySpot.put(reservation.getParkingSpot().getSpotNumber(), reservation);
+        if (reservation.getStatus() == Reservation.Status.COMPLETED) {
+            removeFromSpotIndex(reservation);
+        }
+    }
+
+    /**
+     * Drops the spot index entry of a completed reservation, unless the spot is already held by another one.
+     */
+    private void removeFromSpotIndex(Reservation reservation) {
+        activeBySpot.computeIfPresent(reservation.getParkingSpot().getSpotNumber(),
+                (spotNumber, current) -> current.getReservationId().equals(reservation.getReservationId()) ? null : current);
+    }
+
+    private void validate(Reservation reservation) {
+        if (reservation == null || reservation.getReservationId() == null) {
+            throw new IllegalArgumentException("Reservation or Reservation ID cannot be null.");
+        }
+    }
 }
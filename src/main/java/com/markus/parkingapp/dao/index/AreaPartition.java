@@ -0,0 +1,91 @@
+package com.markus.parkingapp.dao.index;
+
+import java.util.Arrays;
+
+/**
+ * The parking spots of a single area, held as slot positions of the owning DAO.
+ * Keeps its own free-spot bitmap so per-area availability is counted incrementally
+ * and never requires scanning the spots of other areas.
+ * <p>
+ * Vacancy flags may be flipped concurrently; adding and removing spots requires
+ * exclusive access, which the owning DAO guarantees with its write lock.
+ */
+public class AreaPartition {
+
+    public static final int REMOVED = -1; // Marks a local position whose spot was removed
+
+    private final int areaCode;
+    private int[] slots = new int[8]; // Local position -> slot position in the owning DAO
+    private int size;                 // Number of used local positions, including removed ones
+    private int spotCount;            // Number of spots currently in the area
+    private final FreeSpotBitmap freeSpots = new FreeSpotBitmap(); // Local positions of vacant spots
+
+    public AreaPartition(int areaCode) {
+        this.areaCode = areaCode;
+    }
+
+    public int getAreaCode() {
+        return areaCode;
+    }
+
+    /**
+     * Adds a spot to the area.
+     *
+     * @param slot The slot position of the spot in the owning DAO.
+     * @param free True if the spot is vacant.
+     * @return The local position of the spot within this area.
+     */
+    public int add(int slot, boolean free) {
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        slots[size] = slot;
+        freeSpots.ensureCapacity(size);
+        freeSpots.set(size, free);
+        spotCount++;
+        return size++;
+    }
+
+    /**
+     * Removes the spot at the given local position from the area.
+     */
+    public void remove(int position) {
+        if (slots[position] != REMOVED) {
+            slots[position] = REMOVED;
+            freeSpots.set(position, false);
+            spotCount--;
+        }
+    }
+
+    public void setFree(int position, boolean free) {
+        freeSpots.set(position, free);
+    }
+
+    public int slotAt(int position) {
+        return slots[position];
+    }
+
+    public int freeCount() {
+        return freeSpots.freeCount();
+    }
+
+    public int spotCount() {
+        return spotCount;
+    }
+
+    /**
+     * Returns the number of local positions handed out, including those of removed spots.
+     */
+    public int positionCount() {
+        return size;
+    }
+
+    /**
+     * Finds the first vacant spot at or after the given local position.
+     *
+     * @return The local position, or {@link FreeSpotBitmap#NONE} if there is none.
+     */
+    public int nextFree(int fromPosition) {
+        return freeSpots.nextFree(fromPosition);
+    }
+}
@@ -0,0 +1,112 @@
+package com.markus.parkingapp.dao.index;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bitset over slot positions where a set bit marks a vacant parking spot.
+ * Keeps a running count of set bits so availability counts are O(1), and finds
+ * the next vacant slot a whole 64-bit word at a time.
+ * <p>
+ * Bits are flipped with compare-and-set, so threads may update slots concurrently.
+ * {@link #set} never allocates: the owner sizes the bitset for every slot it adds with
+ * {@link #ensureCapacity}, which, like {@link #clear()}, requires exclusive access that
+ * the owning DAO guarantees with its write lock.
+ */
+public class FreeSpotBitmap {
+
+    public static final int NONE = -1; // Returned by nextFree when no vacant slot is left
+
+    private volatile AtomicLongArray words = new AtomicLongArray(1);
+    private final AtomicInteger freeCount = new AtomicInteger(); // Number of set bits
+
+    /**
+     * Makes room for a slot, so it can later be set without allocating. Requires exclusive access.
+     *
+     * @param slot The highest slot position that will be set.
+     */
+    public void ensureCapacity(int slot) {
+        int minLength = (slot >>> 6) + 1;
+        AtomicLongArray current = words;
+        if (minLength > current.length()) {
+            AtomicLongArray grown = new AtomicLongArray(Math.max(current.length() * 2, minLength));
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            words = grown;
+        }
+    }
+
+    /**
+     * Marks a slot as vacant (free) or not.
+     *
+     * @param slot The slot position.
+     * @param free True if the slot holds a vacant spot.
+     * @return True if the bit changed.
+     * @throws IndexOutOfBoundsException If a slot beyond the capacity is marked free.
+     */
+    public boolean set(int slot, boolean free) {
+        int wordIndex = slot >>> 6;
+        AtomicLongArray current = words;
+        if (wordIndex >= current.length()) {
+            if (!free) {
+                return false; // Bits beyond the array are already clear
+            }
+            throw new IndexOutOfBoundsException("Slot " + slot + " is beyond the capacity of "
+                    + (current.length() << 6) + " slots.");
+        }
+        long bit = 1L << slot; // Shift distance is taken modulo 64
+        while (true) {
+            long word = current.get(wordIndex);
+            if (((word & bit) != 0) == free) {
+                return false;
+            }
+            if (current.compareAndSet(wordIndex, word, free ? word | bit : word & ~bit)) {
+                freeCount.addAndGet(free ? 1 : -1);
+                return true;
+            }
+        }
+    }
+
+    public boolean isFree(int slot) {
+        int wordIndex = slot >>> 6;
+        AtomicLongArray current = words;
+        return wordIndex < current.length() && (current.get(wordIndex) & (1L << slot)) != 0;
+    }
+
+    public int freeCount() {
+        return freeCount.get();
+    }
+
+    /**
+     * Finds the first vacant slot at or after the given position.
+     *
+     * @param fromSlot The position to start searching from.
+     * @return The slot position, or {@link #NONE} if there is none.
+     */
+    public int nextFree(int fromSlot) {
+        if (fromSlot < 0) {
+            fromSlot = 0;
+        }
+        AtomicLongArray current = words;
+        int wordIndex = fromSlot >>> 6;
+        if (wordIndex >= current.length()) {
+            return NONE;
+        }
+        long word = current.get(wordIndex) & (-1L << fromSlot); // Ignore bits below fromSlot
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == current.length()) {
+                return NONE;
+            }
+            word = current.get(wordIndex);
+        }
+    }
+
+    public void clear() {
+        words = new AtomicLongArray(words.length());
+        freeCount.set(0);
+    }
+}
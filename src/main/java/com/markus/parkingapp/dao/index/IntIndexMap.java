@@ -0,0 +1,163 @@
+package com.markus.parkingapp.dao.index;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive int keys to non-negative int values.
+ * Used by the in-memory DAOs to map an entity key (e.g. a spot number) to its
+ * position in a backing array without boxing keys or values.
+ */
+public class IntIndexMap {
+
+    public static final int NO_VALUE = -1; // Returned by get/remove when the key is absent
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;    // Keys, valid only where values[i] != NO_VALUE
+    private int[] values;  // Values, NO_VALUE marks a free slot
+    private int size;      // Number of mappings
+    private int mask;      // capacity - 1, capacity is always a power of two
+
+    public IntIndexMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a map sized to hold the expected number of entries without rehashing.
+     *
+     * @param expectedSize The expected number of mappings.
+     */
+    public IntIndexMap(int expectedSize) {
+        allocate(tableSizeFor(Math.max(expectedSize, 1) * 2));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value mapped to the key.
+     *
+     * @param key The key to look up.
+     * @return The mapped value, or {@link #NO_VALUE} if the key is absent.
+     */
+    public int get(int key) {
+        int i = hash(key) & mask;
+        while (values[i] != NO_VALUE) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous mapping.
+     *
+     * @param key   The key.
+     * @param value The value, must not be negative.
+     * @return The previous value, or {@link #NO_VALUE} if there was none.
+     */
+    public int put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Index value cannot be negative: " + value);
+        }
+        int i = hash(key) & mask;
+        while (values[i] != NO_VALUE) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > values.length) {
+            rehash(values.length * 2);
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Removes the mapping for the key.
+     * Uses backward-shift deletion so no tombstones are left in the probe sequences.
+     *
+     * @param key The key to remove.
+     * @return The removed value, or {@link #NO_VALUE} if the key was absent.
+     */
+    public int remove(int key) {
+        int i = hash(key) & mask;
+        while (values[i] != NO_VALUE) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                shiftBack(i);
+                size--;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public void clear() {
+        Arrays.fill(values, NO_VALUE);
+        size = 0;
+    }
+
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == NO_VALUE) {
+                break;
+            }
+            int home = hash(keys[i]) & mask;
+            // Move the entry into the gap if the gap lies on its probe path
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = NO_VALUE;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != NO_VALUE) {
+                int j = hash(oldKeys[i]) & mask;
+                while (values[j] != NO_VALUE) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9; // Fibonacci hashing spreads sequential spot numbers
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = Integer.highestOneBit(Math.max(n - 1, 1)) << 1;
+        return Math.max(capacity, DEFAULT_CAPACITY);
+    }
+}
@@ -0,0 +1,96 @@
+package com.markus.parkingapp.dao.metered;
+
+import com.markus.parkingapp.dao.CustomerDao;
+import com.markus.parkingapp.metrics.LatencyHistogram;
+import com.markus.parkingapp.metrics.MetricsRegistry;
+import com.markus.parkingapp.model.Customer;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link CustomerDao} that records the latency of every operation of the wrapped DAO.
+ */
+public class MeteredCustomerDao implements CustomerDao {
+
+    private final CustomerDao delegate;
+    private final LatencyHistogram create;
+    private final LatencyHistogram restore;
+    private final LatencyHistogram findById;
+    private final LatencyHistogram findByPlate;
+    private final LatencyHistogram findByPhone;
+    private final LatencyHistogram findAll;
+
+    /**
+     * Wraps a DAO, recording into histograms named dao.customers.&lt;operation&gt; of the given registry.
+     */
+    public MeteredCustomerDao(CustomerDao delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.create = metrics.histogram("dao.customers.create");
+        this.restore = metrics.histogram("dao.customers.restore");
+        this.findById = metrics.histogram("dao.customers.findById");
+        this.findByPlate = metrics.histogram("dao.customers.findByPlate");
+        this.findByPhone = metrics.histogram("dao.customers.findByPhone");
+        this.findAll = metrics.histogram("dao.customers.findAll");
+    }
+
+    @Override
+    public Customer create(Customer customer) {
+        long start = System.nanoTime();
+        try {
+            return delegate.create(customer);
+        } finally {
+            create.recordSince(start);
+        }
+    }
+
+    @Override
+    public Customer restore(Customer customer) {
+        long start = System.nanoTime();
+        try {
+            return delegate.restore(customer);
+        } finally {
+            restore.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<Customer> findById(int id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findById(id);
+        } finally {
+            findById.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<Customer> findByPlate(String plateNumber) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByPlate(plateNumber);
+        } finally {
+            findByPlate.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<Customer> findByPhone(String phoneNumber) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByPhone(phoneNumber);
+        } finally {
+            findByPhone.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Customer> findAll() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            findAll.recordSince(start);
+        }
+    }
+}
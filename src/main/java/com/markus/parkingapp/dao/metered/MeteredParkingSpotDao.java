@@ -0,0 +1,223 @@
+package com.markus.parkingapp.dao.metered;
+
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.metrics.LatencyHistogram;
+import com.markus.parkingapp.metrics.MetricsRegistry;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link ParkingSpotDao} that records the latency of every operation of the wrapped DAO.
+ * <p>
+ * Registering listeners and iterating {@link #availableSpots()} lazily are passed through
+ * unmeasured; the iteration runs after the call returns.
+ */
+public class MeteredParkingSpotDao implements ParkingSpotDao {
+
+    private final ParkingSpotDao delegate;
+    private final LatencyHistogram create;
+    private final LatencyHistogram findAll;
+    private final LatencyHistogram findBySpotNumber;
+    private final LatencyHistogram findAvailableSpots;
+    private final LatencyHistogram countAvailableSpots;
+    private final LatencyHistogram hasAvailableSpots;
+    private final LatencyHistogram findFirstAvailableSpot;
+    private final LatencyHistogram findNextAvailableSpot;
+    private final LatencyHistogram findByArea;
+    private final LatencyHistogram findAvailableByArea;
+    private final LatencyHistogram countAvailableByArea;
+    private final LatencyHistogram tryOccupy;
+    private final LatencyHistogram tryVacate;
+    private final LatencyHistogram update;
+    private final LatencyHistogram delete;
+
+    /**
+     * Wraps a DAO, recording into histograms named dao.spots.&lt;operation&gt; of the given registry.
+     */
+    public MeteredParkingSpotDao(ParkingSpotDao delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.create = metrics.histogram("dao.spots.create");
+        this.findAll = metrics.histogram("dao.spots.findAll");
+        this.findBySpotNumber = metrics.histogram("dao.spots.findBySpotNumber");
+        this.findAvailableSpots = metrics.histogram("dao.spots.findAvailableSpots");
+        this.countAvailableSpots = metrics.histogram("dao.spots.countAvailableSpots");
+        this.hasAvailableSpots = metrics.histogram("dao.spots.hasAvailableSpots");
+        this.findFirstAvailableSpot = metrics.histogram("dao.spots.findFirstAvailableSpot");
+        this.findNextAvailableSpot = metrics.histogram("dao.spots.findNextAvailableSpot");
+        this.findByArea = metrics.histogram("dao.spots.findByArea");
+        this.findAvailableByArea = metrics.histogram("dao.spots.findAvailableByArea");
+        this.countAvailableByArea = metrics.histogram("dao.spots.countAvailableByArea");
+        this.tryOccupy = metrics.histogram("dao.spots.tryOccupy");
+        this.tryVacate = metrics.histogram("dao.spots.tryVacate");
+        this.update = metrics.histogram("dao.spots.update");
+        this.delete = metrics.histogram("dao.spots.delete");
+    }
+
+    @Override
+    public ParkingSpot create(ParkingSpot parkingSpot) {
+        long start = System.nanoTime();
+        try {
+            return delegate.create(parkingSpot);
+        } finally {
+            create.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<ParkingSpot> findAll() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            findAll.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<ParkingSpot> findBySpotNumber(Integer spotNumber) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findBySpotNumber(spotNumber);
+        } finally {
+            findBySpotNumber.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<ParkingSpot> findAvailableSpots() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAvailableSpots();
+        } finally {
+            findAvailableSpots.recordSince(start);
+        }
+    }
+
+    @Override
+    public int countAvailableSpots() {
+        long start = System.nanoTime();
+        try {
+            return delegate.countAvailableSpots();
+        } finally {
+            countAvailableSpots.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean hasAvailableSpots() {
+        long start = System.nanoTime();
+        try {
+            return delegate.hasAvailableSpots();
+        } finally {
+            hasAvailableSpots.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<ParkingSpot> findFirstAvailableSpot() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findFirstAvailableSpot();
+        } finally {
+            findFirstAvailableSpot.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<ParkingSpot> findNextAvailableSpot(Integer spotNumber) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findNextAvailableSpot(spotNumber);
+        } finally {
+            findNextAvailableSpot.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<ParkingSpot> findByArea(int areaCode) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByArea(areaCode);
+        } finally {
+            findByArea.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<ParkingSpot> findAvailableByArea(int areaCode) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAvailableByArea(areaCode);
+        } finally {
+            findAvailableByArea.recordSince(start);
+        }
+    }
+
+    @Override
+    public int countAvailableByArea(int areaCode) {
+        long start = System.nanoTime();
+        try {
+            return delegate.countAvailableByArea(areaCode);
+        } finally {
+            countAvailableByArea.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean tryOccupy(Integer spotNumber, Reservation reservation) {
+        long start = System.nanoTime();
+        try {
+            return delegate.tryOccupy(spotNumber, reservation);
+        } finally {
+            tryOccupy.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean tryVacate(Integer spotNumber, Reservation reservation) {
+        long start = System.nanoTime();
+        try {
+            return delegate.tryVacate(spotNumber, reservation);
+        } finally {
+            tryVacate.recordSince(start);
+        }
+    }
+
+    @Override
+    public void update(ParkingSpot parkingSpot) {
+        long start = System.nanoTime();
+        try {
+            delegate.update(parkingSpot);
+        } finally {
+            update.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean delete(Integer spotNumber) {
+        long start = System.nanoTime();
+        try {
+            return delegate.delete(spotNumber);
+        } finally {
+            delete.recordSince(start);
+        }
+    }
+
+    @Override
+    public Iterable<ParkingSpot> availableSpots() {
+        return delegate.availableSpots();
+    }
+
+    @Override
+    public void addOccupancyListener(ParkingSpot.OccupancyListener listener) {
+        delegate.addOccupancyListener(listener);
+    }
+
+    @Override
+    public void removeOccupancyListener(ParkingSpot.OccupancyListener listener) {
+        delegate.removeOccupancyListener(listener);
+    }
+}
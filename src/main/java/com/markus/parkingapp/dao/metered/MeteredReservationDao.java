@@ -0,0 +1,139 @@
+package com.markus.parkingapp.dao.metered;
+
+import com.markus.parkingapp.dao.ReservationDao;
+import com.markus.parkingapp.metrics.LatencyHistogram;
+import com.markus.parkingapp.metrics.MetricsRegistry;
+import com.markus.parkingapp.model.Reservation;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * {@link ReservationDao} that records the latency of every operation of the wrapped DAO.
+ * A batch is recorded once, as a whole.
+ */
+public class MeteredReservationDao implements ReservationDao {
+
+    private final ReservationDao delegate;
+    private final LatencyHistogram create;
+    private final LatencyHistogram findById;
+    private final LatencyHistogram findAll;
+    private final LatencyHistogram findActive;
+    private final LatencyHistogram findByCustomerId;
+    private final LatencyHistogram findActiveBySpotNumber;
+    private final LatencyHistogram update;
+    private final LatencyHistogram createAll;
+    private final LatencyHistogram completeAll;
+
+    /**
+     * Wraps a DAO, recording into histograms named dao.reservations.&lt;operation&gt; of the given registry.
+     */
+    public MeteredReservationDao(ReservationDao delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.create = metrics.histogram("dao.reservations.create");
+        this.findById = metrics.histogram("dao.reservations.findById");
+        this.findAll = metrics.histogram("dao.reservations.findAll");
+        this.findActive = metrics.histogram("dao.reservations.findActive");
+        this.findByCustomerId = metrics.histogram("dao.reservations.findByCustomerId");
+        this.findActiveBySpotNumber = metrics.histogram("dao.reservations.findActiveBySpotNumber");
+        this.update = metrics.histogram("dao.reservations.update");
+        this.createAll = metrics.histogram("dao.reservations.createAll");
+        this.completeAll = metrics.histogram("dao.reservations.completeAll");
+    }
+
+    @Override
+    public Reservation create(Reservation reservation) {
+        long start = System.nanoTime();
+        try {
+            return delegate.create(reservation);
+        } finally {
+            create.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<Reservation> findById(String reservationId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findById(reservationId);
+        } finally {
+            findById.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Reservation> findAll() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            findAll.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Reservation> findActive() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findActive();
+        } finally {
+            findActive.recordSince(start);
+        }
+    }
+
+    @Override
+    public Stream<Reservation> stream() {
+        return delegate.stream(); // Consumed after the call returns, so not measured
+    }
+
+    @Override
+    public List<Reservation> findByCustomerId(Integer customerId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByCustomerId(customerId);
+        } finally {
+            findByCustomerId.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<Reservation> findActiveBySpotNumber(Integer spotNumber) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findActiveBySpotNumber(spotNumber);
+        } finally {
+            findActiveBySpotNumber.recordSince(start);
+        }
+    }
+
+    @Override
+    public void update(Reservation reservation) {
+        long start = System.nanoTime();
+        try {
+            delegate.update(reservation);
+        } finally {
+            update.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Reservation> createAll(List<Reservation> reservations) {
+        long start = System.nanoTime();
+        try {
+            return delegate.createAll(reservations);
+        } finally {
+            createAll.recordSince(start);
+        }
+    }
+
+    @Override
+    public void completeAll(List<Reservation> reservations) {
+        long start = System.nanoTime();
+        try {
+            delegate.completeAll(reservations);
+        } finally {
+            completeAll.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package com.markus.parkingapp.dao.persistence;
+
+import com.markus.parkingapp.dao.CustomerDao;
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.dao.ReservationDao;
+import com.markus.parkingapp.dao.sequencer.CustomerIdSequencer;
+import com.markus.parkingapp.dao.sequencer.IdGenerator;
+import com.markus.parkingapp.dao.sequencer.SequenceIdGenerator;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Makes the in-memory DAOs survive a restart.
+ * <p>
+ * Every change made through the DAOs returned by this store is appended to a
+ * {@link WriteAheadLog}. Periodically, and on {@link #close()}, the full state is written to
+ * a snapshot file and the log segments it covers are deleted, so recovery only replays the
+ * log written since the last snapshot.
+ * <p>
+ * With {@link Durability#ASYNC} a change returns as soon as it is in the log's batch and
+ * reaches the disk within the fsync interval; a crash can lose the last few milliseconds.
+ * With {@link Durability#SYNC} a change returns only once it is on disk; concurrent changes
+ * still share one fsync.
+ * <p>
+ * A change and the append of its record are made under a lock on the changed entity, so
+ * the log holds the changes of every entity in the order they were made, even when
+ * several threads change the same entity at once.
+ */
+public class DurableStore implements Closeable {
+
+    /**
+     * When a change is considered saved.
+     */
+    public enum Durability {
+        ASYNC, // Saved by the background flusher within the fsync interval
+        SYNC   // Saved before the DAO call returns
+    }
+
+    private static final int SNAPSHOT_MAGIC = 0x504B534E; // "PKSN"
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final long FSYNC_INTERVAL_MILLIS = 10;
+    private static final Duration DEFAULT_SNAPSHOT_INTERVAL = Duration.ofMinutes(5);
+    private static final int ENTITY_LOCK_STRIPES = 64; // Power of two
+
+    private final Path directory;
+    private final Durability durability;
+    private final WriteAheadLog log;
+
+    private final CustomerDao customerDao;       // Plain DAOs, read when writing a snapshot
+    private final ParkingSpotDao parkingSpotDao;
+    private final ReservationDao reservationDao;
+
+    private final CustomerDao journaledCustomerDao;
+    private final ParkingSpotDao journaledParkingSpotDao;
+    private final ReservationDao journaledReservationDao;
+
+    private final ScheduledExecutorService snapshotExecutor;
+    private final ReentrantLock[] entityLocks = new ReentrantLock[ENTITY_LOCK_STRIPES]; // Entities by key hash
+
+    /**
+     * Opens the store with asynchronous durability and a snapshot every five minutes.
+     *
+     * @see #open(Path, CustomerDao, ParkingSpotDao, ReservationDao, Durability, Duration)
+     */
+    public static DurableStore open(Path directory, CustomerDao customerDao,
+                                    ParkingSpotDao parkingSpotDao, ReservationDao reservationDao) {
+        return open(directory, customerDao, parkingSpotDao, reservationDao, Durability.ASYNC, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Loads the saved state into the given, empty DAOs and opens the log for new changes.
+     *
+     * @param directory        The directory holding the snapshot and log files.
+     * @param customerDao      The customer DAO to load into.
+     * @param parkingSpotDao   The parking spot DAO to load into.
+     * @param reservationDao   The reservation DAO to load into.
+     * @param durability       When a change is considered saved.
+     * @param snapshotInterval The time between periodic snapshots.
+     * @return The opened store; use its DAOs for all further changes.
+     */
+    public static DurableStore open(Path directory, CustomerDao customerDao, ParkingSpotDao parkingSpotDao,
+                                    ReservationDao reservationDao, Durability durability, Duration snapshotInterval) {
+        if (snapshotInterval.isNegative() || snapshotInterval.isZero()) {
+            throw new IllegalArgumentException("Snapshot interval must be positive.");
+        }
+        try {
+            Files.createDirectories(directory);
+            Recovery recovery = new Recovery(customerDao, parkingSpotDao, reservationDao);
+            long boundary = recovery.loadSnapshot(directory);
+            WriteAheadLog.replay(directory, boundary, recovery::apply);
+            recovery.finish();
+
+            WriteAheadLog log = WriteAheadLog.open(directory, boundary, FSYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            return new DurableStore(directory, durability, log, customerDao, parkingSpotDao, reservationDao, snapshotInterval);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load saved data from " + directory, e);
+        }
+    }
+
+    private DurableStore(Path directory, Durability durability, WriteAheadLog log, CustomerDao customerDao,
+                         ParkingSpotDao parkingSpotDao, ReservationDao reservationDao, Duration snapshotInterval) {
+        this.directory = directory;
+        this.durability = durability;
+        this.log = log;
+        this.customerDao = customerDao;
+        this.parkingSpotDao = parkingSpotDao;
+        this.reservationDao = reservationDao;
+        this.journaledCustomerDao = new JournaledCustomerDao(customerDao, this);
+        this.journaledParkingSpotDao = new JournaledParkingSpotDao(parkingSpotDao, this);
+        this.journaledReservationDao = new JournaledReservationDao(reservationDao, this);
+        for (int i = 0; i < entityLocks.length; i++) {
+            entityLocks[i] = new ReentrantLock();
+        }
+
+        this.snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodMillis = snapshotInterval.toMillis();
+        snapshotExecutor.scheduleAtFixedRate(this::periodicSnapshot, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public CustomerDao getCustomerDao() {
+        return journaledCustomerDao;
+    }
+
+    public ParkingSpotDao getParkingSpotDao() {
+        return journaledParkingSpotDao;
+    }
+
+    public ReservationDao getReservationDao() {
+        return journaledReservationDao;
+    }
+
+    /**
+     * Writes the current state to a new snapshot and deletes the log segments and snapshots it replaces.
+     * <p>
+     * Changes may continue while the snapshot is written. They are logged at or after the
+     * boundary the snapshot is taken at, so recovery replays them on top of it; every record
+     * holds the full state of one entity, which makes replaying one already in the snapshot harmless.
+     */
+    public synchronized void snapshot() {
+        long boundary = log.rollSegment();
+        Path target = snapshotPath(directory, boundary);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(boundary);
+                CRC32 crc = new CRC32();
+                for (Customer customer : customerDao.findAll()) {
+                    writeRecord(out, JournalCodec.CUSTOMER_PUT, JournalCodec.encodeCustomer(customer), crc);
+                }
+                for (ParkingSpot parkingSpot : parkingSpotDao.findAll()) {
+                    writeRecord(out, JournalCodec.SPOT_PUT, JournalCodec.encodeSpot(parkingSpot), crc);
+                }
+                for (Reservation reservation : reservationDao.findAll()) {
+                    writeRecord(out, JournalCodec.RESERVATION_PUT, JournalCodec.encodeReservation(reservation), crc);
+                }
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot " + target, e);
+        }
+
+        // The new snapshot is in place, so everything it covers can go
+        log.deleteSegmentsBefore(boundary);
+        try {
+            for (long older : snapshotBoundaries(directory)) {
+                if (older < boundary) {
+                    Files.deleteIfExists(snapshotPath(directory, older));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete old snapshots in " + directory, e);
+        }
+    }
+
+    /**
+     * Stops the periodic snapshots, writes a final snapshot and closes the log.
+     */
+    @Override
+    public void close() {
+        snapshotExecutor.shutdownNow();
+        try {
+            snapshot();
+        } finally {
+            log.close();
+        }
+    }
+
+    /**
+     * Makes a change to one entity and appends its record while holding the entity's lock,
+     * then waits for the record to reach the disk if the durability requires it.
+     *
+     * @param key     Identifies the changed entity, e.g. its ID.
+     * @param type    The record type.
+     * @param change  Makes the change.
+     * @param encoder Encodes the record of the change's result, or returns null if nothing changed.
+     * @return The result of the change.
+     */
+    <T> T record(Object key, byte type, Supplier<T> change, Function<? super T, byte[]> encoder) {
+        long lsn;
+        T result;
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            result = change.get();
+            byte[] payload = encoder.apply(result);
+            if (payload == null) {
+                return result;
+            }
+            lsn = log.append(type, payload);
+        } finally {
+            lock.unlock();
+        }
+        awaitIfSync(lsn);
+        return result;
+    }
+
+    /**
+     * Makes a change to several entities and appends their records as a single log record,
+     * holding the locks of all of them, so a crash keeps all or none of the records and a
+     * synchronous store waits for a single fsync per batch.
+     *
+     * @param keys    Identify the changed entities.
+     * @param type    The record type.
+     * @param change  Makes the change and returns the changed entities.
+     * @param encoder Encodes the record of one changed entity.
+     * @return The changed entities.
+     */
+    <T> List<T> recordAll(List<?> keys, byte type, Supplier<List<T>> change, Function<? super T, byte[]> encoder) {
+        // Locks are taken in stripe order, so two batches can never wait for each other
+        List<ReentrantLock> locks = new ArrayList<>();
+        keys.stream().mapToInt(DurableStore::stripeOf).distinct().sorted()
+                .forEach(stripe -> locks.add(entityLocks[stripe]));
+        long lsn;
+        List<T> result;
+        int locked = 0;
+        try {
+            for (ReentrantLock lock : locks) {
+                lock.lock();
+                locked++;
+            }
+            result = change.get();
+            List<byte[]> payloads = new ArrayList<>(result.size());
+            for (T entity : result) {
+                payloads.add(encoder.apply(entity));
+            }
+            lsn = log.appendAll(type, payloads);
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+        awaitIfSync(lsn);
+        return result;
+    }
+
+    private void awaitIfSync(long lsn) {
+        if (durability == Durability.SYNC) {
+            log.awaitDurable(lsn);
+        }
+    }
+
+    private ReentrantLock lockFor(Object key) {
+        return entityLocks[stripeOf(key)];
+    }
+
+    private static int stripeOf(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (ENTITY_LOCK_STRIPES - 1);
+    }
+
+    private void periodicSnapshot() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the log still holds every change, so nothing is lost
+            System.err.println("Could not write snapshot: " + e.getMessage());
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, byte type, byte[] payload, CRC32 crc) throws IOException {
+        byte[] frame = new byte[WriteAheadLog.frameSize(payload)];
+        WriteAheadLog.writeFrame(frame, 0, 0, type, payload, crc);
+        out.write(frame);
+    }
+
+    private static Path snapshotPath(Path directory, long boundary) {
+        return directory.resolve(SNAPSHOT_PREFIX + String.format("%016d", boundary) + SNAPSHOT_SUFFIX);
+    }
+
+    private static long[] snapshotBoundaries(Path directory) throws IOException {
+        List<Long> boundaries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX))
+                    .forEach(name -> boundaries.add(Long.parseLong(
+                            name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()))));
+        }
+        return boundaries.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    /**
+     * Applies snapshot and log records to the DAOs. Each record is an upsert, so the result
+     * does not depend on whether a record was already part of the snapshot.
+     */
+    private static final class Recovery {
+
+        private final CustomerDao customerDao;
+        private final ParkingSpotDao parkingSpotDao;
+        private final ReservationDao reservationDao;
+        private long maxReservationId;
+        private int maxCustomerId;
+
+        Recovery(CustomerDao customerDao, ParkingSpotDao parkingSpotDao, ReservationDao reservationDao) {
+            this.customerDao = customerDao;
+            this.parkingSpotDao = parkingSpotDao;
+            this.reservationDao = reservationDao;
+        }
+
+        /**
+         * Loads the newest snapshot in the directory, if any.
+         *
+         * @return The LSN boundary of the loaded snapshot; replay the log from here. 1 if there is no snapshot.
+         */
+        long loadSnapshot(Path directory) throws IOException {
+            long[] boundaries = snapshotBoundaries(directory);
+            if (boundaries.length == 0) {
+                return 1;
+            }
+            Path path = snapshotPath(directory, boundaries[boundaries.length - 1]);
+            try (InputStream file = new BufferedInputStream(Files.newInputStream(path), 64 * 1024)) {
+                DataInputStream in = new DataInputStream(file);
+                if (in.readInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Not a snapshot file: " + path);
+                }
+                long boundary = in.readLong();
+                WriteAheadLog.readFrames(in, 0, this::apply);
+                return boundary;
+            }
+        }
+
+        void apply(long lsn, byte type, DataInput payload) throws IOException {
+            switch (type) {
+                case JournalCodec.CUSTOMER_PUT -> applyCustomer(JournalCodec.decodeCustomer(payload));
+                case JournalCodec.SPOT_PUT -> applySpot(JournalCodec.decodeSpot(payload));
+                case JournalCodec.SPOT_DELETE -> parkingSpotDao.delete(JournalCodec.decodeSpotNumber(payload));
+                case JournalCodec.RESERVATION_PUT -> applyReservation(JournalCodec.decodeReservation(payload));
+                default -> throw new IOException("Unknown record type " + type + " at LSN " + lsn);
+            }
+        }
+
+        private void applyCustomer(Customer customer) {
+            maxCustomerId = Math.max(maxCustomerId, customer.getId());
+            customerDao.restore(customer);
+        }
+
+        private void applySpot(ParkingSpot parkingSpot) {
+            Optional<ParkingSpot> existing = parkingSpotDao.findBySpotNumber(parkingSpot.getSpotNumber());
+            if (existing.isEmpty()) {
+                parkingSpotDao.create(parkingSpot);
+            } else if (!existing.get().getAreaCode().equals(parkingSpot.getAreaCode())
+                    || existing.get().isOccupied() != parkingSpot.isOccupied()) {
+                parkingSpotDao.update(parkingSpot);
+            }
+        }
+
+        private void applyReservation(JournalCodec.ReservationRecord record) {
+            maxReservationId = Math.max(maxReservationId, record.id);
+            Optional<Reservation> existing = reservationDao.findById(String.valueOf(record.id));
+            if (existing.isPresent()) {
+                // Reservations only move forward, from scheduled to active to completed
+                Reservation reservation = existing.get();
+                if (record.status == Reservation.Status.COMPLETED && reservation.getStatus() != Reservation.Status.COMPLETED) {
+                    reservation.complete();
+                    reservationDao.update(reservation);
+                } else if (record.status == Reservation.Status.ACTIVE && reservation.getStatus() == Reservation.Status.SCHEDULED) {
+                    reservation.activate();
+                    reservationDao.update(reservation);
+                }
+                return;
+            }
+
+            Customer customer = customerDao.findById(record.customerId).orElseThrow(() ->
+                    new IllegalStateException("Reservation " + record.id + " refers to unknown customer " + record.customerId));
+            ParkingSpot parkingSpot = parkingSpotDao.findBySpotNumber(record.spotNumber)
+                    .orElseGet(() -> new ParkingSpot(record.spotNumber, record.areaCode)); // The spot was deleted since
+            reservationDao.create(record.toReservation(parkingSpot, customer));
+        }
+
+        /**
+         * Occupies the spots of the recovered active reservations and moves the reservation
+         * ID generator and the customer ID sequencer past every recovered ID.
+         */
+        void finish() {
+            for (Reservation reservation : reservationDao.findActive()) {
+                if (reservation.getStatus() != Reservation.Status.ACTIVE) {
+                    continue; // Scheduled reservations claim their spot when they start
+                }
+                Integer spotNumber = reservation.getParkingSpot().getSpotNumber();
+                if (parkingSpotDao.findBySpotNumber(spotNumber).isPresent()) {
+                    parkingSpotDao.tryOccupy(spotNumber, reservation);
+                }
+            }
+            IdGenerator idGenerator = Reservation.getIdGenerator();
+            if (maxReservationId > 0 && idGenerator instanceof SequenceIdGenerator) {
+                ((SequenceIdGenerator) idGenerator).advanceTo(maxReservationId);
+            }
+            if (maxCustomerId > 0) {
+                CustomerIdSequencer.advanceTo(maxCustomerId);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.markus.parkingapp.dao.persistence;
+
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+import com.markus.parkingapp.model.Vehicle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary encoding of the journal records written by the durable DAOs.
+ * <p>
+ * Every record carries the full state of one entity, so replaying a record is an upsert
+ * and replaying it twice is harmless. Reservations refer to their spot and customer by
+ * number and ID; timestamps are stored as UTC-based epoch seconds plus nanos, which
+ * round-trips a {@link LocalDateTime} exactly.
+ */
+public final class JournalCodec {
+
+    public static final byte CUSTOMER_PUT = 1;
+    public static final byte SPOT_PUT = 2;
+    public static final byte SPOT_DELETE = 3;
+    public static final byte RESERVATION_PUT = 4;
+
+    private JournalCodec() {
+    }
+
+    public static byte[] encodeCustomer(Customer customer) {
+        return encode(out -> {
+            out.writeInt(customer.getId());
+            out.writeUTF(customer.getName());
+            out.writeUTF(customer.getPhoneNumber());
+            out.writeUTF(customer.getVehicle().getPlateNumber());
+            out.writeUTF(customer.getVehicle().getType());
+        });
+    }
+
+    public static Customer decodeCustomer(DataInput in) throws IOException {
+        int id = in.readInt();
+        String name = in.readUTF();
+        String phoneNumber = in.readUTF();
+        Vehicle vehicle = new Vehicle(in.readUTF(), in.readUTF());
+        return new Customer(id, name, phoneNumber, vehicle);
+    }
+
+    /**
+     * Encodes a parking spot. Only occupancy without a reservation is stored; a spot held by
+     * a reservation is occupied again when its active reservation is recovered.
+     */
+    public static byte[] encodeSpot(ParkingSpot parkingSpot) {
+        return encode(out -> {
+            out.writeInt(parkingSpot.getSpotNumber());
+            out.writeInt(parkingSpot.getAreaCode());
+            out.writeBoolean(parkingSpot.isOccupied() && parkingSpot.getCurrentReservation() == null);
+        });
+    }
+
+    public static ParkingSpot decodeSpot(DataInput in) throws IOException {
+        int spotNumber = in.readInt();
+        int areaCode = in.readInt();
+        boolean occupied = in.readBoolean();
+        return new ParkingSpot(spotNumber, occupied, areaCode);
+    }
+
+    public static byte[] encodeSpotNumber(int spotNumber) {
+        return encode(out -> out.writeInt(spotNumber));
+    }
+
+    public static int decodeSpotNumber(DataInput in) throws IOException {
+        return in.readInt();
+    }
+
+    public static byte[] encodeReservation(Reservation reservation) {
+        return encode(out -> {
+            out.writeLong(reservation.getId());
+            out.writeInt(reservation.getParkingSpot().getSpotNumber());
+            out.writeInt(reservation.getParkingSpot().getAreaCode());
+            out.writeInt(reservation.getCustomer().getId());
+            writeTime(out, reservation.getStartTime());
+            writeTime(out, reservation.getEndTime());
+            out.writeByte(reservation.getStatus().ordinal());
+        });
+    }
+
+    /**
+     * The stored fields of a reservation, before its spot and customer are resolved.
+     */
+    public static final class ReservationRecord {
+        public final long id;
+        public final int spotNumber;
+        public final int areaCode; // Lets a reservation outlive the deletion of its spot
+        public final int customerId;
+        public final LocalDateTime startTime;
+        public final LocalDateTime endTime;
+        public final Reservation.Status status;
+
+        private ReservationRecord(long id, int spotNumber, int areaCode, int customerId,
+                                  LocalDateTime startTime, LocalDateTime endTime, Reservation.Status status) {
+            this.id = id;
+            this.spotNumber = spotNumber;
+            this.areaCode = areaCode;
+            this.customerId = customerId;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.status = status;
+        }
+
+        public Reservation toReservation(ParkingSpot parkingSpot, Customer customer) {
+            return new Reservation(id, parkingSpot, customer, startTime, endTime, status);
+        }
+    }
+
+    public static ReservationRecord decodeReservation(DataInput in) throws IOException {
+        long id = in.readLong();
+        int spotNumber = in.readInt();
+        int areaCode = in.readInt();
+        int customerId = in.readInt();
+        LocalDateTime startTime = readTime(in);
+        LocalDateTime endTime = readTime(in);
+        Reservation.Status status = Reservation.Status.values()[in.readUnsignedByte()];
+        return new ReservationRecord(id, spotNumber, areaCode, customerId, startTime, endTime, status);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInput in) throws IOException {
+        long epochSecond = in.readLong();
+        int nano = in.readInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by in-memory streams
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,55 @@
+package com.markus.parkingapp.dao.persistence;
+
+import com.markus.parkingapp.dao.CustomerDao;
+import com.markus.parkingapp.model.Customer;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link CustomerDao} that logs every change of the wrapped DAO to a {@link DurableStore},
+ * under the lock of the changed customer.
+ */
+class JournaledCustomerDao implements CustomerDao {
+
+    private final CustomerDao delegate;
+    private final DurableStore store;
+
+    JournaledCustomerDao(CustomerDao delegate, DurableStore store) {
+        this.delegate = delegate;
+        this.store = store;
+    }
+
+    @Override
+    public Customer create(Customer customer) {
+        // The ID is only assigned by the delegate, and no other change can refer to it before it returns
+        Customer created = delegate.create(customer);
+        return store.record(created.getId(), JournalCodec.CUSTOMER_PUT, () -> created, JournalCodec::encodeCustomer);
+    }
+
+    @Override
+    public Customer restore(Customer customer) {
+        return store.record(customer.getId(), JournalCodec.CUSTOMER_PUT,
+                () -> delegate.restore(customer), JournalCodec::encodeCustomer);
+    }
+
+    @Override
+    public Optional<Customer> findById(int id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Optional<Customer> findByPlate(String plateNumber) {
+        return delegate.findByPlate(plateNumber);
+    }
+
+    @Override
+    public Optional<Customer> findByPhone(String phoneNumber) {
+        return delegate.findByPhone(phoneNumber);
+    }
+
+    @Override
+    public List<Customer> findAll() {
+        return delegate.findAll();
+    }
+}
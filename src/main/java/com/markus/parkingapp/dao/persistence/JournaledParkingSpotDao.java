@@ -0,0 +1,121 @@
+package com.markus.parkingapp.dao.persistence;
+
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link ParkingSpotDao} that logs every change of the wrapped DAO to a {@link DurableStore},
+ * under the lock of the changed spot.
+ * <p>
+ * Claiming and releasing a spot for a reservation is not logged: the reservation itself is,
+ * and recovery occupies the spot of every active reservation again.
+ */
+class JournaledParkingSpotDao implements ParkingSpotDao {
+
+    private final ParkingSpotDao delegate;
+    private final DurableStore store;
+
+    JournaledParkingSpotDao(ParkingSpotDao delegate, DurableStore store) {
+        this.delegate = delegate;
+        this.store = store;
+    }
+
+    @Override
+    public ParkingSpot create(ParkingSpot parkingSpot) {
+        return store.record(parkingSpot.getSpotNumber(), JournalCodec.SPOT_PUT,
+                () -> delegate.create(parkingSpot), JournalCodec::encodeSpot);
+    }
+
+    @Override
+    public List<ParkingSpot> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Optional<ParkingSpot> findBySpotNumber(Integer spotNumber) {
+        return delegate.findBySpotNumber(spotNumber);
+    }
+
+    @Override
+    public List<ParkingSpot> findAvailableSpots() {
+        return delegate.findAvailableSpots();
+    }
+
+    @Override
+    public Iterable<ParkingSpot> availableSpots() {
+        return delegate.availableSpots();
+    }
+
+    @Override
+    public int countAvailableSpots() {
+        return delegate.countAvailableSpots();
+    }
+
+    @Override
+    public boolean hasAvailableSpots() {
+        return delegate.hasAvailableSpots();
+    }
+
+    @Override
+    public Optional<ParkingSpot> findFirstAvailableSpot() {
+        return delegate.findFirstAvailableSpot();
+    }
+
+    @Override
+    public Optional<ParkingSpot> findNextAvailableSpot(Integer spotNumber) {
+        return delegate.findNextAvailableSpot(spotNumber);
+    }
+
+    @Override
+    public List<ParkingSpot> findByArea(int areaCode) {
+        return delegate.findByArea(areaCode);
+    }
+
+    @Override
+    public List<ParkingSpot> findAvailableByArea(int areaCode) {
+        return delegate.findAvailableByArea(areaCode);
+    }
+
+    @Override
+    public int countAvailableByArea(int areaCode) {
+        return delegate.countAvailableByArea(areaCode);
+    }
+
+    @Override
+    public boolean tryOccupy(Integer spotNumber, Reservation reservation) {
+        return delegate.tryOccupy(spotNumber, reservation);
+    }
+
+    @Override
+    public boolean tryVacate(Integer spotNumber, Reservation reservation) {
+        return delegate.tryVacate(spotNumber, reservation);
+    }
+
+    @Override
+    public void addOccupancyListener(ParkingSpot.OccupancyListener listener) {
+        delegate.addOccupancyListener(listener);
+    }
+
+    @Override
+    public void removeOccupancyListener(ParkingSpot.OccupancyListener listener) {
+        delegate.removeOccupancyListener(listener);
+    }
+
+    @Override
+    public void update(ParkingSpot parkingSpot) {
+        store.record(parkingSpot.getSpotNumber(), JournalCodec.SPOT_PUT, () -> {
+            delegate.update(parkingSpot);
+            return parkingSpot;
+        }, JournalCodec::encodeSpot);
+    }
+
+    @Override
+    public boolean delete(Integer spotNumber) {
+        return store.record(spotNumber, JournalCodec.SPOT_DELETE, () -> delegate.delete(spotNumber),
+                deleted -> deleted ? JournalCodec.encodeSpotNumber(spotNumber) : null);
+    }
+}
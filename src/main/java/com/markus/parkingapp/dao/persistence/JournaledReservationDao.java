@@ -0,0 +1,90 @@
+package com.markus.parkingapp.dao.persistence;
+
+import com.markus.parkingapp.dao.ReservationDao;
+import com.markus.parkingapp.model.Reservation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * {@link ReservationDao} that logs every change of the wrapped DAO to a {@link DurableStore},
+ * under the lock of the changed reservation.
+ */
+class JournaledReservationDao implements ReservationDao {
+
+    private final ReservationDao delegate;
+    private final DurableStore store;
+
+    JournaledReservationDao(ReservationDao delegate, DurableStore store) {
+        this.delegate = delegate;
+        this.store = store;
+    }
+
+    @Override
+    public Reservation create(Reservation reservation) {
+        return store.record(reservation.getReservationId(), JournalCodec.RESERVATION_PUT,
+                () -> delegate.create(reservation), JournalCodec::encodeReservation);
+    }
+
+    @Override
+    public List<Reservation> createAll(List<Reservation> reservations) {
+        return store.recordAll(idsOf(reservations), JournalCodec.RESERVATION_PUT,
+                () -> delegate.createAll(reservations), JournalCodec::encodeReservation);
+    }
+
+    @Override
+    public void completeAll(List<Reservation> reservations) {
+        store.recordAll(idsOf(reservations), JournalCodec.RESERVATION_PUT, () -> {
+            delegate.completeAll(reservations);
+            return reservations;
+        }, JournalCodec::encodeReservation);
+    }
+
+    private static List<String> idsOf(List<Reservation> reservations) {
+        List<String> ids = new ArrayList<>(reservations.size());
+        for (Reservation reservation : reservations) {
+            ids.add(reservation.getReservationId());
+        }
+        return ids;
+    }
+
+    @Override
+    public Optional<Reservation> findById(String reservationId) {
+        return delegate.findById(reservationId);
+    }
+
+    @Override
+    public List<Reservation> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Reservation> findActive() {
+        return delegate.findActive();
+    }
+
+    @Override
+    public Stream<Reservation> stream() {
+        return delegate.stream();
+    }
+
+    @Override
+    public List<Reservation> findByCustomerId(Integer customerId) {
+        return delegate.findByCustomerId(customerId);
+    }
+
+    @Override
+    public Optional<Reservation> findActiveBySpotNumber(Integer spotNumber) {
+        return delegate.findActiveBySpotNumber(spotNumber);
+    }
+
+    @Override
+    public void update(Reservation reservation) {
+        store.record(reservation.getReservationId(), JournalCodec.RESERVATION_PUT, () -> {
+            delegate.update(reservation);
+            return reservation;
+        }, JournalCodec::encodeReservation);
+    }
+}
@@ -0,0 +1,513 @@
+package com.markus.parkingapp.dao.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented write-ahead log with group commit.
+ * <p>
+ * {@link #append} only copies the record into an in-memory batch and returns its log
+ * sequence number (LSN), so it takes microseconds. A background flusher writes the batch
+ * and forces it to disk at most once per fsync interval, or as soon as a caller waits in
+ * {@link #awaitDurable}; every record appended in the meantime shares that fsync.
+ * <p>
+ * Each record is framed as {@code [length][crc32][lsn][type][payload]}. On replay a
+ * truncated or corrupt record marks the torn tail of the log and ends the replay.
+ * A batch from {@link #appendAll} is framed as a single record holding all of its
+ * payloads, so after a crash it is replayed either completely or not at all.
+ */
+public class WriteAheadLog implements Closeable {
+
+    /**
+     * Receives the records read back from a log or snapshot.
+     */
+    public interface RecordHandler {
+        void handle(long lsn, byte type, DataInput payload) throws IOException;
+    }
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int FRAME_HEADER_BYTES = 8;       // length + crc32
+    private static final int RECORD_HEADER_BYTES = 9;      // lsn + type
+    private static final int MAX_RECORD_BYTES = 16 << 20;  // Anything larger is treated as corruption
+    private static final int FLUSH_THRESHOLD_BYTES = 1 << 20; // Flush early once a batch grows this large
+    private static final byte BATCH = -1; // Record type of a batch: [type][count] then [length][payload] per record
+
+    private final Path directory;
+    private final long fsyncIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock(); // Guards the batch and LSN counters
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final ReentrantLock ioLock = new ReentrantLock(); // Held while writing to or switching the segment
+
+    private byte[] batch = new byte[64 * 1024]; // Records appended since the last flush
+    private int batchSize;
+    private byte[] spare = new byte[64 * 1024]; // Swapped with batch by the flusher
+    private long nextLsn;
+    private long lastAppendedLsn;
+    private long durableLsn;       // All records up to this LSN are on disk
+    private boolean syncRequested; // A caller is waiting for durability
+    private boolean closed;
+    private IOException failure;   // Set if the flusher failed; the log is unusable afterwards
+
+    private FileChannel segment;
+    private long segmentId;
+    private final Thread flusher;
+
+    private final CRC32 writeCrc = new CRC32(); // Only used while holding lock
+
+    /**
+     * Opens the log for appending, continuing after the highest LSN already in the directory.
+     * Appends always go to a new segment, so a torn tail of an earlier run is never extended.
+     *
+     * @param directory     The directory holding the log segments.
+     * @param firstLsn      The lowest LSN to hand out, e.g. one past the LSN of a loaded snapshot.
+     * @param fsyncInterval The longest time appended records wait before they are forced to disk.
+     * @return The opened log.
+     */
+    public static WriteAheadLog open(Path directory, long firstLsn, long fsyncInterval, TimeUnit unit) {
+        try {
+            Files.createDirectories(directory);
+            long lastLsn = replay(directory, Long.MAX_VALUE, (lsn, type, payload) -> { });
+            long[] ids = segmentIds(directory);
+            long nextSegmentId = ids.length == 0 ? 1 : ids[ids.length - 1] + 1;
+            return new WriteAheadLog(directory, Math.max(firstLsn, lastLsn + 1), nextSegmentId, unit.toNanos(fsyncInterval));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open write-ahead log in " + directory, e);
+        }
+    }
+
+    private WriteAheadLog(Path directory, long nextLsn, long segmentId, long fsyncIntervalNanos) throws IOException {
+        this.directory = directory;
+        this.nextLsn = nextLsn;
+        this.lastAppendedLsn = nextLsn - 1;
+        this.durableLsn = nextLsn - 1;
+        this.fsyncIntervalNanos = fsyncIntervalNanos;
+        this.segmentId = segmentId;
+        this.segment = openSegment(segmentId);
+
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Appends a record to the current batch.
+     *
+     * @param type    The record type.
+     * @param payload The record payload.
+     * @return The LSN of the record.
+     */
+    public long append(byte type, byte[] payload) {
+        if (type == BATCH) {
+            throw new IllegalArgumentException("Record type " + BATCH + " is reserved for batches.");
+        }
+        return appendFrame(type, payload);
+    }
+
+    private long appendFrame(byte type, byte[] payload) {
+        lock.lock();
+        try {
+            checkUsable();
+            long lsn = nextLsn++;
+            int frameSize = FRAME_HEADER_BYTES + RECORD_HEADER_BYTES + payload.length;
+            ensureBatchCapacity(frameSize);
+            batchSize = writeFrame(batch, batchSize, lsn, type, payload, writeCrc);
+            lastAppendedLsn = lsn;
+            if (batchSize >= FLUSH_THRESHOLD_BYTES) {
+                workAvailable.signal();
+            }
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends several records of the same type to the current batch as one framed record,
+     * so they reach the disk with the same fsync and a crash never keeps only some of them.
+     * Replay hands each record to the handler in order, all with the LSN of the batch.
+     *
+     * @param type     The record type.
+     * @param payloads The record payloads, in order.
+     * @return The LSN of the batch, or the last appended LSN if there are no payloads.
+     * @throws IllegalArgumentException If the batch is larger than a single record may be.
+     */
+    public long appendAll(byte type, List<byte[]> payloads) {
+        if (payloads.isEmpty()) {
+            lock.lock();
+            try {
+                return lastAppendedLsn;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return appendFrame(BATCH, encodeBatch(type, payloads));
+    }
+
+    private static byte[] encodeBatch(byte type, List<byte[]> payloads) {
+        long size = 5;
+        for (byte[] payload : payloads) {
+            size += 4 + payload.length;
+        }
+        if (size > MAX_RECORD_BYTES - RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("Batch of " + payloads.size() + " records is too large: " + size + " bytes.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.put(type);
+        buffer.putInt(payloads.size());
+        for (byte[] payload : payloads) {
+            buffer.putInt(payload.length);
+            buffer.put(payload);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Blocks until the record with the given LSN, and every record before it, is on disk.
+     *
+     * @param lsn The LSN returned by {@link #append}.
+     */
+    public void awaitDurable(long lsn) {
+        lock.lock();
+        try {
+            while (durableLsn < lsn) {
+                checkUsable();
+                syncRequested = true;
+                workAvailable.signal();
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the current batch and continues the log in a new segment.
+     *
+     * @return The first LSN that will be written to the new segment; all lower LSNs are in older segments.
+     */
+    public long rollSegment() {
+        ioLock.lock();
+        try {
+            lock.lock();
+            byte[] pending;
+            int pendingSize;
+            long boundary;
+            try {
+                checkUsable();
+                pending = batch;
+                pendingSize = batchSize;
+                batch = new byte[64 * 1024];
+                batchSize = 0;
+                boundary = nextLsn;
+            } finally {
+                lock.unlock();
+            }
+
+            writeFully(pending, pendingSize);
+            segment.force(false);
+            segment.close();
+            segmentId++;
+            segment = openSegment(segmentId);
+            markDurable(boundary - 1);
+            return boundary;
+        } catch (IOException e) {
+            fail(e);
+            throw new UncheckedIOException("Could not roll write-ahead log segment", e);
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments that only hold records below the given LSN boundary.
+     *
+     * @param boundary An LSN returned by {@link #rollSegment()} whose records are covered by a snapshot.
+     */
+    public void deleteSegmentsBefore(long boundary) {
+        try {
+            for (long id : segmentIds(directory)) {
+                if (id >= segmentId) {
+                    break; // Never delete the segment being written
+                }
+                Path path = segmentPath(directory, id);
+                if (lastLsnOf(path) < boundary) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete old write-ahead log segments", e);
+        }
+    }
+
+    /**
+     * Flushes all appended records to disk and stops the flusher.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+            segment.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close write-ahead log", e);
+        }
+    }
+
+    /**
+     * Reads back every record in the directory's segments with an LSN at or above the given one.
+     *
+     * @param directory The directory holding the log segments.
+     * @param fromLsn   The lowest LSN to pass to the handler.
+     * @param handler   Receives the records in LSN order.
+     * @return The highest LSN found in the log, or 0 if it is empty.
+     */
+    public static long replay(Path directory, long fromLsn, RecordHandler handler) throws IOException {
+        long lastLsn = 0;
+        if (!Files.isDirectory(directory)) {
+            return lastLsn;
+        }
+        for (long id : segmentIds(directory)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(segmentPath(directory, id)), 64 * 1024)) {
+                long segmentLast = readFrames(in, fromLsn, handler);
+                lastLsn = Math.max(lastLsn, segmentLast);
+            }
+        }
+        return lastLsn;
+    }
+
+    /**
+     * Reads framed records from a stream until its end or a torn record.
+     *
+     * @return The highest LSN read, or 0 if there was none.
+     */
+    static long readFrames(InputStream in, long fromLsn, RecordHandler handler) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        CRC32 crc = new CRC32();
+        long lastLsn = 0;
+        while (true) {
+            int length;
+            int expectedCrc;
+            byte[] record;
+            try {
+                length = data.readInt();
+                expectedCrc = data.readInt();
+                if (length < RECORD_HEADER_BYTES || length > MAX_RECORD_BYTES) {
+                    return lastLsn; // Garbage after a torn write
+                }
+                record = new byte[length];
+                data.readFully(record);
+            } catch (EOFException e) {
+                return lastLsn; // End of segment, or a record cut short by a crash
+            }
+            crc.reset();
+            crc.update(record, 0, length);
+            if ((int) crc.getValue() != expectedCrc) {
+                return lastLsn;
+            }
+
+            ByteBuffer header = ByteBuffer.wrap(record, 0, RECORD_HEADER_BYTES);
+            long lsn = header.getLong();
+            byte type = header.get();
+            lastLsn = Math.max(lastLsn, lsn);
+            if (lsn < fromLsn) {
+                continue;
+            }
+            if (type != BATCH) {
+                handler.handle(lsn, type, new DataInputStream(
+                        new ByteArrayInputStream(record, RECORD_HEADER_BYTES, length - RECORD_HEADER_BYTES)));
+                continue;
+            }
+            ByteBuffer batch = ByteBuffer.wrap(record, RECORD_HEADER_BYTES, length - RECORD_HEADER_BYTES);
+            byte batchType = batch.get();
+            int count = batch.getInt();
+            for (int i = 0; i < count; i++) {
+                int payloadLength = batch.getInt();
+                handler.handle(lsn, batchType, new DataInputStream(
+                        new ByteArrayInputStream(record, batch.position(), payloadLength)));
+                batch.position(batch.position() + payloadLength);
+            }
+        }
+    }
+
+    /**
+     * Writes one framed record into a byte array.
+     *
+     * @return The offset just past the written frame.
+     */
+    static int writeFrame(byte[] target, int offset, long lsn, byte type, byte[] payload, CRC32 crc) {
+        int length = RECORD_HEADER_BYTES + payload.length;
+        ByteBuffer buffer = ByteBuffer.wrap(target, offset, FRAME_HEADER_BYTES + length);
+        buffer.putInt(length);
+        buffer.putInt(0); // CRC placeholder
+        buffer.putLong(lsn);
+        buffer.put(type);
+        buffer.put(payload);
+
+        crc.reset();
+        crc.update(target, offset + FRAME_HEADER_BYTES, length);
+        ByteBuffer.wrap(target, offset + 4, 4).putInt((int) crc.getValue());
+        return offset + FRAME_HEADER_BYTES + length;
+    }
+
+    static int frameSize(byte[] payload) {
+        return FRAME_HEADER_BYTES + RECORD_HEADER_BYTES + payload.length;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (batchSize == 0 && !closed) {
+                    workAvailable.awaitUninterruptibly();
+                }
+                if (batchSize == 0) {
+                    return; // Closed and fully flushed
+                }
+                // Give more records the chance to join this fsync, unless someone is waiting
+                long remaining = fsyncIntervalNanos;
+                while (!syncRequested && !closed && batchSize < FLUSH_THRESHOLD_BYTES && remaining > 0) {
+                    try {
+                        remaining = workAvailable.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // Batches are taken and written under the I/O lock, so they reach the segments in LSN order
+            byte[] pending;
+            long pendingLsn;
+            ioLock.lock();
+            try {
+                int pendingSize;
+                lock.lock();
+                try {
+                    pending = batch;
+                    pendingSize = batchSize;
+                    pendingLsn = lastAppendedLsn;
+                    batch = spare.length >= pending.length ? spare : new byte[pending.length];
+                    batchSize = 0;
+                    syncRequested = false;
+                } finally {
+                    lock.unlock();
+                }
+                if (pendingSize > 0) {
+                    writeFully(pending, pendingSize);
+                    segment.force(false);
+                }
+            } catch (IOException e) {
+                fail(e);
+                return;
+            } finally {
+                ioLock.unlock();
+            }
+            spare = pending;
+            markDurable(pendingLsn);
+        }
+    }
+
+    private void writeFully(byte[] bytes, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+    }
+
+    private void markDurable(long lsn) {
+        lock.lock();
+        try {
+            durableLsn = Math.max(durableLsn, lsn);
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            failure = e;
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkUsable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed.");
+        }
+    }
+
+    private void ensureBatchCapacity(int extra) {
+        if (batchSize + extra > batch.length) {
+            batch = Arrays.copyOf(batch, Math.max(batch.length * 2, batchSize + extra));
+        }
+    }
+
+    private FileChannel openSegment(long id) throws IOException {
+        return FileChannel.open(segmentPath(directory, id),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static long lastLsnOf(Path segmentPath) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(segmentPath), 64 * 1024)) {
+            return readFrames(in, Long.MAX_VALUE, (lsn, type, payload) -> { });
+        }
+    }
+
+    private static Path segmentPath(Path directory, long id) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%016d", id) + SEGMENT_SUFFIX);
+    }
+
+    private static long[] segmentIds(Path directory) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> ids.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        return ids.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+}
@@ -1,8 +1,34 @@
 package com.markus.parkingapp.dao.sequencer;
 
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues unique customer IDs.
+ * <p>
+ * IDs are taken from a block leased from an {@link IdBlockStore}, 1,000 at a time by default.
+ * Within a block, {@link #nextId()} is a lock-free compare-and-set; only leasing a new
+ * block synchronizes, and it happens once per block. Because the store persists its
+ * high-water mark, IDs never repeat after a restart and several instances can share it.
+ * <p>
+ * The store file and block size default to the system properties
+ * {@code parkingapp.customerId.file} and {@code parkingapp.customerId.blockSize}. Without
+ * the first, the file is {@value #FILE_NAME} in the application's data directory, see
+ * {@link #useDataDirectory(Path)}.
+ */
 public class CustomerIdSequencer {
-    // Static variable to hold the current ID
-    private static int currentId = 0;
+
+    public static final int DEFAULT_BLOCK_SIZE = 1000;
+    public static final String FILE_NAME = "customer-id.hwm";
+    private static final String FILE_PROPERTY = "parkingapp.customerId.file";
+
+    // The current block, packed as (next ID << 32) | end of block (exclusive). Starts exhausted.
+    private static final AtomicLong currentBlock = new AtomicLong(0);
+
+    private static IdBlockStore blockStore = new IdBlockStore(
+            Path.of(System.getProperty(FILE_PROPERTY, "data/" + FILE_NAME)), 1);
+    private static int blockSize = Integer.getInteger("parkingapp.customerId.blockSize", DEFAULT_BLOCK_SIZE);
 
     // Private constructor to prevent instantiation
     private CustomerIdSequencer() {
@@ -10,7 +36,73 @@ public class CustomerIdSequencer {
 
     // Method to get the next unique ID
     public static int nextId() {
-        return ++currentId;
+        while (true) {
+            long block = currentBlock.get();
+            int next = (int) (block >>> 32);
+            int end = (int) block;
+            if (next < end) {
+                if (currentBlock.compareAndSet(block, block + (1L << 32))) {
+                    return next;
+                }
+            } else {
+                leaseBlock(block);
+            }
+        }
+    }
+
+    /**
+     * Changes where blocks are leased from and how large they are.
+     * The rest of the current block is discarded.
+     *
+     * @param store The store to lease blocks from.
+     * @param size  The number of IDs per block.
+     */
+    public static synchronized void configure(IdBlockStore store, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Block size must be greater than 0.");
+        }
+        blockStore = Objects.requireNonNull(store, "Block store cannot be null.");
+        blockSize = size;
+        currentBlock.set(0);
+    }
+
+    /**
+     * Makes sure an ID that is already in use, e.g. one loaded from saved data, is never issued.
+     * The rest of the current block is discarded if it could hold the ID.
+     *
+     * @param usedId The ID in use.
+     */
+    public static synchronized void advanceTo(int usedId) {
+        blockStore.advanceTo(usedId);
+        if ((int) (currentBlock.get() >>> 32) <= usedId) {
+            currentBlock.set(0);
+        }
+    }
+
+    /**
+     * Keeps the high-water mark in the given data directory, next to the application's other
+     * saved data, unless {@code parkingapp.customerId.file} names the file explicitly.
+     *
+     * @param dataDir The directory the application saves its data in.
+     */
+    public static synchronized void useDataDirectory(Path dataDir) {
+        if (System.getProperty(FILE_PROPERTY) == null) {
+            configure(new IdBlockStore(dataDir.resolve(FILE_NAME), 1), blockSize);
+        }
+    }
+
+    /**
+     * Replaces an exhausted block, unless another thread already did.
+     */
+    private static synchronized void leaseBlock(long exhausted) {
+        if (currentBlock.get() != exhausted) {
+            return;
+        }
+        long start = blockStore.lease(blockSize);
+        if (start + blockSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Customer IDs exhausted.");
+        }
+        currentBlock.set((start << 32) | (start + blockSize));
     }
 
 
@@ -0,0 +1,145 @@
+package com.markus.parkingapp.dao.sequencer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Hands out blocks of IDs from a high-water mark persisted in a local file.
+ * <p>
+ * The file holds the first ID that has not been leased yet. Leasing a block takes an
+ * exclusive lock on a {@code .lock} file next to it, writes the advanced mark to a
+ * temporary file, forces it to disk and moves it over the mark atomically, so the mark
+ * is always either the old or the new one, even after a crash. Application instances
+ * sharing the file therefore never receive overlapping blocks, and IDs never repeat
+ * after a restart. IDs left unused in a block are skipped.
+ */
+public class IdBlockStore {
+
+    private final Path file;
+    private final Path lockFile;
+    private final Path tempFile;
+    private final long firstId; // Used when the file does not exist yet
+
+    /**
+     * Creates a store backed by the given file.
+     *
+     * @param file    The file holding the high-water mark, created on first lease.
+     * @param firstId The first ID to hand out when the file does not exist yet.
+     */
+    public IdBlockStore(Path file, long firstId) {
+        this.file = file;
+        this.lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.firstId = firstId;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Leases the next block of IDs.
+     *
+     * @param blockSize The number of IDs in the block.
+     * @return The first ID of the block; the block ends before {@code first + blockSize}.
+     * @throws IllegalStateException If the file exists but holds no valid mark.
+     */
+    public long lease(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be greater than 0.");
+        }
+        return update(start -> start + blockSize);
+    }
+
+    /**
+     * Moves the mark past an ID that is already in use, e.g. one loaded from saved data,
+     * so it is never leased again. Does nothing if the mark is already past it.
+     *
+     * @param usedId The ID in use.
+     */
+    public void advanceTo(long usedId) {
+        update(start -> Math.max(start, usedId + 1));
+    }
+
+    /**
+     * Replaces the mark under the file lock.
+     *
+     * @return The mark before the update.
+     */
+    private long update(LongUnaryOperator next) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    long start = readMark();
+                    long mark = next.applyAsLong(start);
+                    if (mark != start) {
+                        writeMark(mark);
+                    }
+                    return start;
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not update the ID high-water mark in " + file, e);
+        }
+    }
+
+    private long readMark() throws IOException {
+        if (!Files.exists(file)) {
+            return firstId;
+        }
+        String text = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+        try {
+            return Math.max(Long.parseLong(text), firstId);
+        } catch (NumberFormatException e) {
+            // Never fall back to firstId here: that would hand out every ID again
+            throw new IllegalStateException("Corrupt ID high-water mark in " + file + ": '" + text + "'", e);
+        }
+    }
+
+    /**
+     * Replaces the mark with a fully written and forced temporary file, so a crash never leaves it half written.
+     */
+    private void writeMark(long mark) throws IOException {
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Long.toString(mark).getBytes(StandardCharsets.US_ASCII));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory(file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Forces the rename to disk. Directories cannot be opened on every platform, e.g. not on Windows,
+     * where the rename is durable once the move returns.
+     */
+    private static void forceDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on this platform
+        }
+    }
+}
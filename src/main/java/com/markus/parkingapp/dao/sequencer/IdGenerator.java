@@ -0,0 +1,10 @@
+package com.markus.parkingapp.dao.sequencer;
+
+/**
+ * Source of unique IDs, encoded as primitive longs so they are cheap to hash and index.
+ * Implementations must be safe to call from many threads at once and never return the same ID twice.
+ */
+public interface IdGenerator {
+
+    long nextId(); // Returns the next unique ID
+}
@@ -0,0 +1,36 @@
+package com.markus.parkingapp.dao.sequencer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates strictly increasing IDs from a single atomic counter.
+ * Suitable for a single application instance; IDs restart from the initial value
+ * unless {@link #advanceTo(long)} is called with the highest ID already in use.
+ */
+public class SequenceIdGenerator implements IdGenerator {
+
+    private final AtomicLong lastId; // The most recently issued ID
+
+    /**
+     * Creates a generator whose first ID is the given value.
+     *
+     * @param firstId The first ID to issue.
+     */
+    public SequenceIdGenerator(long firstId) {
+        this.lastId = new AtomicLong(firstId - 1);
+    }
+
+    @Override
+    public long nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    /**
+     * Makes sure every later ID is greater than the given one, e.g. after reloading stored data.
+     *
+     * @param usedId An ID that is already in use.
+     */
+    public void advanceTo(long usedId) {
+        lastId.accumulateAndGet(usedId, Math::max);
+    }
+}
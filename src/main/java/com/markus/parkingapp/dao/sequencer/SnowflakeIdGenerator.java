@@ -0,0 +1,79 @@
+package com.markus.parkingapp.dao.sequencer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered IDs that are unique across application instances.
+ * <p>
+ * Each ID packs, from the most significant bit down: 41 bits of milliseconds since
+ * {@link #EPOCH_MILLIS}, a 10-bit node ID and a 12-bit per-millisecond sequence.
+ * Instances with different node IDs therefore never collide without coordinating.
+ * <p>
+ * The last issued ID is advanced with compare-and-set, so the generator is lock-free.
+ * It never waits for the clock: when the sequence of a millisecond runs out, or the
+ * clock moves backwards, it continues from the last issued timestamp, keeping IDs strictly increasing.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    public static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+
+    private final long nodeBits; // Node ID, already shifted into place
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * Creates a generator for one application instance.
+     *
+     * @param nodeId The ID of this instance, between 0 and {@link #MAX_NODE_ID}, unique per deployment.
+     */
+    public SnowflakeIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ".");
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            long last = lastId.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long lastTimestamp = last >>> TIMESTAMP_SHIFT;
+
+            long next;
+            if (now > lastTimestamp) {
+                next = (now << TIMESTAMP_SHIFT) | nodeBits;
+            } else if ((last & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                next = last + 1; // Same (or earlier) millisecond: take the next sequence number
+            } else {
+                next = ((lastTimestamp + 1) << TIMESTAMP_SHIFT) | nodeBits; // Sequence exhausted: borrow the next millisecond
+            }
+
+            if (lastId.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Extracts the creation time of an ID issued by this kind of generator.
+     *
+     * @param id The ID.
+     * @return The creation time in epoch milliseconds.
+     */
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH_MILLIS;
+    }
+
+    /**
+     * Extracts the node ID of an ID issued by this kind of generator.
+     */
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+}
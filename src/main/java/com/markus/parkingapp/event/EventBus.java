@@ -0,0 +1,261 @@
+package com.markus.parkingapp.event;
+
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process publisher of {@link ParkingEvent}s, so consumers such as signage or billing
+ * can react to changes without polling the DAOs.
+ * <p>
+ * Events go into a single bounded ring buffer. Publishing never blocks and never waits
+ * for a subscriber: it claims the next sequence number, stores the event in its slot and
+ * wakes subscribers that are idle. Each subscriber reads the ring from its own position on
+ * its own daemon thread and receives the events in batches of up to {@code maxBatchSize},
+ * one batch per unit of {@link Flow.Subscription#request demand}. A subscriber that stops
+ * requesting, or consumes more slowly than events are published, falls behind; once it
+ * is a full ring behind, the oldest events it has not read are overwritten and skipped.
+ * Such gaps show in the event sequence numbers and are counted by {@link #getDroppedCount()}.
+ * <p>
+ * The bus is also an {@link ParkingSpot.OccupancyListener}, so it can be registered with a
+ * parking spot DAO to publish {@link ParkingEvent.Type#SPOT_OCCUPIED} and
+ * {@link ParkingEvent.Type#SPOT_VACATED}.
+ */
+public class EventBus implements Flow.Publisher<List<ParkingEvent>>, ParkingSpot.OccupancyListener, Closeable {
+
+    private static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100); // Safety net against missed wake-ups
+
+    private final AtomicReferenceArray<ParkingEvent> ring;
+    private final int mask;
+    private final int maxBatchSize;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final List<RingSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    public EventBus() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Creates an event bus.
+     *
+     * @param capacity     The number of events kept for subscribers that fall behind, rounded up to a power of two.
+     * @param maxBatchSize The maximum number of events delivered in one batch.
+     */
+    public EventBus(int capacity, int maxBatchSize) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30.");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than 0.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Publishes an event about a reservation.
+     *
+     * @param type        The event type.
+     * @param reservation The reservation the event is about.
+     */
+    public void publish(ParkingEvent.Type type, Reservation reservation) {
+        ParkingSpot parkingSpot = reservation.getParkingSpot();
+        publish(type, parkingSpot.getSpotNumber(), parkingSpot.getAreaCode(), reservation.getId());
+    }
+
+    /**
+     * Publishes an event. Never blocks; subscribers are only woken up.
+     *
+     * @param type          The event type.
+     * @param spotNumber    The spot the event is about.
+     * @param areaCode      The area of the spot.
+     * @param reservationId The reservation the event is about, or 0.
+     */
+    public void publish(ParkingEvent.Type type, int spotNumber, int areaCode, long reservationId) {
+        if (closed) {
+            return;
+        }
+        long sequence = nextSequence.getAndIncrement();
+        ring.set((int) sequence & mask, new ParkingEvent(sequence, type, System.currentTimeMillis(), spotNumber, areaCode, reservationId));
+        for (RingSubscription subscription : subscriptions) {
+            if (subscription.idle) {
+                LockSupport.unpark(subscription.thread);
+            }
+        }
+    }
+
+    @Override
+    public void occupancyChanged(ParkingSpot spot, boolean occupied) {
+        Reservation reservation = occupied ? spot.getCurrentReservation() : null;
+        publish(occupied ? ParkingEvent.Type.SPOT_OCCUPIED : ParkingEvent.Type.SPOT_VACATED,
+                spot.getSpotNumber(), spot.getAreaCode(), reservation == null ? 0 : reservation.getId());
+    }
+
+    /**
+     * Subscribes to the events published from now on. The subscriber is called on a
+     * daemon thread of its own, which runs until it cancels or the bus is closed.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<ParkingEvent>> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber cannot be null.");
+        }
+        RingSubscription subscription = new RingSubscription(subscriber, nextSequence.get());
+        subscriptions.add(subscription);
+        subscription.thread.start();
+    }
+
+    /**
+     * Returns the number of events that subscribers skipped because they fell a full ring behind,
+     * summed over all subscribers.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Stops publishing. Subscribers receive the events already published and are then completed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (RingSubscription subscription : subscriptions) {
+            LockSupport.unpark(subscription.thread);
+        }
+    }
+
+    /**
+     * The position of one subscriber in the ring, with the thread delivering its batches.
+     */
+    private final class RingSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super List<ParkingEvent>> subscriber;
+        private final Thread thread;
+        private final AtomicLong demand = new AtomicLong();
+        private long cursor; // The next sequence to deliver; only used by the delivery thread
+        private volatile boolean idle;
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+
+        RingSubscription(Flow.Subscriber<? super List<ParkingEvent>> subscriber, long cursor) {
+            this.subscriber = subscriber;
+            this.cursor = cursor;
+            this.thread = new Thread(this, "event-subscriber-" + subscriberCount.incrementAndGet());
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested batches must be greater than 0: " + n);
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            try {
+                subscriber.onSubscribe(this);
+                while (!cancelled) {
+                    if (invalidRequest != null) {
+                        cancelled = true;
+                        subscriber.onError(invalidRequest);
+                        break;
+                    }
+                    if (closed && cursor == nextSequence.get()) {
+                        subscriber.onComplete();
+                        break;
+                    }
+                    if (demand.get() == 0 || !hasPublished()) {
+                        awaitSignal();
+                        continue;
+                    }
+                    List<ParkingEvent> batch = drain();
+                    if (batch.isEmpty()) {
+                        continue; // Only skipped overwritten events
+                    }
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    subscriber.onNext(batch);
+                }
+            } catch (RuntimeException | Error e) {
+                cancelled = true;
+                System.err.println("Event subscriber failed and was cancelled: " + e);
+            } finally {
+                subscriptions.remove(this);
+            }
+        }
+
+        /**
+         * Takes up to a batch of published events from the ring, skipping the ones already overwritten.
+         */
+        private List<ParkingEvent> drain() {
+            List<ParkingEvent> batch = new ArrayList<>(Math.min(maxBatchSize, (int) Math.min(Integer.MAX_VALUE, nextSequence.get() - cursor)));
+            while (batch.size() < maxBatchSize) {
+                ParkingEvent event = ring.get((int) cursor & mask);
+                if (event == null || event.getSequence() < cursor) {
+                    break; // Not published yet
+                }
+                if (event.getSequence() > cursor) {
+                    // Lapped: the slot holds a newer event, so skip to the oldest one that can still be in the ring
+                    long oldest = event.getSequence() - mask;
+                    droppedCount.addAndGet(oldest - cursor);
+                    cursor = oldest;
+                    continue;
+                }
+                batch.add(event);
+                cursor++;
+            }
+            return batch;
+        }
+
+        /**
+         * Checks whether the event at the cursor, or a newer one that overwrote it, has been stored.
+         */
+        private boolean hasPublished() {
+            ParkingEvent event = ring.get((int) cursor & mask);
+            return event != null && event.getSequence() >= cursor;
+        }
+
+        /**
+         * Parks until there may be something to do. Publishers only wake idle subscribers,
+         * so the state is checked again after announcing it.
+         */
+        private void awaitSignal() {
+            idle = true;
+            if (!cancelled && invalidRequest == null
+                    && (demand.get() == 0 || !hasPublished())) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            idle = false;
+        }
+    }
+}
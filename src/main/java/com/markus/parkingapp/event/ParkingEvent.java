@@ -0,0 +1,71 @@
+package com.markus.parkingapp.event;
+
+/**
+ * A change in the parking lot, published on an {@link EventBus}.
+ * <p>
+ * Events are immutable. Their sequence numbers are assigned by the bus in publishing
+ * order without gaps, so a subscriber that sees a gap between two events knows it fell
+ * behind and missed the events in between.
+ */
+public final class ParkingEvent {
+
+    public enum Type {
+        SPOT_OCCUPIED,          // A spot was claimed, by a reservation or without one
+        SPOT_VACATED,           // A spot became vacant
+        RESERVATION_CREATED,    // A reservation was made, starting now or booked ahead
+        RESERVATION_EXPIRED,    // The scheduler completed a reservation at its end time
+        RESERVATION_COMPLETED   // A reservation was vacated or cancelled before its end time
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final long timestamp;     // Epoch milliseconds when the event was published
+    private final int spotNumber;
+    private final int areaCode;
+    private final long reservationId; // 0 for changes not made by a reservation
+
+    ParkingEvent(long sequence, Type type, long timestamp, int spotNumber, int areaCode, long reservationId) {
+        this.sequence = sequence;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.spotNumber = spotNumber;
+        this.areaCode = areaCode;
+        this.reservationId = reservationId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getSpotNumber() {
+        return spotNumber;
+    }
+
+    public int getAreaCode() {
+        return areaCode;
+    }
+
+    public long getReservationId() {
+        return reservationId;
+    }
+
+    @Override
+    public String toString() {
+        return "ParkingEvent{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", timestamp=" + timestamp +
+                ", spotNumber=" + spotNumber +
+                ", areaCode=" + areaCode +
+                ", reservationId=" + reservationId +
+                '}';
+    }
+}
@@ -0,0 +1,59 @@
+package com.markus.parkingapp.importer;
+
+import com.markus.parkingapp.model.ParkingSpot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The compact binary format for parking spots, for lots too large to keep as CSV.
+ * <p>
+ * A file starts with the {@value #MAGIC} magic number and the format version, followed by
+ * one {@value #RECORD_SIZE}-byte record per spot: the spot number and the area code, both
+ * as big-endian ints. Spots are stored vacant; occupancy comes from the imported reservations.
+ */
+public final class BinarySpotFile {
+
+    public static final int MAGIC = 0x50535054; // "PSPT"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int RECORD_SIZE = 8;
+
+    private BinarySpotFile() {
+    }
+
+    /**
+     * Writes spots to a binary spot file, replacing the file if it exists.
+     *
+     * @param file  The file to write.
+     * @param spots The spots to write.
+     */
+    public static void write(Path file, Iterable<ParkingSpot> spots) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.putInt(MAGIC).putInt(VERSION);
+            for (ParkingSpot spot : spots) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putInt(spot.getSpotNumber()).putInt(spot.getAreaCode());
+            }
+            writeFully(channel, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write parking spots to " + file, e);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,643 @@
+package com.markus.parkingapp.importer;
+
+import com.markus.parkingapp.dao.CustomerDao;
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.dao.ReservationDao;
+import com.markus.parkingapp.dao.sequencer.SequenceIdGenerator;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+import com.markus.parkingapp.schedule.BookingCalendar;
+import com.markus.parkingapp.validation.CustomerRecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads parking spots, customers and reservations from files into the DAOs.
+ * <p>
+ * A file is read through a {@link FileChannel} in chunks of complete lines (or binary records).
+ * Each chunk is parsed and validated on a pool of parser threads while the next one is read,
+ * and the parsed chunks are stored by the calling thread in file order, one batch per chunk.
+ * Only a few chunks per parser thread are in flight at once, so the memory used for reading
+ * stays the same whatever the size of the file. Invalid records are reported in the
+ * {@link ImportResult} and skipped; the rest of the file is still imported.
+ * <p>
+ * The CSV files are UTF-8, with one record per line and fields separated by commas; fields
+ * cannot contain commas themselves. Blank lines and lines starting with {@code #} are
+ * skipped, as is a header line naming the first field. The files are:
+ * <ul>
+ *     <li>Spots: {@code spotNumber,areaCode}, or a {@link BinarySpotFile}.</li>
+ *     <li>Customers: {@code name,phoneNumber,plateNumber,vehicleType}.</li>
+ *     <li>Reservations: {@code spotNumber,plateNumber,startTime,endTime[,status[,reservationId]]},
+ *     with ISO-8601 local times such as {@code 2024-05-01T08:00}. The customer is found by plate
+ *     number, so customers must be imported first. A given status is kept, so a reservation
+ *     vacated before its end time stays completed. Without one, reservations that have ended
+ *     are stored completed, those that have not started are scheduled, and the others are
+ *     active. Active reservations occupy their spot. A reservation that has not ended and
+ *     overlaps a stored one, or an earlier line, on the same spot is reported and skipped.
+ *     Without an ID, a new one is taken. This
+ *     is the format {@link com.markus.parkingapp.report.ReservationExport} writes.</li>
+ * </ul>
+ */
+public class BulkImporter {
+
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    private static final int CHUNKS_PER_THREAD = 2; // Chunks in flight per parser thread
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final CustomerDao customerDao;
+    private final ParkingSpotDao parkingSpotDao;
+    private final ReservationDao reservationDao;
+    private final int chunkSize;
+    private final int threads;
+
+    public BulkImporter(CustomerDao customerDao, ParkingSpotDao parkingSpotDao, ReservationDao reservationDao) {
+        this(customerDao, parkingSpotDao, reservationDao, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an importer.
+     *
+     * @param customerDao    The DAO to store customers in.
+     * @param parkingSpotDao The DAO to store parking spots in.
+     * @param reservationDao The DAO to store reservations in.
+     * @param chunkSize      The number of bytes read at once; no line may be longer.
+     * @param threads        The number of parser threads.
+     */
+    public BulkImporter(CustomerDao customerDao, ParkingSpotDao parkingSpotDao, ReservationDao reservationDao,
+                        int chunkSize, int threads) {
+        if (chunkSize < BinarySpotFile.RECORD_SIZE) {
+            throw new IllegalArgumentException("Chunk size must be at least " + BinarySpotFile.RECORD_SIZE + " bytes.");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Threads must be greater than 0.");
+        }
+        this.customerDao = customerDao;
+        this.parkingSpotDao = parkingSpotDao;
+        this.reservationDao = reservationDao;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+    }
+
+    /**
+     * Imports parking spots from a CSV file or a {@link BinarySpotFile}, told apart by the magic number.
+     * The spots are created vacant.
+     */
+    public ImportResult importSpots(Path file) {
+        ByteBuffer header = ByteBuffer.allocate(BinarySpotFile.HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Read the whole header, unless the file is shorter
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+        if (header.position() == BinarySpotFile.HEADER_SIZE && header.getInt(0) == BinarySpotFile.MAGIC) {
+            int version = header.getInt(4);
+            if (version != BinarySpotFile.VERSION) {
+                throw new IllegalArgumentException("Unsupported spot file version " + version + ": " + file);
+            }
+            return run(file, new BinarySpotFormat(), BinarySpotFile.HEADER_SIZE);
+        }
+        return run(file, new SpotCsvFormat(), 0);
+    }
+
+    public ImportResult importCustomers(Path file) {
+        return run(file, new CustomerCsvFormat(), 0);
+    }
+
+    public ImportResult importReservations(Path file) {
+        return run(file, new ReservationCsvFormat(LocalDateTime.now()), 0);
+    }
+
+    /**
+     * Reads a file in chunks, parses them in parallel and stores them in order.
+     *
+     * @param offset Where the records start in the file.
+     */
+    private <T> ImportResult run(Path file, Format<T> format, long offset) {
+        long startNanos = System.nanoTime();
+        ImportResult result = new ImportResult(file);
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "import-parser-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<Parsed<T>>> inFlight = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(offset);
+            byte[] data = new byte[chunkSize];
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            long nextUnit = 1; // Line or record number of the first unit in the buffer
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                endOfFile = channel.read(buffer) < 0;
+                if (!endOfFile && buffer.hasRemaining()) {
+                    continue; // Only cut full chunks, except at the end
+                }
+                int length = buffer.position();
+                int end = format.cut(data, length, endOfFile);
+                if (end == 0 && length == data.length) {
+                    throw new IllegalArgumentException(format.unitName + " " + nextUnit + " of " + file
+                            + " is longer than " + chunkSize + " bytes.");
+                }
+                if (end > 0) {
+                    byte[] chunk = Arrays.copyOf(data, end);
+                    long firstUnit = nextUnit;
+                    nextUnit += format.countUnits(chunk);
+                    inFlight.add(parsers.submit(() -> format.parse(chunk, firstUnit)));
+                    if (inFlight.size() >= threads * CHUNKS_PER_THREAD) {
+                        store(inFlight.poll(), format, result);
+                    }
+                }
+                System.arraycopy(data, end, data, 0, length - end);
+                buffer.position(length - end);
+            }
+            while (!inFlight.isEmpty()) {
+                store(inFlight.poll(), format, result);
+            }
+            if (buffer.position() > 0) {
+                result.addError("The file ends with an incomplete record of " + buffer.position() + " bytes.");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        } finally {
+            parsers.shutdownNow();
+        }
+        result.setElapsedNanos(System.nanoTime() - startNanos);
+        return result;
+    }
+
+    private static <T> void store(Future<Parsed<T>> future, Format<T> format, ImportResult result) {
+        Parsed<T> parsed;
+        try {
+            parsed = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing " + result.getFile(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to parse " + result.getFile(), e.getCause());
+        }
+        for (String error : parsed.errors) {
+            result.addError(error);
+        }
+        format.store(parsed.records, result);
+    }
+
+    /**
+     * The records parsed from one chunk, and the errors of the ones that could not be parsed.
+     */
+    private static final class Parsed<T> {
+        private final List<T> records = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+    }
+
+    /**
+     * How the records of one kind of file are cut into chunks, parsed and stored.
+     */
+    private abstract static class Format<T> {
+        final String unitName; // "Line" or "Record", for error messages
+
+        Format(String unitName) {
+            this.unitName = unitName;
+        }
+
+        /**
+         * Returns how many bytes at the start of the buffer hold complete records.
+         */
+        abstract int cut(byte[] data, int length, boolean endOfFile);
+
+        /**
+         * Returns the number of lines or records in a chunk.
+         */
+        abstract long countUnits(byte[] chunk);
+
+        /**
+         * Parses a chunk. Called on a parser thread.
+         */
+        abstract Parsed<T> parse(byte[] chunk, long firstUnit);
+
+        /**
+         * Stores the records of one chunk. Called on the importing thread, in file order.
+         */
+        abstract void store(List<T> records, ImportResult result);
+    }
+
+    /**
+     * A CSV file: chunks end after a line break, and each line is one record.
+     */
+    private abstract static class CsvFormat<T> extends Format<T> {
+        private final String header;   // The first field name, identifying a header line
+        private final int fieldCount;
+        private final int maxFieldCount; // Fields beyond fieldCount are optional and may be left out
+
+        CsvFormat(String header, int fieldCount) {
+            this(header, fieldCount, fieldCount);
+        }
+
+        CsvFormat(String header, int fieldCount, int maxFieldCount) {
+            super("Line");
+            this.header = header;
+            this.fieldCount = fieldCount;
+            this.maxFieldCount = maxFieldCount;
+        }
+
+        @Override
+        int cut(byte[] data, int length, boolean endOfFile) {
+            if (endOfFile) {
+                return length;
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                if (data[i] == '\n') {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        long countUnits(byte[] chunk) {
+            long lines = 0;
+            for (byte b : chunk) {
+                if (b == '\n') {
+                    lines++;
+                }
+            }
+            return lines;
+        }
+
+        @Override
+        Parsed<T> parse(byte[] chunk, long firstUnit) {
+            Parsed<T> parsed = new Parsed<>();
+            int[] starts = new int[maxFieldCount];
+            int[] ends = new int[maxFieldCount];
+            long lineNumber = firstUnit;
+            int lineStart = 0;
+            while (lineStart < chunk.length) {
+                int lineEnd = lineStart;
+                while (lineEnd < chunk.length && chunk[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                int contentEnd = lineEnd > lineStart && chunk[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+                parseLine(chunk, lineStart, contentEnd, lineNumber, starts, ends, parsed);
+                lineStart = lineEnd + 1;
+                lineNumber++;
+            }
+            return parsed;
+        }
+
+        private void parseLine(byte[] data, int start, int end, long lineNumber,
+                               int[] starts, int[] ends, Parsed<T> parsed) {
+            start = skipSpaces(data, start, end);
+            if (start == end || data[start] == '#') {
+                return; // Blank line or comment
+            }
+            if (lineNumber == 1 && startsWithIgnoreCase(data, start, end, header)) {
+                return; // Header line
+            }
+
+            int count = 0;
+            int fieldStart = start;
+            for (int i = start; i <= end; i++) {
+                if (i == end || data[i] == ',') {
+                    if (count == maxFieldCount) {
+                        count++;
+                        break;
+                    }
+                    starts[count] = skipSpaces(data, fieldStart, i);
+                    ends[count] = trimEnd(data, starts[count], i);
+                    count++;
+                    fieldStart = i + 1;
+                }
+            }
+            if (count < fieldCount || count > maxFieldCount) {
+                String expected = fieldCount == maxFieldCount ? String.valueOf(fieldCount) : fieldCount + " to " + maxFieldCount;
+                parsed.errors.add("Line " + lineNumber + ": Expected " + expected + " fields but found "
+                        + (count > maxFieldCount ? "more" : String.valueOf(count)) + ".");
+                return;
+            }
+            for (int i = count; i < maxFieldCount; i++) {
+                starts[i] = start; // Optional fields left out are empty
+                ends[i] = start;
+            }
+            try {
+                parsed.records.add(parseFields(data, starts, ends, lineNumber));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                parsed.errors.add("Line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * Builds the record of one line from its trimmed fields. Optional fields left out are empty.
+         *
+         * @throws IllegalArgumentException If a field is invalid.
+         */
+        abstract T parseFields(byte[] data, int[] starts, int[] ends, long lineNumber);
+
+        private static int skipSpaces(byte[] data, int start, int end) {
+            while (start < end && (data[start] == ' ' || data[start] == '\t')) {
+                start++;
+            }
+            return start;
+        }
+
+        private static int trimEnd(byte[] data, int start, int end) {
+            while (end > start && (data[end - 1] == ' ' || data[end - 1] == '\t')) {
+                end--;
+            }
+            return end;
+        }
+
+        private static boolean startsWithIgnoreCase(byte[] data, int start, int end, String prefix) {
+            if (end - start < prefix.length()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (Character.toLowerCase((char) data[start + i]) != Character.toLowerCase(prefix.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Parses a decimal int without creating a string.
+     */
+    static int parseInt(byte[] data, int start, int end, String field) {
+        boolean negative = end > start && data[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end || end - i > 10) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + text(data, start, end));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid " + field + ": " + text(data, start, end));
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + text(data, start, end));
+        }
+        return (int) value;
+    }
+
+    static String text(byte[] data, int start, int end) {
+        return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates the parking spots of one chunk, one at a time, since spot DAOs have no batch create.
+     */
+    private void storeSpots(List<ParkingSpot> spots, ImportResult result) {
+        for (ParkingSpot spot : spots) {
+            try {
+                parkingSpotDao.create(spot);
+                result.addImported(1);
+            } catch (IllegalArgumentException e) {
+                result.addError(e.getMessage());
+            }
+        }
+    }
+
+    private final class SpotCsvFormat extends CsvFormat<ParkingSpot> {
+        SpotCsvFormat() {
+            super("spotNumber", 2);
+        }
+
+        @Override
+        ParkingSpot parseFields(byte[] data, int[] starts, int[] ends, long lineNumber) {
+            return new ParkingSpot(parseInt(data, starts[0], ends[0], "spot number"),
+                    parseInt(data, starts[1], ends[1], "area code"));
+        }
+
+        @Override
+        void store(List<ParkingSpot> spots, ImportResult result) {
+            storeSpots(spots, result);
+        }
+    }
+
+    private final class BinarySpotFormat extends Format<ParkingSpot> {
+        BinarySpotFormat() {
+            super("Record");
+        }
+
+        @Override
+        int cut(byte[] data, int length, boolean endOfFile) {
+            return length - length % BinarySpotFile.RECORD_SIZE;
+        }
+
+        @Override
+        long countUnits(byte[] chunk) {
+            return chunk.length / BinarySpotFile.RECORD_SIZE;
+        }
+
+        @Override
+        Parsed<ParkingSpot> parse(byte[] chunk, long firstUnit) {
+            Parsed<ParkingSpot> parsed = new Parsed<>();
+            ByteBuffer records = ByteBuffer.wrap(chunk);
+            while (records.hasRemaining()) {
+                parsed.records.add(new ParkingSpot(records.getInt(), records.getInt()));
+            }
+            return parsed;
+        }
+
+        @Override
+        void store(List<ParkingSpot> spots, ImportResult result) {
+            storeSpots(spots, result);
+        }
+    }
+
+    private final class CustomerCsvFormat extends CsvFormat<CustomerRecord> {
+        CustomerCsvFormat() {
+            super("name", 4);
+        }
+
+        @Override
+        CustomerRecord parseFields(byte[] data, int[] starts, int[] ends, long lineNumber) {
+            CustomerRecord record = new CustomerRecord(lineNumber, text(data, starts[0], ends[0]),
+                    text(data, starts[1], ends[1]), text(data, starts[2], ends[2]), text(data, starts[3], ends[3]));
+            String error = record.validate(); // Validated here, on the parser threads
+            if (error != null) {
+                throw new IllegalArgumentException(error);
+            }
+            return record;
+        }
+
+        @Override
+        void store(List<CustomerRecord> records, ImportResult result) {
+            for (CustomerRecord record : records) {
+                try {
+                    customerDao.create(record.toCustomer());
+                    result.addImported(1);
+                } catch (IllegalArgumentException e) {
+                    // E.g. a plate or phone number that is already registered
+                    result.addError("Line " + record.getLineNumber() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A parsed reservation line, not yet stored.
+     */
+    private static final class ReservationRow {
+        private final long lineNumber;
+        private final ParkingSpot parkingSpot;
+        private final Customer customer;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+        private final Reservation.Status status; // Null to derive it from the times
+        private final long reservationId;        // 0 to take a new ID
+
+        ReservationRow(long lineNumber, ParkingSpot parkingSpot, Customer customer,
+                       LocalDateTime startTime, LocalDateTime endTime, Reservation.Status status, long reservationId) {
+            this.lineNumber = lineNumber;
+            this.parkingSpot = parkingSpot;
+            this.customer = customer;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.status = status;
+            this.reservationId = reservationId;
+        }
+    }
+
+    private final class ReservationCsvFormat extends CsvFormat<ReservationRow> {
+        private final LocalDateTime now; // Decides the status of every reservation in the file
+        private final BookingCalendar calendar; // Windows of the stored and imported reservations that have not ended
+
+        ReservationCsvFormat(LocalDateTime now) {
+            super("spotNumber", 4, 6);
+            this.now = now;
+            this.calendar = new BookingCalendar(parkingSpotDao);
+            for (Reservation reservation : reservationDao.findActive()) {
+                calendar.tryBook(reservation);
+            }
+        }
+
+        @Override
+        ReservationRow parseFields(byte[] data, int[] starts, int[] ends, long lineNumber) {
+            int spotNumber = parseInt(data, starts[0], ends[0], "spot number");
+            String plateNumber = text(data, starts[1], ends[1]);
+            ParkingSpot parkingSpot = parkingSpotDao.findBySpotNumber(spotNumber)
+                    .orElseThrow(() -> new IllegalArgumentException("Parking spot " + spotNumber + " does not exist."));
+            Customer customer = customerDao.findByPlate(plateNumber)
+                    .orElseThrow(() -> new IllegalArgumentException("No customer has plate number " + plateNumber + "."));
+            LocalDateTime startTime = LocalDateTime.parse(text(data, starts[2], ends[2]));
+            LocalDateTime endTime = LocalDateTime.parse(text(data, starts[3], ends[3]));
+            if (!endTime.isAfter(startTime)) {
+                throw new IllegalArgumentException("End time must be after start time.");
+            }
+            Reservation.Status status = null;
+            if (ends[4] > starts[4]) {
+                String name = text(data, starts[4], ends[4]);
+                try {
+                    status = Reservation.Status.valueOf(name.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid status: " + name);
+                }
+            }
+            long reservationId = 0;
+            if (ends[5] > starts[5]) {
+                String text = text(data, starts[5], ends[5]);
+                try {
+                    reservationId = Long.parseLong(text);
+                } catch (NumberFormatException e) {
+                    reservationId = 0;
+                }
+                if (reservationId <= 0) {
+                    throw new IllegalArgumentException("Invalid reservation ID: " + text);
+                }
+            }
+            return new ReservationRow(lineNumber, parkingSpot, customer, startTime, endTime, status, reservationId);
+        }
+
+        /**
+         * Stores the reservations of one chunk with a single {@link ReservationDao#createAll} call,
+         * after their windows were booked and, for active ones, their spots claimed. A window that
+         * overlaps a stored reservation or an earlier line is reported as an error of its line.
+         * IDs are taken here, so they follow the order of the file.
+         */
+        @Override
+        void store(List<ReservationRow> rows, ImportResult result) {
+            List<Reservation> batch = new ArrayList<>(rows.size());
+            List<ReservationRow> batchRows = new ArrayList<>(rows.size());
+            for (ReservationRow row : rows) {
+                Reservation.Status status = row.status != null ? row.status
+                        : !row.endTime.isAfter(now) ? Reservation.Status.COMPLETED
+                        : row.startTime.isAfter(now) ? Reservation.Status.SCHEDULED
+                        : Reservation.Status.ACTIVE;
+                long id = row.reservationId;
+                if (id == 0) {
+                    id = Reservation.getIdGenerator().nextId();
+                } else if (reservationDao.findById(String.valueOf(id)).isPresent()) {
+                    result.addError("Line " + row.lineNumber + ": Reservation " + id + " already exists.");
+                    continue;
+                } else if (Reservation.getIdGenerator() instanceof SequenceIdGenerator) {
+                    ((SequenceIdGenerator) Reservation.getIdGenerator()).advanceTo(id); // New IDs never reuse it
+                }
+                Reservation reservation = new Reservation(id, row.parkingSpot, row.customer, row.startTime, row.endTime, status);
+                int spotNumber = row.parkingSpot.getSpotNumber();
+                if (status != Reservation.Status.COMPLETED && !calendar.tryBook(reservation)) {
+                    result.addError("Line " + row.lineNumber + ": Parking spot " + spotNumber
+                            + " is already booked for that time.");
+                    continue;
+                }
+                if (status == Reservation.Status.ACTIVE && !parkingSpotDao.tryOccupy(spotNumber, reservation)) {
+                    calendar.release(reservation);
+                    result.addError("Line " + row.lineNumber + ": Parking spot " + spotNumber + " is already occupied.");
+                    continue;
+                }
+                batch.add(reservation);
+                batchRows.add(row);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                reservationDao.createAll(batch);
+                result.addImported(batch.size());
+            } catch (RuntimeException e) {
+                // createAll may have stored part of the batch; undo the claims of the rest
+                for (int i = 0; i < batch.size(); i++) {
+                    Reservation reservation = batch.get(i);
+                    if (reservationDao.findById(reservation.getReservationId()).isPresent()) {
+                        result.addImported(1);
+                        continue;
+                    }
+                    if (reservation.getStatus() == Reservation.Status.ACTIVE) {
+                        parkingSpotDao.tryVacate(reservation.getParkingSpot().getSpotNumber(), reservation);
+                    }
+                    calendar.release(reservation);
+                    result.addError("Line " + batchRows.get(i).lineNumber + ": Could not be stored: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
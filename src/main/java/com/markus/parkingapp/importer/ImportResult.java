@@ -0,0 +1,69 @@
+package com.markus.parkingapp.importer;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of importing one file: how many records were stored, how many failed, and why.
+ * Only the first {@value #MAX_ERRORS} error messages are kept, so a broken file cannot fill the heap.
+ */
+public final class ImportResult {
+
+    static final int MAX_ERRORS = 100;
+
+    private final Path file;
+    private long imported;
+    private long failed;
+    private final List<String> errors = new ArrayList<>();
+    private long elapsedNanos;
+
+    ImportResult(Path file) {
+        this.file = file;
+    }
+
+    void addImported(long count) {
+        imported += count;
+    }
+
+    void addError(String error) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Returns the messages of the first failed records, each naming its line or record number.
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return "Imported " + imported + " records from " + file + " in " + getElapsedMillis() + " ms"
+                + (failed == 0 ? "." : ", " + failed + " failed.");
+    }
+}
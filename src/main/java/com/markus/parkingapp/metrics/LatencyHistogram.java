@@ -0,0 +1,173 @@
+package com.markus.parkingapp.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies in nanoseconds, cheap enough to record on every call of a hot path.
+ * <p>
+ * Like an HDR histogram, the buckets are log-linear: every power of two is split into
+ * {@value #SUB_BUCKETS} equal buckets, so any latency from one nanosecond to hours is
+ * counted with a relative error of at most 1/{@value #SUB_BUCKETS}, in a fixed array of
+ * counters. Recording computes the bucket with a few shifts and increments one counter;
+ * it never allocates and never locks, and may be called from any number of threads.
+ * <p>
+ * Percentiles are computed from the counters when read. They report the highest latency
+ * that falls into the same bucket, so they may be slightly above the recorded latencies
+ * but are never below them.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = bucketOf(Long.MAX_VALUE) + 1;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a latency. Negative latencies, e.g. from a clock adjustment, are counted as 0.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(value));
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    /**
+     * Records the time passed since a start time taken with {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the bucket of a latency. Latencies below twice the number of sub-buckets have
+     * a bucket each; above that, the bucket is given by the highest set bit and the
+     * {@value #SUB_BUCKET_BITS} bits below it.
+     */
+    private static int bucketOf(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the highest latency counted in a bucket.
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long lowest = (long) ((bucket & (SUB_BUCKETS - 1)) + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the latency below which the given percentage of the recorded latencies fall.
+     *
+     * @param percentile The percentage, from 0 to 100.
+     * @return The latency in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        // Read the counters once, so the rank and the walk below see the same recordings
+        long[] snapshot = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) totalNanos.sum() / count;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return getMeanNanos() / 1000;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return getPercentileMicros(50);
+    }
+
+    @Override
+    public double getP90Micros() {
+        return getPercentileMicros(90);
+    }
+
+    @Override
+    public double getP99Micros() {
+        return getPercentileMicros(99);
+    }
+
+    @Override
+    public double getP999Micros() {
+        return getPercentileMicros(99.9);
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return maxNanos.get() / 1000.0;
+    }
+
+    @Override
+    public double getPercentileMicros(double percentile) {
+        return getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+                "name='" + name + '\'' +
+                ", count=" + getCount() +
+                ", p99Micros=" + getP99Micros() +
+                '}';
+    }
+}
@@ -0,0 +1,25 @@
+package com.markus.parkingapp.metrics;
+
+/**
+ * JMX view of a {@link LatencyHistogram}. Latencies are reported in microseconds.
+ */
+public interface LatencyHistogramMXBean {
+
+    String getName();
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    double getPercentileMicros(double percentile); // Latency below which the given percentage of recordings fall
+}
@@ -0,0 +1,188 @@
+package com.markus.parkingapp.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named counters and latency histograms of one running application.
+ * <p>
+ * Metrics are looked up by name once, when the code recording them is set up, and kept
+ * in fields; recording is then a plain call on the counter or histogram. All metrics can
+ * be read over JMX, under the {@value #JMX_DOMAIN} domain, once {@link #registerMBeans()}
+ * was called, and written to a text file with {@link #dump(Path)}.
+ */
+public class MetricsRegistry implements MetricsRegistryMXBean {
+
+    public static final String JMX_DOMAIN = "parkingapp";
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    /**
+     * Returns the histogram with the given name, creating it on first use.
+     * Histograms created after {@link #registerMBeans()} are registered as well.
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            synchronized (this) {
+                histogram = histograms.get(name);
+                if (histogram == null) {
+                    histogram = new LatencyHistogram(name);
+                    histograms.put(name, histogram);
+                    if (!registeredNames.isEmpty()) {
+                        register(histogramName(name), histogram);
+                    }
+                }
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the counter with the given name, creating it on first use.
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    @Override
+    public List<String> getHistogramNames() {
+        List<String> names = new ArrayList<>(histograms.keySet());
+        names.sort(null);
+        return names;
+    }
+
+    /**
+     * Registers the registry and all of its histograms with the platform MBean server.
+     * MBeans of another registry under the same names, e.g. of an earlier service in the
+     * same JVM, are replaced.
+     */
+    public synchronized void registerMBeans() {
+        if (!registeredNames.isEmpty()) {
+            return;
+        }
+        register(registryName(), this);
+        for (LatencyHistogram histogram : histograms.values()) {
+            register(histogramName(histogram.getName()), histogram);
+        }
+    }
+
+    /**
+     * Unregisters the MBeans registered by {@link #registerMBeans()}.
+     */
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch (InstanceNotFoundException e) {
+                // Already replaced by another registry and unregistered by it
+            } catch (JMException e) {
+                System.err.println("Failed to unregister MBean " + name + ": " + e.getMessage());
+            }
+        }
+        registeredNames.clear();
+    }
+
+    private void register(ObjectName name, Object mbean) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            try {
+                server.registerMBean(mbean, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(mbean, name);
+            }
+            registeredNames.add(name);
+        } catch (JMException e) {
+            // Metrics are optional, so the application keeps running without them
+            System.err.println("Failed to register MBean " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static ObjectName registryName() {
+        return objectName(JMX_DOMAIN + ":type=Metrics");
+    }
+
+    private static ObjectName histogramName(String name) {
+        return objectName(JMX_DOMAIN + ":type=Latency,name=" + ObjectName.quote(name));
+    }
+
+    private static ObjectName objectName(String name) {
+        try {
+            return new ObjectName(name);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid MBean name: " + name, e);
+        }
+    }
+
+    @Override
+    public String dump(String file) {
+        Path path = Path.of(file).toAbsolutePath();
+        dump(path);
+        return path.toString();
+    }
+
+    /**
+     * Writes all metrics to a text file, replacing the file if it exists.
+     *
+     * @param file The file to write.
+     */
+    public void dump(Path file) {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeTo(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write metrics to " + file, e);
+        }
+    }
+
+    /**
+     * Writes all metrics as text: one line per histogram with its latency percentiles in
+     * microseconds, followed by one line per counter.
+     */
+    public void writeTo(Appendable out) throws IOException {
+        out.append("# Metrics at ").append(LocalDateTime.now().toString()).append('\n');
+        out.append(String.format(Locale.ROOT, "%-40s %12s %12s %12s %12s %12s %12s %12s%n",
+                "latency (us)", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        for (String name : getHistogramNames()) {
+            LatencyHistogram histogram = histograms.get(name);
+            out.append(String.format(Locale.ROOT, "%-40s %12d %12.1f %12.1f %12.1f %12.1f %12.1f %12.1f%n",
+                    name, histogram.getCount(), histogram.getMeanMicros(), histogram.getP50Micros(),
+                    histogram.getP90Micros(), histogram.getP99Micros(), histogram.getP999Micros(),
+                    histogram.getMaxMicros()));
+        }
+        out.append('\n');
+        out.append(String.format(Locale.ROOT, "%-40s %12s%n", "counter", "value"));
+        for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+            out.append(String.format(Locale.ROOT, "%-40s %12d%n", counter.getKey(), counter.getValue()));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.markus.parkingapp.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX view of a {@link MetricsRegistry}.
+ */
+public interface MetricsRegistryMXBean {
+
+    Map<String, Long> getCounters(); // Current value of every counter, by name
+
+    List<String> getHistogramNames(); // Names of the latency histograms, each registered as an MXBean of its own
+
+    String dump(String file); // Write all metrics to a text file and return its absolute path
+}
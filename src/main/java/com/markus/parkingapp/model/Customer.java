@@ -1,7 +1,8 @@
 package com.markus.parkingapp.model;
 
+import com.markus.parkingapp.validation.CustomerValidator;
+
 import java.util.Objects;
-import java.util.regex.Pattern;
 
 public class Customer {
     private Integer id;  // Unique identifier for the customer
@@ -41,18 +42,12 @@ public class Customer {
     }
 
     public void setName(String name) {
-        if (name == null || name.isEmpty()) throw new IllegalArgumentException("Name should not be null or empty.");
+        CustomerValidator.require(CustomerValidator.checkName(name));
         this.name = name;
     }
 
     public void setPhoneNumber(String phoneNumber) {
-        if (phoneNumber == null || phoneNumber.isEmpty()) throw new IllegalArgumentException("PhoneNumber should not be null or empty.");
-
-        final Pattern PHONE_PATTERN = Pattern.compile("^\\+?[0-9]{10,15}$");
-        if (!PHONE_PATTERN.matcher(phoneNumber).matches()) {
-            throw new IllegalArgumentException("Invalid phone number format.");
-        }
-
+        CustomerValidator.require(CustomerValidator.checkPhoneNumber(phoneNumber)); // Scans the digits without a regex
         this.phoneNumber = phoneNumber;
     }
 
@@ -1,14 +1,50 @@
 package com.markus.parkingapp.model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /**
  * Represents a parking spot within a parking lot.
+ * <p>
+ * The occupancy state is a single reference that is changed with compare-and-set, so
+ * concurrent attempts to claim the same spot resolve without locks: exactly one
+ * {@link #tryOccupy(Reservation)} succeeds and every other caller sees it fail.
  */
 public class ParkingSpot {
 
+    /**
+     * Callback notified whenever a parking spot switches between vacant and occupied.
+     * DAOs register one to keep their availability indexes current.
+     * <p>
+     * Notifications for the same spot may arrive out of order when it changes concurrently,
+     * so listeners that maintain state should re-read {@link #isOccupied()}.
+     */
+    public interface OccupancyListener {
+        void occupancyChanged(ParkingSpot spot, boolean occupied);
+    }
+
+    // Occupant marker for spots occupied without a reservation (e.g. by occupy())
+    private static final Object OCCUPIED_WITHOUT_RESERVATION = new Object();
+
+    private static final VarHandle OCCUPANT;
+
+    static {
+        try {
+            OCCUPANT = MethodHandles.lookup().findVarHandle(ParkingSpot.class, "occupant", Object.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private Integer spotNumber; // Unique identifier for the parking spot
-    private boolean occupied;  // Indicates whether the parking spot is occupied (true) or available (false)
     private Integer areaCode;  // Identifier for the area where the parking spot is located
 
+    // The current occupant: null when the spot is available, otherwise the reservation
+    // holding it or OCCUPIED_WITHOUT_RESERVATION. Only changed through the OCCUPANT handle.
+    private volatile Object occupant;
+
+    private volatile OccupancyListener occupancyListener; // Notified on occupancy changes, may be null
+
     public ParkingSpot(Integer spotNumber, Integer areaCode) {
         this.spotNumber = spotNumber;
         this.areaCode = areaCode;
@@ -23,7 +59,7 @@ public class ParkingSpot {
      */
     public ParkingSpot(Integer spotNumber, boolean occupied, Integer areaCode) {
         this(spotNumber, areaCode);
-        this.occupied = occupied;
+        this.occupant = occupied ? OCCUPIED_WITHOUT_RESERVATION : null;
     }
 
     public Integer getSpotNumber() {
@@ -35,23 +71,91 @@ public class ParkingSpot {
     }
 
     public boolean isOccupied() {
-        return occupied;
+        return occupant != null;
+    }
+
+    /**
+     * Returns the reservation currently holding this spot.
+     *
+     * @return The reservation, or null if the spot is vacant or occupied without a reservation.
+     */
+    public Reservation getCurrentReservation() {
+        Object current = occupant;
+        return current instanceof Reservation ? (Reservation) current : null;
+    }
+
+    public OccupancyListener getOccupancyListener() {
+        return occupancyListener;
+    }
+
+    public void setOccupancyListener(OccupancyListener occupancyListener) {
+        this.occupancyListener = occupancyListener;
+    }
+
+    /**
+     * Atomically claims the parking spot for a reservation if it is vacant.
+     *
+     * @param reservation The reservation claiming the spot.
+     * @return True if the spot was vacant and is now held by the reservation, false if it was already occupied.
+     */
+    public boolean tryOccupy(Reservation reservation) {
+        if (reservation == null) {
+            throw new IllegalArgumentException("Reservation cannot be null.");
+        }
+        if (!OCCUPANT.compareAndSet(this, null, reservation)) {
+            return false;
+        }
+        notifyListener(true);
+        return true;
+    }
+
+    /**
+     * Atomically releases the parking spot if it is still held by the given reservation.
+     * A reservation that expired or was completed can therefore never vacate a spot
+     * that has since been claimed by someone else.
+     *
+     * @param reservation The reservation releasing the spot.
+     * @return True if the spot was held by the reservation and is now vacant.
+     */
+    public boolean tryVacate(Reservation reservation) {
+        if (reservation == null) {
+            throw new IllegalArgumentException("Reservation cannot be null.");
+        }
+        Object current = occupant;
+        // Match by ID, as the reservation may be a different copy of the one that claimed the spot
+        if (!(current instanceof Reservation)
+                || !((Reservation) current).getReservationId().equals(reservation.getReservationId())
+                || !OCCUPANT.compareAndSet(this, current, null)) {
+            return false;
+        }
+        notifyListener(false);
+        return true;
     }
 
     /**
-     * Marks the parking spot as occupied.
-     * This method sets the `occupied` field to true.
+     * Marks the parking spot as occupied without a reservation.
+     * Does nothing if the spot is already occupied.
      */
     public void occupy() {
-        occupied = true;
+        if (OCCUPANT.compareAndSet(this, null, OCCUPIED_WITHOUT_RESERVATION)) {
+            notifyListener(true);
+        }
     }
 
     /**
-     * Marks the parking spot as vacant.
-     * This method sets the `occupied` field to false.
+     * Marks the parking spot as vacant, regardless of who holds it.
      */
     public void vacate() {
-        occupied = false;
+        if (OCCUPANT.getAndSet(this, null) != null) {
+            notifyListener(false);
+        }
+    }
+
+    private void notifyListener(boolean occupied) {
+        OccupancyListener listener = occupancyListener;
+        if (listener != null) {
+            listener.occupancyChanged(this, occupied);
+        }
     }
 
     /**
@@ -62,9 +166,9 @@ public class ParkingSpot {
     @Override
     public String toString() {
         return "ParkingSpot{" +
-                "spotNumber=" + spotNumber +
-                ", occupied=" + occupied +
-                ", areaCode=" + areaCode +
+                "spotNumber=" + getSpotNumber() +
+                ", occupied=" + isOccupied() +
+                ", areaCode=" + getAreaCode() +
                 '}';
     }
 }
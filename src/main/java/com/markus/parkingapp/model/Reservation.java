@@ -1,10 +1,13 @@
 package com.markus.parkingapp.model;
 
+import com.markus.parkingapp.dao.sequencer.IdGenerator;
+import com.markus.parkingapp.dao.sequencer.SequenceIdGenerator;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.Objects;
-import java.util.Random;
-import java.util.UUID;
 
 /**
  * Represents a reservation in the parking management system.
@@ -15,16 +18,33 @@ public class Reservation {
      * Enum representing the status of a reservation.
      * - ACTIVE: The reservation is currently in use.
      * - COMPLETED: The reservation has ended.
+     * - SCHEDULED: The reservation was booked in advance and has not started yet.
      */
     public enum Status {
         ACTIVE,
-        COMPLETED
+        COMPLETED,
+        SCHEDULED // Declared last, as stored data refers to statuses by ordinal
     }
 
-    private final String reservationId;   // Unique identifier for the reservation
+    // Source of reservation IDs. Sequential by default; deployments running several
+    // instances install a SnowflakeIdGenerator with a distinct node ID per instance.
+    private static volatile IdGenerator idGenerator = new SequenceIdGenerator(100000);
+
+    private static final VarHandle STATUS;
+
+    static {
+        try {
+            STATUS = MethodHandles.lookup().findVarHandle(Reservation.class, "status", Status.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long id;                // Unique numeric identifier for the reservation
+    private final String reservationId;   // The same identifier as text
     private final LocalDateTime startTime; // Start time of the reservation
     private LocalDateTime endTime;  // End time of the reservation
-    private Status status;  // Current status of the reservation (ACTIVE or COMPLETED)
+    private volatile Status status;  // Current status; only changed through the STATUS handle after construction
 
 
     private ParkingSpot parkingSpot;  // The parking spot associated with this reservation
@@ -33,8 +53,8 @@ public class Reservation {
 
 
     public Reservation(ParkingSpot parkingSpot, Customer customer, int hours) {
-        //this.reservationId = UUID.randomUUID().toString();
-        this.reservationId = String.valueOf(generateRandomNumber());
+        this.id = idGenerator.nextId();
+        this.reservationId = String.valueOf(id);
         this.startTime = LocalDateTime.now();
         this.setEndTimeByHours(hours);
         this.parkingSpot = Objects.requireNonNull(parkingSpot, "Parking spot cannot be null.");
@@ -42,9 +62,71 @@ public class Reservation {
         this.status = Status.ACTIVE; // Default status is ACTIVE
     }
 
-    private int generateRandomNumber() {
-        Random random = new Random();
-        return 100000 + random.nextInt(900000); // Generates a number between 100000 and 999999
+    /**
+     * Books a reservation in advance. It is SCHEDULED until its start time, or ACTIVE at once
+     * if the start time is not in the future.
+     *
+     * @param parkingSpot The reserved parking spot.
+     * @param customer    The customer making the reservation.
+     * @param startTime   The time the reservation starts.
+     * @param hours       The duration in hours.
+     */
+    public Reservation(ParkingSpot parkingSpot, Customer customer, LocalDateTime startTime, int hours) {
+        this.id = idGenerator.nextId();
+        this.reservationId = String.valueOf(id);
+        this.startTime = Objects.requireNonNull(startTime, "Start time cannot be null.");
+        this.setEndTimeByHours(hours);
+        this.parkingSpot = Objects.requireNonNull(parkingSpot, "Parking spot cannot be null.");
+        this.customer = Objects.requireNonNull(customer, "Customer cannot be null.");
+        this.status = startTime.isAfter(LocalDateTime.now()) ? Status.SCHEDULED : Status.ACTIVE;
+    }
+
+    /**
+     * Restores a reservation with all of its stored state, e.g. when loading saved data.
+     * No new ID is generated.
+     *
+     * @param id          The numeric ID the reservation was created with.
+     * @param parkingSpot The reserved parking spot.
+     * @param customer    The customer who made the reservation.
+     * @param startTime   The start time.
+     * @param endTime     The end time, after the start time.
+     * @param status      The current status.
+     */
+    public Reservation(long id, ParkingSpot parkingSpot, Customer customer,
+                       LocalDateTime startTime, LocalDateTime endTime, Status status) {
+        this.id = id;
+        this.reservationId = String.valueOf(id);
+        this.startTime = Objects.requireNonNull(startTime, "Start time cannot be null.");
+        this.endTime = Objects.requireNonNull(endTime, "End time cannot be null.");
+        if (!endTime.isAfter(startTime)) {
+            throw new IllegalArgumentException("End time must be after start time.");
+        }
+        this.parkingSpot = Objects.requireNonNull(parkingSpot, "Parking spot cannot be null.");
+        this.customer = Objects.requireNonNull(customer, "Customer cannot be null.");
+        this.status = Objects.requireNonNull(status, "Status cannot be null.");
+    }
+
+    /**
+     * For subclasses that keep the reservation's state elsewhere, e.g. views over a columnar store.
+     * Such subclasses must override every getter and mutator.
+     */
+    protected Reservation() {
+        this.id = 0;
+        this.reservationId = null;
+        this.startTime = null;
+    }
+
+    public static IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
+    /**
+     * Replaces the generator used for the IDs of new reservations.
+     *
+     * @param idGenerator The generator to use.
+     */
+    public static void setIdGenerator(IdGenerator idGenerator) {
+        Reservation.idGenerator = Objects.requireNonNull(idGenerator, "Id generator cannot be null.");
     }
 
     /**
@@ -59,7 +141,24 @@ public class Reservation {
         this.endTime = this.startTime.plusHours(hours);
     }
 
+    /**
+     * Ends the reservation before its booked end time, e.g. when the car left early, so the end time
+     * tells how long the spot was actually used. Does nothing unless the time falls within the booked window.
+     *
+     * @param time The time the reservation actually ended.
+     */
+    public void endEarly(LocalDateTime time) {
+        Objects.requireNonNull(time, "End time cannot be null.");
+        if (time.isAfter(startTime) && time.isBefore(endTime)) {
+            this.endTime = time;
+        }
+    }
+
     // Getters
+    public long getId() {
+        return id;
+    }
+
     public String getReservationId() {
         return reservationId;
     }
@@ -80,9 +179,35 @@ public class Reservation {
         return customer;
     }
 
-    // New Method to Mark Reservation as Completed
-    public void complete() {
-        this.status = Status.COMPLETED;
+    /**
+     * Atomically marks the reservation as completed.
+     * Callers that vacate the spot decide by the returned status, so a reservation that is
+     * started and cancelled at the same time is handled by exactly one of the two.
+     *
+     * @return The status the reservation had before; {@link Status#COMPLETED} if it already was.
+     */
+    public Status complete() {
+        return (Status) STATUS.getAndSet(this, Status.COMPLETED);
+    }
+
+    /**
+     * Starts a reservation that was booked in advance.
+     *
+     * @throws IllegalStateException If the reservation is not scheduled.
+     */
+    public void activate() {
+        if (!tryActivate()) {
+            throw new IllegalStateException("Only scheduled reservations can be activated: " + getReservationId());
+        }
+    }
+
+    /**
+     * Atomically starts a reservation that was booked in advance, unless it was completed or started meanwhile.
+     *
+     * @return True if the reservation was scheduled and is now active.
+     */
+    public boolean tryActivate() {
+        return STATUS.compareAndSet(this, Status.SCHEDULED, Status.ACTIVE);
     }
 
     // Getter for Status
@@ -102,11 +227,11 @@ public class Reservation {
                 Customer        : %s
                 ----------------------
                 """.formatted(
-                reservationId,
-                startTime.truncatedTo(ChronoUnit.MINUTES),
-                endTime.truncatedTo(ChronoUnit.MINUTES),
-                parkingSpot,
-                customer
+                getReservationId(),
+                getStartTime().truncatedTo(ChronoUnit.MINUTES),
+                getEndTime().truncatedTo(ChronoUnit.MINUTES),
+                getParkingSpot(),
+                getCustomer()
 
         );
     }
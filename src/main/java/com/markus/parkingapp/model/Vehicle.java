@@ -1,6 +1,6 @@
 package com.markus.parkingapp.model;
 
-import java.util.Objects;
+import com.markus.parkingapp.validation.CustomerValidator;
 
 /**
  * Represents a vehicle associated with a customer.
@@ -17,8 +17,8 @@ public class Vehicle {
      * @param type               The type of vehicle (e.g., Car, Motorcycle, Truck).
      */
     public Vehicle(String registrationNumber, String type) {
-        this.plateNumber = Objects.requireNonNull(registrationNumber, "Plate number cannot be null.");
-        this.type = Objects.requireNonNull(type, "Vehicle type cannot be null.");
+        setRegistrationNumber(registrationNumber);
+        setType(type);
     }
 
     // Getters and Setters
@@ -27,7 +27,8 @@ public class Vehicle {
     }
 
     public void setRegistrationNumber(String registrationNumber) {
-        this.plateNumber = Objects.requireNonNull(registrationNumber, "Plate number cannot be null.");
+        CustomerValidator.require(CustomerValidator.checkPlateNumber(registrationNumber));
+        this.plateNumber = registrationNumber;
     }
 
     public String getType() {
@@ -35,7 +36,8 @@ public class Vehicle {
     }
 
     public void setType(String type) {
-        this.type = Objects.requireNonNull(type, "Vehicle type cannot be null.");
+        CustomerValidator.require(CustomerValidator.checkVehicleType(type));
+        this.type = type;
     }
 
 
@@ -0,0 +1,110 @@
+package com.markus.parkingapp.occupancy;
+
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.model.ParkingSpot;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the latest {@link OccupancySnapshot} of a parking spot DAO current.
+ * <p>
+ * The board listens for occupancy changes and publishes a new snapshot for each one
+ * with a compare-and-set, so readers only ever read a volatile reference and never wait
+ * for, or slow down, a writer. Concurrent changes are retried against the newest snapshot,
+ * and every change re-reads the spot's state when it is applied, so the last change of a
+ * spot always wins.
+ * <p>
+ * A change to a spot the snapshot does not know adds the spot. Removed spots stay until
+ * {@link #refresh()} rebuilds the snapshot from the DAO, e.g. after spots were deleted.
+ */
+public class OccupancyBoard implements ParkingSpot.OccupancyListener {
+
+    private final ParkingSpotDao parkingSpotDao;
+    private final AtomicReference<OccupancySnapshot> current;
+    private volatile boolean rebuilding; // Set while refresh() reads the DAO
+    private final Queue<ParkingSpot> changedWhileRebuilding = new ConcurrentLinkedQueue<>(); // Replayed on the rebuild
+
+    /**
+     * Creates a board for a DAO, registers it for the DAO's occupancy changes and takes the first snapshot.
+     *
+     * @param parkingSpotDao The DAO holding the parking spots.
+     */
+    public OccupancyBoard(ParkingSpotDao parkingSpotDao) {
+        this.parkingSpotDao = parkingSpotDao;
+        this.current = new AtomicReference<>(OccupancySnapshot.of(0, new int[0], new int[0], new boolean[0]));
+        parkingSpotDao.addOccupancyListener(this);
+        refresh();
+    }
+
+    /**
+     * Returns the latest snapshot. Does not lock or copy anything.
+     */
+    public OccupancySnapshot getSnapshot() {
+        return current.get();
+    }
+
+    /**
+     * Rebuilds the snapshot from all spots of the DAO.
+     * <p>
+     * The rebuild is published even if spots changed while the DAO was read, so it finishes
+     * however busy the lot is. Those spots were recorded meanwhile, and their current state
+     * is applied on top of the rebuild.
+     */
+    public synchronized void refresh() {
+        changedWhileRebuilding.clear();
+        rebuilding = true;
+        OccupancySnapshot rebuilt;
+        try {
+            List<ParkingSpot> spots = parkingSpotDao.findAll();
+            int[] spotNumbers = new int[spots.size()];
+            int[] areaCodes = new int[spots.size()];
+            boolean[] occupied = new boolean[spots.size()];
+            for (int i = 0; i < spots.size(); i++) {
+                ParkingSpot spot = spots.get(i);
+                spotNumbers[i] = spot.getSpotNumber();
+                areaCodes[i] = spot.getAreaCode();
+                occupied[i] = spot.isOccupied();
+            }
+            rebuilt = OccupancySnapshot.of(0, spotNumbers, areaCodes, occupied);
+            OccupancySnapshot snapshot;
+            do {
+                snapshot = current.get();
+            } while (!current.compareAndSet(snapshot, rebuilt.withVersion(snapshot.getVersion() + 1)));
+        } finally {
+            rebuilding = false;
+        }
+        ParkingSpot spot;
+        while ((spot = changedWhileRebuilding.poll()) != null) {
+            apply(spot);
+        }
+    }
+
+    @Override
+    public void occupancyChanged(ParkingSpot spot, boolean occupied) {
+        // Recorded before it is applied: if the rebuild is published in between, the replay covers it
+        if (rebuilding) {
+            changedWhileRebuilding.add(spot);
+        }
+        apply(spot);
+    }
+
+    private void apply(ParkingSpot spot) {
+        while (true) {
+            OccupancySnapshot snapshot = current.get();
+            int position = snapshot.positionOf(spot.getSpotNumber());
+            if (position < 0 && parkingSpotDao.findBySpotNumber(spot.getSpotNumber()).isEmpty()) {
+                return; // Deleted since; the next refresh drops it
+            }
+            // Notifications of one spot can race, so apply its state as it is now rather than as notified
+            OccupancySnapshot next = position < 0
+                    ? snapshot.withSpot(spot.getSpotNumber(), spot.getAreaCode(), spot.isOccupied())
+                    : snapshot.withOccupied(position, spot.isOccupied());
+            if (next == snapshot || current.compareAndSet(snapshot, next)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.markus.parkingapp.occupancy;
+
+import java.util.Arrays;
+
+/**
+ * An immutable picture of which parking spots are occupied, for displays that read
+ * availability far more often than it changes.
+ * <p>
+ * Spots are kept in spot number order in primitive arrays. The spot numbers and areas
+ * never change between versions and are shared; the occupancy bits are split into
+ * chunks of {@value #CHUNK_SPOTS} spots, so a new version after a single change copies
+ * one chunk and the small per-area counters and shares everything else with the version
+ * before it. Readers can therefore keep and read a snapshot as long as they like without
+ * locks, while {@link OccupancyBoard} publishes newer versions next to it.
+ */
+public final class OccupancySnapshot {
+
+    static final int CHUNK_SPOTS = 4096;
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_WORDS = CHUNK_SPOTS / Long.SIZE;
+
+    private final long version;
+    private final int[] spotNumbers;   // Ascending; shared between versions
+    private final int[] areaOfSpot;    // Position -> index into areaCodes; shared between versions
+    private final int[] areaCodes;     // Ascending distinct area codes; shared between versions
+    private final int[] spotsByArea;   // Spots per area; shared between versions
+    private final long[][] occupied;   // Occupancy bits in chunks; unchanged chunks are shared
+    private final int[] occupiedByArea;
+    private final int occupiedCount;
+
+    private OccupancySnapshot(long version, int[] spotNumbers, int[] areaOfSpot, int[] areaCodes, int[] spotsByArea,
+                              long[][] occupied, int[] occupiedByArea, int occupiedCount) {
+        this.version = version;
+        this.spotNumbers = spotNumbers;
+        this.areaOfSpot = areaOfSpot;
+        this.areaCodes = areaCodes;
+        this.spotsByArea = spotsByArea;
+        this.occupied = occupied;
+        this.occupiedByArea = occupiedByArea;
+        this.occupiedCount = occupiedCount;
+    }
+
+    /**
+     * Builds a snapshot from parallel arrays of spots.
+     *
+     * @param version       The version of the snapshot.
+     * @param spotNumbers   The spot numbers, in any order and without duplicates.
+     * @param areaCodes     The area code of each spot.
+     * @param occupiedSpots Whether each spot is occupied.
+     */
+    static OccupancySnapshot of(long version, int[] spotNumbers, int[] areaCodes, boolean[] occupiedSpots) {
+        int size = spotNumbers.length;
+
+        // Sort positions by spot number
+        long[] keyed = new long[size];
+        for (int i = 0; i < size; i++) {
+            keyed[i] = ((long) spotNumbers[i] << 32) | i; // Spot numbers are sorted as signed ints
+        }
+        Arrays.sort(keyed);
+
+        int[] distinctAreas = Arrays.stream(areaCodes).distinct().sorted().toArray();
+        int[] sortedSpots = new int[size];
+        int[] areaOfSpot = new int[size];
+        int[] spotsByArea = new int[distinctAreas.length];
+        int[] occupiedByArea = new int[distinctAreas.length];
+        long[][] occupied = new long[(size + CHUNK_SPOTS - 1) >>> CHUNK_SHIFT][CHUNK_WORDS];
+        int occupiedCount = 0;
+        for (int position = 0; position < size; position++) {
+            int source = (int) keyed[position];
+            sortedSpots[position] = spotNumbers[source];
+            int area = Arrays.binarySearch(distinctAreas, areaCodes[source]);
+            areaOfSpot[position] = area;
+            spotsByArea[area]++;
+            if (occupiedSpots[source]) {
+                occupied[position >>> CHUNK_SHIFT][(position & (CHUNK_SPOTS - 1)) >>> 6] |= 1L << position;
+                occupiedByArea[area]++;
+                occupiedCount++;
+            }
+        }
+        return new OccupancySnapshot(version, sortedSpots, areaOfSpot, distinctAreas, spotsByArea,
+                occupied, occupiedByArea, occupiedCount);
+    }
+
+    /**
+     * Returns the next version of this snapshot with the occupancy of one spot changed,
+     * sharing every chunk but the one holding the spot.
+     */
+    OccupancySnapshot withOccupied(int position, boolean isOccupied) {
+        if (isOccupiedAt(position) == isOccupied) {
+            return this;
+        }
+        int chunk = position >>> CHUNK_SHIFT;
+        long[][] nextOccupied = occupied.clone();
+        long[] nextChunk = occupied[chunk].clone();
+        nextChunk[(position & (CHUNK_SPOTS - 1)) >>> 6] ^= 1L << position;
+        nextOccupied[chunk] = nextChunk;
+
+        int[] nextByArea = occupiedByArea.clone();
+        int delta = isOccupied ? 1 : -1;
+        nextByArea[areaOfSpot[position]] += delta;
+        return new OccupancySnapshot(version + 1, spotNumbers, areaOfSpot, areaCodes, spotsByArea,
+                nextOccupied, nextByArea, occupiedCount + delta);
+    }
+
+    /**
+     * Returns the next version of this snapshot with a spot it does not hold yet added.
+     * Rebuilds every array, which is fine as spots are rarely added.
+     */
+    OccupancySnapshot withSpot(int spotNumber, int areaCode, boolean isOccupied) {
+        int size = spotNumbers.length;
+        int[] nextSpotNumbers = Arrays.copyOf(spotNumbers, size + 1);
+        int[] nextAreaCodes = new int[size + 1];
+        boolean[] nextOccupied = new boolean[size + 1];
+        for (int position = 0; position < size; position++) {
+            nextAreaCodes[position] = areaCodeAt(position);
+            nextOccupied[position] = isOccupiedAt(position);
+        }
+        nextSpotNumbers[size] = spotNumber;
+        nextAreaCodes[size] = areaCode;
+        nextOccupied[size] = isOccupied;
+        return of(version + 1, nextSpotNumbers, nextAreaCodes, nextOccupied);
+    }
+
+    /**
+     * Returns this snapshot under another version, sharing all of its state.
+     */
+    OccupancySnapshot withVersion(long nextVersion) {
+        return new OccupancySnapshot(nextVersion, spotNumbers, areaOfSpot, areaCodes, spotsByArea,
+                occupied, occupiedByArea, occupiedCount);
+    }
+
+    /**
+     * Returns the version of this snapshot, which grows with every published change.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of spots.
+     */
+    public int size() {
+        return spotNumbers.length;
+    }
+
+    public int spotNumberAt(int position) {
+        return spotNumbers[position];
+    }
+
+    public int areaCodeAt(int position) {
+        return areaCodes[areaOfSpot[position]];
+    }
+
+    public boolean isOccupiedAt(int position) {
+        if (position < 0 || position >= spotNumbers.length) {
+            throw new IndexOutOfBoundsException("Position " + position + " is out of bounds for " + spotNumbers.length + " spots.");
+        }
+        return (occupied[position >>> CHUNK_SHIFT][(position & (CHUNK_SPOTS - 1)) >>> 6] & (1L << position)) != 0;
+    }
+
+    /**
+     * Returns the position of a spot, found by binary search.
+     *
+     * @return The position, or a negative number if the spot is not in this snapshot.
+     */
+    public int positionOf(int spotNumber) {
+        return Arrays.binarySearch(spotNumbers, spotNumber);
+    }
+
+    /**
+     * Checks whether a spot is occupied.
+     *
+     * @throws IllegalArgumentException If the spot is not in this snapshot.
+     */
+    public boolean isOccupied(int spotNumber) {
+        int position = positionOf(spotNumber);
+        if (position < 0) {
+            throw new IllegalArgumentException("Parking spot not found: " + spotNumber);
+        }
+        return isOccupiedAt(position);
+    }
+
+    public int getAvailableCount() {
+        return spotNumbers.length - occupiedCount;
+    }
+
+    public int getOccupiedCount() {
+        return occupiedCount;
+    }
+
+    /**
+     * Returns the distinct area codes, in ascending order.
+     */
+    public int[] getAreaCodes() {
+        return areaCodes.clone();
+    }
+
+    /**
+     * Returns the number of spots in an area, or 0 if there is no such area.
+     */
+    public int getSpotCount(int areaCode) {
+        int area = Arrays.binarySearch(areaCodes, areaCode);
+        return area < 0 ? 0 : spotsByArea[area];
+    }
+
+    /**
+     * Returns the number of vacant spots in an area, or 0 if there is no such area.
+     */
+    public int getAvailableCount(int areaCode) {
+        int area = Arrays.binarySearch(areaCodes, areaCode);
+        return area < 0 ? 0 : spotsByArea[area] - occupiedByArea[area];
+    }
+
+    @Override
+    public String toString() {
+        return "OccupancySnapshot{" +
+                "version=" + version +
+                ", spots=" + spotNumbers.length +
+                ", available=" + getAvailableCount() +
+                '}';
+    }
+}
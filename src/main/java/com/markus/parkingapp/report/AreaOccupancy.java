@@ -0,0 +1,94 @@
+package com.markus.parkingapp.report;
+
+/**
+ * How the spots of one area were used over the period of an {@link OccupancyReport}.
+ * Occupancy is summed per hour of the day, over all days of the period.
+ */
+public final class AreaOccupancy {
+
+    private final int areaCode;
+    private final int spotCount;
+    private final long reservationCount;
+    private final long completedCount;
+    private final long totalDwellSeconds;
+    private final long[] occupiedSeconds; // Spot-seconds per hour of the day
+    private final long days;
+
+    AreaOccupancy(int areaCode, int spotCount, long reservationCount, long completedCount,
+                  long totalDwellSeconds, long[] occupiedSeconds, long days) {
+        this.areaCode = areaCode;
+        this.spotCount = spotCount;
+        this.reservationCount = reservationCount;
+        this.completedCount = completedCount;
+        this.totalDwellSeconds = totalDwellSeconds;
+        this.occupiedSeconds = occupiedSeconds;
+        this.days = days;
+    }
+
+    public int getAreaCode() {
+        return areaCode;
+    }
+
+    /**
+     * Returns the number of spots the area has now.
+     */
+    public int getSpotCount() {
+        return spotCount;
+    }
+
+    /**
+     * Returns the number of reservations that occupied a spot of the area, completed or still active.
+     */
+    public long getReservationCount() {
+        return reservationCount;
+    }
+
+    /**
+     * Returns the average booked length of the completed reservations, in minutes.
+     */
+    public double getAverageDwellMinutes() {
+        return completedCount == 0 ? 0 : totalDwellSeconds / 60.0 / completedCount;
+    }
+
+    /**
+     * Returns the spot-hours the area was occupied within the given hour of the day, summed over the period.
+     *
+     * @param hour The hour of the day, 0 to 23.
+     */
+    public double getOccupiedSpotHours(int hour) {
+        return occupiedSeconds[hour] / 3600.0;
+    }
+
+    /**
+     * Returns the share of the area's spots that was occupied within the given hour of the day,
+     * on average over the days of the period: 0 for never, 1 for every spot on every day.
+     *
+     * @param hour The hour of the day, 0 to 23.
+     */
+    public double getUtilisation(int hour) {
+        return spotCount == 0 || days == 0 ? 0 : occupiedSeconds[hour] / (3600.0 * spotCount * days);
+    }
+
+    /**
+     * Returns the hour of the day with the most occupancy, or -1 if the area was never occupied.
+     */
+    public int getPeakHour() {
+        int peak = -1;
+        for (int hour = 0; hour < occupiedSeconds.length; hour++) {
+            if (occupiedSeconds[hour] > 0 && (peak < 0 || occupiedSeconds[hour] > occupiedSeconds[peak])) {
+                peak = hour;
+            }
+        }
+        return peak;
+    }
+
+    @Override
+    public String toString() {
+        return "AreaOccupancy{" +
+                "areaCode=" + areaCode +
+                ", spots=" + spotCount +
+                ", reservations=" + reservationCount +
+                ", peakHour=" + getPeakHour() +
+                '}';
+    }
+}
@@ -0,0 +1,141 @@
+package com.markus.parkingapp.report;
+
+import com.markus.parkingapp.model.Reservation;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Accumulates reservations into per-area occupancy, one reservation at a time.
+ * <p>
+ * Memory depends on the number of areas only, not on the number of reservations. Each
+ * thread of a parallel stream fills an aggregator of its own, and the aggregators are
+ * then merged with {@link #combine}. Times are compared as local wall-clock times.
+ */
+final class OccupancyAggregator {
+
+    static final int HOURS = 24;
+    private static final long SECONDS_PER_HOUR = 3600;
+    private static final long SECONDS_PER_DAY = HOURS * SECONDS_PER_HOUR;
+
+    /**
+     * The running totals of one area.
+     */
+    static final class AreaTotals {
+        final long[] occupiedSeconds = new long[HOURS];
+        long reservationCount;
+        long completedCount;
+        long totalDwellSeconds;
+    }
+
+    private final long now; // Occupancy is counted up to now; later parts of a reservation have not happened yet
+    private final Map<Integer, AreaTotals> areas = new HashMap<>();
+    private long from = Long.MAX_VALUE; // Earliest counted second
+    private long to = Long.MIN_VALUE;   // Latest counted second
+
+    OccupancyAggregator(LocalDateTime now) {
+        this(toSeconds(now));
+    }
+
+    private OccupancyAggregator(long now) {
+        this.now = now;
+    }
+
+    /**
+     * Returns an empty aggregator counting up to the same time, for another thread of a parallel stream.
+     */
+    OccupancyAggregator newAggregator() {
+        return new OccupancyAggregator(now);
+    }
+
+    /**
+     * Adds the occupancy of one reservation. Scheduled reservations have not occupied anything yet and are skipped.
+     */
+    void accept(Reservation reservation) {
+        Reservation.Status status = reservation.getStatus();
+        if (status == Reservation.Status.SCHEDULED) {
+            return;
+        }
+        long start = toSeconds(reservation.getStartTime());
+        long end = toSeconds(reservation.getEndTime());
+        long occupiedUntil = Math.min(end, now);
+        if (occupiedUntil <= start) {
+            return;
+        }
+
+        AreaTotals totals = areas.computeIfAbsent(reservation.getParkingSpot().getAreaCode(), area -> new AreaTotals());
+        totals.reservationCount++;
+        if (status == Reservation.Status.COMPLETED) {
+            totals.completedCount++;
+            totals.totalDwellSeconds += end - start;
+        }
+        addInterval(totals.occupiedSeconds, start, occupiedUntil);
+        from = Math.min(from, start);
+        to = Math.max(to, occupiedUntil);
+    }
+
+    /**
+     * Adds the totals of another aggregator to this one.
+     */
+    void combine(OccupancyAggregator other) {
+        other.areas.forEach((areaCode, otherTotals) -> {
+            AreaTotals totals = areas.computeIfAbsent(areaCode, area -> new AreaTotals());
+            totals.reservationCount += otherTotals.reservationCount;
+            totals.completedCount += otherTotals.completedCount;
+            totals.totalDwellSeconds += otherTotals.totalDwellSeconds;
+            for (int hour = 0; hour < HOURS; hour++) {
+                totals.occupiedSeconds[hour] += otherTotals.occupiedSeconds[hour];
+            }
+        });
+        from = Math.min(from, other.from);
+        to = Math.max(to, other.to);
+    }
+
+    /**
+     * Spreads the seconds of an interval over the hours of the day they fall in.
+     * Whole days add an hour to every hour of the day, so long reservations cost no more than short ones.
+     */
+    static void addInterval(long[] occupiedSeconds, long start, long end) {
+        long days = (end - start) / SECONDS_PER_DAY;
+        if (days > 0) {
+            for (int hour = 0; hour < HOURS; hour++) {
+                occupiedSeconds[hour] += days * SECONDS_PER_HOUR;
+            }
+            start += days * SECONDS_PER_DAY;
+        }
+        while (start < end) {
+            long hourIndex = Math.floorDiv(start, SECONDS_PER_HOUR);
+            long segmentEnd = Math.min((hourIndex + 1) * SECONDS_PER_HOUR, end);
+            occupiedSeconds[(int) Math.floorMod(hourIndex, (long) HOURS)] += segmentEnd - start;
+            start = segmentEnd;
+        }
+    }
+
+    Map<Integer, AreaTotals> getAreas() {
+        return areas;
+    }
+
+    /**
+     * Returns the number of calendar days from the first to the last counted second, or 0 if nothing was counted.
+     */
+    long getDays() {
+        if (from > to) {
+            return 0;
+        }
+        return Math.floorDiv(to - 1, SECONDS_PER_DAY) - Math.floorDiv(from, SECONDS_PER_DAY) + 1;
+    }
+
+    LocalDateTime getFrom() {
+        return from > to ? null : LocalDateTime.ofEpochSecond(from, 0, ZoneOffset.UTC);
+    }
+
+    LocalDateTime getTo() {
+        return from > to ? null : LocalDateTime.ofEpochSecond(to, 0, ZoneOffset.UTC);
+    }
+
+    private static long toSeconds(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC); // Wall-clock seconds; the zone is irrelevant here
+    }
+}
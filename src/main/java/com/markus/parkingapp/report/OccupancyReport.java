@@ -0,0 +1,152 @@
+package com.markus.parkingapp.report;
+
+import com.markus.parkingapp.model.Reservation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Occupancy per area over the whole reservation history: utilisation per hour of the day,
+ * the average dwell time and the peak hour.
+ * <p>
+ * The report is built in one pass over a stream of reservations and holds 24 counters per
+ * area, whatever the number of reservations. Large histories are aggregated in parallel.
+ * Occupancy is counted from the start of a reservation to its end, or to now for an active
+ * one; a reservation vacated early ends when it was vacated, so that is what is counted.
+ */
+public final class OccupancyReport {
+
+    static final long PARALLEL_THRESHOLD = 50_000; // Below this, splitting the stream costs more than it saves
+
+    private final LocalDateTime from; // Null if nothing was occupied
+    private final LocalDateTime to;
+    private final List<AreaOccupancy> areas;
+
+    private OccupancyReport(LocalDateTime from, LocalDateTime to, List<AreaOccupancy> areas) {
+        this.from = from;
+        this.to = to;
+        this.areas = areas;
+    }
+
+    /**
+     * Builds a report from a stream of reservations, which it consumes.
+     *
+     * @param reservations The reservations, in any order.
+     * @param spotCount    Returns the number of spots of an area code.
+     * @param now          The time up to which active reservations are counted.
+     */
+    public static OccupancyReport of(Stream<Reservation> reservations, IntUnaryOperator spotCount, LocalDateTime now) {
+        OccupancyAggregator aggregator = new OccupancyAggregator(now);
+        try (reservations) {
+            Spliterator<Reservation> spliterator = reservations.spliterator();
+            boolean parallel = spliterator.estimateSize() >= PARALLEL_THRESHOLD;
+            aggregator.combine(StreamSupport.stream(spliterator, parallel)
+                    .collect(aggregator::newAggregator, OccupancyAggregator::accept, OccupancyAggregator::combine));
+        }
+
+        long days = aggregator.getDays();
+        List<AreaOccupancy> areas = new ArrayList<>(aggregator.getAreas().size());
+        for (Map.Entry<Integer, OccupancyAggregator.AreaTotals> entry : aggregator.getAreas().entrySet()) {
+            int areaCode = entry.getKey();
+            OccupancyAggregator.AreaTotals totals = entry.getValue();
+            areas.add(new AreaOccupancy(areaCode, spotCount.applyAsInt(areaCode), totals.reservationCount,
+                    totals.completedCount, totals.totalDwellSeconds, totals.occupiedSeconds, days));
+        }
+        areas.sort((a, b) -> Integer.compare(a.getAreaCode(), b.getAreaCode()));
+        return new OccupancyReport(aggregator.getFrom(), aggregator.getTo(), Collections.unmodifiableList(areas));
+    }
+
+    /**
+     * Returns the start of the first counted reservation, or null if no spot was ever occupied.
+     */
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns the end of the last counted occupancy, or null if no spot was ever occupied.
+     */
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    /**
+     * Returns the areas that were occupied at some time, in area code order.
+     */
+    public List<AreaOccupancy> getAreas() {
+        return areas;
+    }
+
+    /**
+     * Writes the report as CSV, one row per area with the utilisation of each hour of the day.
+     */
+    public void writeCsv(Writer writer) {
+        try {
+            writer.write("areaCode,spots,reservations,averageDwellMinutes,peakHour");
+            for (int hour = 0; hour < OccupancyAggregator.HOURS; hour++) {
+                writer.write(String.format(Locale.ROOT, ",hour%02d", hour));
+            }
+            writer.write('\n');
+            for (AreaOccupancy area : areas) {
+                writer.write(String.format(Locale.ROOT, "%d,%d,%d,%.1f,%d", area.getAreaCode(), area.getSpotCount(),
+                        area.getReservationCount(), area.getAverageDwellMinutes(), area.getPeakHour()));
+                for (int hour = 0; hour < OccupancyAggregator.HOURS; hour++) {
+                    writer.write(String.format(Locale.ROOT, ",%.4f", area.getUtilisation(hour)));
+                }
+                writer.write('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the report as a JSON object with the period and an array of areas.
+     */
+    public void writeJson(Writer writer) {
+        try {
+            writer.write("{\"from\":" + quote(from) + ",\"to\":" + quote(to) + ",\"areas\":[");
+            for (int i = 0; i < areas.size(); i++) {
+                AreaOccupancy area = areas.get(i);
+                writer.write(i == 0 ? "\n" : ",\n");
+                writer.write(String.format(Locale.ROOT,
+                        "{\"areaCode\":%d,\"spots\":%d,\"reservations\":%d,\"averageDwellMinutes\":%.1f,\"peakHour\":%d,\"utilisation\":[",
+                        area.getAreaCode(), area.getSpotCount(), area.getReservationCount(),
+                        area.getAverageDwellMinutes(), area.getPeakHour()));
+                for (int hour = 0; hour < OccupancyAggregator.HOURS; hour++) {
+                    writer.write(String.format(Locale.ROOT, hour == 0 ? "%.4f" : ",%.4f", area.getUtilisation(hour)));
+                }
+                writer.write("]}");
+            }
+            writer.write("\n]}\n");
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String quote(LocalDateTime dateTime) {
+        return dateTime == null ? "null" : "\"" + dateTime + "\"";
+    }
+
+    @Override
+    public String toString() {
+        return "OccupancyReport{" +
+                "from=" + from +
+                ", to=" + to +
+                ", areas=" + areas.size() +
+                '}';
+    }
+}
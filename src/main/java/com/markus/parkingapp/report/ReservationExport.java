@@ -0,0 +1,53 @@
+package com.markus.parkingapp.report;
+
+import com.markus.parkingapp.model.Reservation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes reservations as CSV in the format {@link com.markus.parkingapp.importer.BulkImporter} reads:
+ * {@code spotNumber,plateNumber,startTime,endTime,status,reservationId}. The status is exported
+ * because it cannot be told from the times: a reservation vacated early keeps its booked end time.
+ */
+public final class ReservationExport {
+
+    public static final String HEADER = "spotNumber,plateNumber,startTime,endTime,status,reservationId";
+
+    private ReservationExport() {
+    }
+
+    /**
+     * Writes a stream of reservations one at a time, so the export needs no more memory
+     * than the writer's buffer. The stream is consumed and closed.
+     *
+     * @return The number of reservations written.
+     */
+    public static long writeCsv(Stream<Reservation> reservations, Writer writer) {
+        long count = 0;
+        try (reservations) {
+            writer.write(HEADER);
+            writer.write('\n');
+            StringBuilder line = new StringBuilder(64);
+            for (Iterator<Reservation> it = reservations.sequential().iterator(); it.hasNext(); ) {
+                Reservation reservation = it.next();
+                line.setLength(0);
+                line.append(reservation.getParkingSpot().getSpotNumber()).append(',')
+                        .append(reservation.getCustomer().getVehicle().getPlateNumber()).append(',')
+                        .append(reservation.getStartTime()).append(',')
+                        .append(reservation.getEndTime()).append(',')
+                        .append(reservation.getStatus()).append(',')
+                        .append(reservation.getId()).append('\n');
+                writer.append(line);
+                count++;
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,174 @@
+package com.markus.parkingapp.schedule;
+
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the time windows booked on each parking spot, so reservations can be made ahead
+ * and overlapping bookings are refused.
+ * <p>
+ * Each spot has its own sorted map of non-overlapping bookings keyed by start time.
+ * Because the bookings of a spot do not overlap, the only one that can overlap a window
+ * is the last one starting before the window ends, so checking a spot is a single
+ * O(log n) lookup however many bookings it has. Windows are half-open: a booking
+ * ending at 10:00 does not overlap one starting at 10:00.
+ */
+public class BookingCalendar {
+
+    private final ParkingSpotDao parkingSpotDao;
+    private final Map<Integer, SpotBookings> bookingsBySpot = new ConcurrentHashMap<>();
+
+    public BookingCalendar(ParkingSpotDao parkingSpotDao) {
+        this.parkingSpotDao = parkingSpotDao;
+    }
+
+    /**
+     * Books the window of a reservation on its parking spot, unless it overlaps another booking.
+     * A spot occupied without a reservation cannot be booked for a window that has already started.
+     *
+     * @param reservation The reservation to book.
+     * @return True if the window was free and is now booked, false if it overlaps another booking.
+     */
+    public boolean tryBook(Reservation reservation) {
+        if (reservation == null) {
+            throw new IllegalArgumentException("Reservation cannot be null.");
+        }
+        Integer spotNumber = reservation.getParkingSpot().getSpotNumber();
+        ParkingSpot parkingSpot = parkingSpotDao.findBySpotNumber(spotNumber)
+                .orElseThrow(() -> new IllegalArgumentException("Parking spot not found: " + spotNumber));
+        long start = toEpochSecond(reservation.getStartTime());
+        long end = toEpochSecond(reservation.getEndTime());
+        if (isBlockedNow(parkingSpot, start)) {
+            return false;
+        }
+
+        SpotBookings bookings = bookingsBySpot.computeIfAbsent(spotNumber, number -> new SpotBookings());
+        synchronized (bookings) {
+            if (!bookings.isFree(start, end)) {
+                return false;
+            }
+            bookings.byStart.put(start, new Booking(end, reservation.getReservationId()));
+            return true;
+        }
+    }
+
+    /**
+     * Removes the booking of a reservation, e.g. once it was completed or cancelled.
+     * Does nothing if the reservation is not booked.
+     *
+     * @param reservation The reservation whose booking to remove.
+     */
+    public void release(Reservation reservation) {
+        SpotBookings bookings = bookingsBySpot.get(reservation.getParkingSpot().getSpotNumber());
+        if (bookings == null) {
+            return;
+        }
+        long start = toEpochSecond(reservation.getStartTime());
+        synchronized (bookings) {
+            Booking booking = bookings.byStart.get(start);
+            if (booking != null && booking.reservationId.equals(reservation.getReservationId())) {
+                bookings.byStart.remove(start);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a parking spot has no booking overlapping the given window.
+     *
+     * @param spotNumber The spot number.
+     * @param from       The start of the window.
+     * @param to         The end of the window, after the start.
+     * @return True if the spot exists and is free for the whole window.
+     */
+    public boolean isFree(int spotNumber, LocalDateTime from, LocalDateTime to) {
+        long start = toEpochSecond(from);
+        long end = checkedEnd(start, to);
+        return parkingSpotDao.findBySpotNumber(spotNumber)
+                .map(parkingSpot -> isFree(parkingSpot, start, end))
+                .orElse(false);
+    }
+
+    /**
+     * Finds the parking spots of an area that are free for the whole given window.
+     *
+     * @param areaCode The area code.
+     * @param from     The start of the window.
+     * @param to       The end of the window, after the start.
+     * @return The free spots, in the order of the spot DAO.
+     */
+    public List<ParkingSpot> findFreeSpots(int areaCode, LocalDateTime from, LocalDateTime to) {
+        long start = toEpochSecond(from);
+        long end = checkedEnd(start, to);
+        List<ParkingSpot> list = new ArrayList<>();
+        for (ParkingSpot parkingSpot : parkingSpotDao.findByArea(areaCode)) {
+            if (isFree(parkingSpot, start, end)) {
+                list.add(parkingSpot);
+            }
+        }
+        return list;
+    }
+
+    private boolean isFree(ParkingSpot parkingSpot, long start, long end) {
+        if (isBlockedNow(parkingSpot, start)) {
+            return false;
+        }
+        SpotBookings bookings = bookingsBySpot.get(parkingSpot.getSpotNumber());
+        if (bookings == null) {
+            return true;
+        }
+        synchronized (bookings) {
+            return bookings.isFree(start, end);
+        }
+    }
+
+    /**
+     * A spot occupied without a reservation has no known end, so it blocks windows that have already started.
+     */
+    private static boolean isBlockedNow(ParkingSpot parkingSpot, long start) {
+        return start <= toEpochSecond(LocalDateTime.now())
+                && parkingSpot.isOccupied() && parkingSpot.getCurrentReservation() == null;
+    }
+
+    private static long checkedEnd(long start, LocalDateTime to) {
+        long end = toEpochSecond(to);
+        if (end <= start) {
+            throw new IllegalArgumentException("End time must be after start time.");
+        }
+        return end;
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * The bookings of one spot, keyed by start time. Guarded by its own monitor.
+     */
+    private static final class SpotBookings {
+        private final TreeMap<Long, Booking> byStart = new TreeMap<>();
+
+        boolean isFree(long start, long end) {
+            Map.Entry<Long, Booking> previous = byStart.lowerEntry(end); // Last booking starting before the window ends
+            return previous == null || previous.getValue().end <= start;
+        }
+    }
+
+    private static final class Booking {
+        private final long end;
+        private final String reservationId;
+
+        private Booking(long end, String reservationId) {
+            this.end = end;
+            this.reservationId = reservationId;
+        }
+    }
+}
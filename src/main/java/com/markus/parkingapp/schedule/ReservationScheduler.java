@@ -1,75 +1,314 @@
 package com.markus.parkingapp.schedule;
 
-import se.lexicon.dao.ParkingSpotDao;
-import se.lexicon.dao.ReservationDao;
-import se.lexicon.model.ParkingSpot;
-import se.lexicon.model.Reservation;
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.dao.ReservationDao;
+import com.markus.parkingapp.event.EventBus;
+import com.markus.parkingapp.event.ParkingEvent;
+import com.markus.parkingapp.metrics.LatencyHistogram;
+import com.markus.parkingapp.metrics.MetricsRegistry;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.time.ZoneId;
 import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Completes reservations when their end time has passed and vacates their parking spots.
+ * Reservations booked in advance are started, claiming their spot, once their start time has come.
+ * <p>
+ * Tracked reservations are kept in a priority queue ordered by their next deadline (the start
+ * time of a scheduled reservation, the end time of an active one), so each tick only looks
+ * at the reservations that are due instead of scanning them all.
+ */
 public class ReservationScheduler {
 
+    private static final Duration DEFAULT_TICK_INTERVAL = Duration.ofMinutes(1);
+
     // DAOs to access reservations and parking spots
     private final ReservationDao reservationDao;
     private final ParkingSpotDao parkingSpotDao;
 
-    // Constructor to initialize the DAOs
+    private final BookingCalendar bookingCalendar; // Released when a reservation ends, may be null
+
+    private final EventBus eventBus; // Told about expired reservations, may be null
+
+    private final Duration tickInterval; // How often expired reservations are checked
+
+    // Duration of each check, and how many queue entries it took off and completed
+    private final LatencyHistogram tickLatency;
+    private final LongAdder tickCount;
+    private final LongAdder scannedCount;
+    private final LongAdder expiredCount;
+    private final LongAdder startedCount;
+
+    // Tracked reservations, earliest deadline first
+    private final PriorityBlockingQueue<ExpiryEntry> expiryQueue = new PriorityBlockingQueue<>();
+
+    // Constructor to initialize the DAOs, checking for expired reservations every minute
     public ReservationScheduler(ReservationDao reservationDao, ParkingSpotDao parkingSpotDao) {
+        this(reservationDao, parkingSpotDao, DEFAULT_TICK_INTERVAL);
+    }
+
+    /**
+     * Creates a scheduler with a custom tick interval.
+     *
+     * @param reservationDao The DAO holding the reservations.
+     * @param parkingSpotDao The DAO holding the parking spots.
+     * @param tickInterval   How often to check for expired reservations; may be below one second.
+     */
+    public ReservationScheduler(ReservationDao reservationDao, ParkingSpotDao parkingSpotDao, Duration tickInterval) {
+        this(reservationDao, parkingSpotDao, null, tickInterval);
+    }
+
+    /**
+     * Creates a scheduler that also frees the bookings of ended reservations in a booking calendar.
+     *
+     * @param reservationDao  The DAO holding the reservations.
+     * @param parkingSpotDao  The DAO holding the parking spots.
+     * @param bookingCalendar The calendar holding the reservations' bookings, or null.
+     * @param tickInterval    How often to check for due reservations; may be below one second.
+     */
+    public ReservationScheduler(ReservationDao reservationDao, ParkingSpotDao parkingSpotDao,
+                                BookingCalendar bookingCalendar, Duration tickInterval) {
+        this(reservationDao, parkingSpotDao, bookingCalendar, null, tickInterval);
+    }
+
+    /**
+     * Creates a scheduler that also publishes an event for every reservation it completes.
+     *
+     * @param reservationDao  The DAO holding the reservations.
+     * @param parkingSpotDao  The DAO holding the parking spots.
+     * @param bookingCalendar The calendar holding the reservations' bookings, or null.
+     * @param eventBus        The bus to publish {@link ParkingEvent.Type#RESERVATION_EXPIRED} on, or null.
+     * @param tickInterval    How often to check for due reservations; may be below one second.
+     */
+    public ReservationScheduler(ReservationDao reservationDao, ParkingSpotDao parkingSpotDao,
+                                BookingCalendar bookingCalendar, EventBus eventBus, Duration tickInterval) {
+        this(reservationDao, parkingSpotDao, bookingCalendar, eventBus, tickInterval, null);
+    }
+
+    /**
+     * Creates a scheduler that also records the duration of every check, as {@code scheduler.tick},
+     * and counts the checks and the reservations they scanned, completed and started, as
+     * {@code scheduler.ticks}, {@code scheduler.scanned}, {@code scheduler.expired} and {@code scheduler.started}.
+     *
+     * @param reservationDao  The DAO holding the reservations.
+     * @param parkingSpotDao  The DAO holding the parking spots.
+     * @param bookingCalendar The calendar holding the reservations' bookings, or null.
+     * @param eventBus        The bus to publish {@link ParkingEvent.Type#RESERVATION_EXPIRED} on, or null.
+     * @param tickInterval    How often to check for due reservations; may be below one second.
+     * @param metrics         The registry to record into, or null to keep the metrics to the scheduler.
+     */
+    public ReservationScheduler(ReservationDao reservationDao, ParkingSpotDao parkingSpotDao,
+                                BookingCalendar bookingCalendar, EventBus eventBus, Duration tickInterval,
+                                MetricsRegistry metrics) {
+        if (tickInterval == null || tickInterval.isNegative() || tickInterval.isZero()) {
+            throw new IllegalArgumentException("Tick interval must be greater than 0.");
+        }
         this.reservationDao = reservationDao;
         this.parkingSpotDao = parkingSpotDao;
+        this.bookingCalendar = bookingCalendar;
+        this.eventBus = eventBus;
+        this.tickInterval = tickInterval;
+
+        MetricsRegistry registry = metrics != null ? metrics : new MetricsRegistry();
+        this.tickLatency = registry.histogram("scheduler.tick");
+        this.tickCount = registry.counter("scheduler.ticks");
+        this.scannedCount = registry.counter("scheduler.scanned");
+        this.expiredCount = registry.counter("scheduler.expired");
+        this.startedCount = registry.counter("scheduler.started");
+    }
+
+    /**
+     * Starts tracking a reservation so that it is started at its start time if it is scheduled,
+     * and completed once its end time has passed.
+     *
+     * @param reservation The reservation to track.
+     */
+    public void track(Reservation reservation) {
+        if (reservation.getStatus() == Reservation.Status.ACTIVE) {
+            expiryQueue.offer(new ExpiryEntry(toEpochMillis(reservation.getEndTime()), reservation));
+        } else if (reservation.getStatus() == Reservation.Status.SCHEDULED) {
+            expiryQueue.offer(new ExpiryEntry(toEpochMillis(reservation.getStartTime()), reservation));
+        }
     }
 
     /**
      * Starts the scheduler that checks for expired reservations periodically.
+     * Active reservations already stored in the DAO are tracked first.
      */
     public void startScheduler() {
+        for (Reservation reservation : reservationDao.findActive()) {
+            track(reservation);
+        }
+
+        // Create a scheduler with a single daemon thread, so it does not keep the application alive on exit
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "reservation-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
 
-        // Create a scheduler with a single thread
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-
-        // Schedule the task to run every 1 minute
-        scheduler.scheduleAtFixedRate(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    checkAndUpdateReservations(); // Task to check and update reservations
-                } catch (Exception e) {
-                    // Handle any exceptions that occur during task execution
-                    System.err.println("Error in scheduler: " + e.getMessage());
-                    e.printStackTrace();
-                }
+        // Schedule the task to run every tick interval
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                checkAndUpdateReservations(); // Task to check and update reservations
+            } catch (Exception e) {
+                // Handle any exceptions that occur during task execution
+                System.err.println("Error in scheduler: " + e.getMessage());
+                e.printStackTrace();
             }
-        }, 0, 1, TimeUnit.MINUTES); // Initial delay: 0, repeat every 1 minute
+        }, 0, tickInterval.toNanos(), TimeUnit.NANOSECONDS); // Initial delay: 0
     }
 
     /**
-     * Checks for expired reservations and updates their status.
+     * Checks for due reservations and updates their status.
+     * Only the queue entries whose deadline has passed are taken off the queue.
+     * Runs on every tick of the scheduler, and may also be called directly, e.g. to check without waiting for a tick.
      */
-    private void checkAndUpdateReservations() {
-        // Fetch all reservations from the DAO
-        List<Reservation> reservations = reservationDao.findAll();
-
-        // Loop through each reservation
-        for (Reservation reservation : reservations) {
-            // Check if the reservation has expired and is still active
-            if (reservation.getEndTime().isBefore(LocalDateTime.now()) && reservation.getStatus() == Reservation.Status.ACTIVE) {
-                // Mark the reservation as completed
-                reservation.complete();
-                reservationDao.update(reservation); // Update the reservation in the DAO
-
-                // Vacate the associated parking spot
-                ParkingSpot parkingSpot = reservation.getParkingSpot(); // Get the parking spot
-                parkingSpot.vacate(); // Mark the spot as vacant
-                parkingSpotDao.update(parkingSpot); // Update the parking spot in the DAO
-
-                // Log the completion of the reservation and spot vacating
-                System.out.println("Reservation " + reservation.getReservationId() + " marked as completed.");
-                System.out.println("Parking spot " + parkingSpot.getSpotNumber() + " is now vacant.");
+    public synchronized void checkAndUpdateReservations() {
+        long startNanos = System.nanoTime();
+        try {
+            completeDueReservations();
+        } finally {
+            tickLatency.recordSince(startNanos);
+            tickCount.increment();
+        }
+    }
+
+    private void completeDueReservations() {
+        long now = System.currentTimeMillis();
+
+        // Checks are serialized, so the polled head is never later than the peeked one
+        ExpiryEntry entry;
+        while ((entry = expiryQueue.peek()) != null && entry.deadline <= now) {
+            Reservation reservation = current(expiryQueue.poll().reservation);
+            scannedCount.increment();
+
+            // Start reservations booked in advance; they are re-queued for their end time
+            if (reservation.getStatus() == Reservation.Status.SCHEDULED) {
+                startScheduledReservation(reservation, now);
+                continue;
+            }
+
+            // Skip reservations that were vacated or cancelled before they expired
+            if (reservation.getStatus() != Reservation.Status.ACTIVE) {
+                continue;
             }
+
+            // Re-queue reservations whose end time was extended after they were tracked
+            long deadline = toEpochMillis(reservation.getEndTime());
+            if (deadline > now) {
+                expiryQueue.offer(new ExpiryEntry(deadline, reservation));
+                continue;
+            }
+
+            // Mark the reservation as completed, unless it was vacated meanwhile
+            if (reservation.complete() != Reservation.Status.ACTIVE) {
+                continue;
+            }
+            reservationDao.update(reservation); // Update the reservation in the DAO
+            expiredCount.increment();
+            if (bookingCalendar != null) {
+                bookingCalendar.release(reservation);
+            }
+
+            // Vacate the associated parking spot, unless it is no longer held by this reservation
+            ParkingSpot parkingSpot = reservation.getParkingSpot(); // Get the parking spot
+            parkingSpotDao.tryVacate(parkingSpot.getSpotNumber(), reservation);
+            if (eventBus != null) {
+                eventBus.publish(ParkingEvent.Type.RESERVATION_EXPIRED, reservation);
+            }
+
+            // Log the completion of the reservation and spot vacating
+            System.out.println("Reservation " + reservation.getReservationId() + " marked as completed.");
+            System.out.println("Parking spot " + parkingSpot.getSpotNumber() + " is now vacant.");
+        }
+    }
+
+    /**
+     * Returns the stored instance of a tracked reservation, so status changes made through the DAO,
+     * e.g. a cancellation, are seen and compete with the scheduler's on the same object or row.
+     */
+    private Reservation current(Reservation reservation) {
+        return reservationDao.findById(reservation.getReservationId()).orElse(reservation);
+    }
+
+    /**
+     * Claims the parking spot of a scheduled reservation whose start time has come.
+     * If the spot is still occupied, e.g. by a car that stayed longer, the start is retried on the next tick,
+     * until the booked window has ended; the reservation is then completed without having started.
+     * If the reservation is cancelled while its spot is being claimed, the claim is undone.
+     */
+    private void startScheduledReservation(Reservation reservation, long now) {
+        ParkingSpot parkingSpot = reservation.getParkingSpot();
+        if (!parkingSpotDao.tryOccupy(parkingSpot.getSpotNumber(), reservation)) {
+            if (toEpochMillis(reservation.getEndTime()) <= now) {
+                giveUpScheduledReservation(reservation);
+                return;
+            }
+            System.out.println("Parking spot " + parkingSpot.getSpotNumber() + " is still occupied, reservation "
+                    + reservation.getReservationId() + " will start once it is vacated.");
+            expiryQueue.offer(new ExpiryEntry(now + Math.max(1, tickInterval.toMillis()), reservation));
+            return;
+        }
+        if (!reservation.tryActivate()) {
+            // Cancelled after the claim; the cancellation saw it scheduled and left the spot alone
+            parkingSpotDao.tryVacate(parkingSpot.getSpotNumber(), reservation);
+            return;
+        }
+        reservationDao.update(reservation);
+        track(reservation); // Now queued for its end time
+        startedCount.increment();
+
+        System.out.println("Reservation " + reservation.getReservationId() + " has started.");
+        System.out.println("Parking spot " + parkingSpot.getSpotNumber() + " is now occupied.");
+    }
+
+    /**
+     * Completes a scheduled reservation whose spot stayed occupied for the whole booked window.
+     */
+    private void giveUpScheduledReservation(Reservation reservation) {
+        if (reservation.complete() != Reservation.Status.SCHEDULED) {
+            return; // Cancelled meanwhile
+        }
+        reservationDao.update(reservation);
+        expiredCount.increment();
+        if (bookingCalendar != null) {
+            bookingCalendar.release(reservation);
+        }
+        if (eventBus != null) {
+            eventBus.publish(ParkingEvent.Type.RESERVATION_EXPIRED, reservation);
+        }
+        System.out.println("Reservation " + reservation.getReservationId() + " could not start, parking spot "
+                + reservation.getParkingSpot().getSpotNumber() + " stayed occupied until its end time.");
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * A tracked reservation together with the end time it was queued for.
+     */
+    private static final class ExpiryEntry implements Comparable<ExpiryEntry> {
+        private final long deadline; // Start or end time in epoch milliseconds
+        private final Reservation reservation;
+
+        private ExpiryEntry(long deadline, Reservation reservation) {
+            this.deadline = deadline;
+            this.reservation = reservation;
+        }
+
+        @Override
+        public int compareTo(ExpiryEntry other) {
+            return Long.compare(deadline, other.deadline);
         }
     }
 }
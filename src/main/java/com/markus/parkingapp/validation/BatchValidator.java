@@ -0,0 +1,110 @@
+package com.markus.parkingapp.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Validates a batch of customer records, e.g. a nightly import file, and reports every
+ * invalid record instead of stopping at the first one.
+ * <p>
+ * Large batches are split over the common fork/join pool. Each record's result is written
+ * to its own slot of an array, so the workers share no state, and the report lists the
+ * records and errors in the order of the batch.
+ */
+public final class BatchValidator {
+
+    private static final int PARALLEL_THRESHOLD = 8192; // Below this, splitting costs more than it saves
+
+    private BatchValidator() {
+    }
+
+    /**
+     * Validates every record of a batch.
+     *
+     * @param records The records to validate.
+     * @return The valid records and an error for each invalid one.
+     */
+    public static Report validate(List<CustomerRecord> records) {
+        String[] errors = new String[records.size()];
+        IntStream indexes = IntStream.range(0, records.size());
+        if (records.size() >= PARALLEL_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> errors[i] = records.get(i).validate());
+
+        List<CustomerRecord> valid = new ArrayList<>(records.size());
+        List<RecordError> invalid = new ArrayList<>();
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] == null) {
+                valid.add(records.get(i));
+            } else {
+                invalid.add(new RecordError(i, records.get(i), errors[i]));
+            }
+        }
+        return new Report(valid, invalid);
+    }
+
+    /**
+     * The outcome of validating a batch.
+     */
+    public static final class Report {
+        private final List<CustomerRecord> valid;
+        private final List<RecordError> errors;
+
+        Report(List<CustomerRecord> valid, List<RecordError> errors) {
+            this.valid = Collections.unmodifiableList(valid);
+            this.errors = Collections.unmodifiableList(errors);
+        }
+
+        public List<CustomerRecord> getValid() {
+            return valid;
+        }
+
+        public List<RecordError> getErrors() {
+            return errors;
+        }
+
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+    }
+
+    /**
+     * Why one record of a batch is invalid.
+     */
+    public static final class RecordError {
+        private final int index;
+        private final CustomerRecord record;
+        private final String message;
+
+        RecordError(int index, CustomerRecord record, String message) {
+            this.index = index;
+            this.record = record;
+            this.message = message;
+        }
+
+        /**
+         * Returns the position of the record in the batch.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public CustomerRecord getRecord() {
+            return record;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return record.getLineNumber() > 0
+                    ? "Line " + record.getLineNumber() + ": " + message
+                    : "Record " + (index + 1) + ": " + message;
+        }
+    }
+}
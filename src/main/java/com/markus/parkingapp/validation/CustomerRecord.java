@@ -0,0 +1,90 @@
+package com.markus.parkingapp.validation;
+
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.Vehicle;
+
+/**
+ * The raw fields of one customer as read from an import file, before they are validated.
+ */
+public final class CustomerRecord {
+
+    private final long lineNumber;
+    private final String name;
+    private final String phoneNumber;
+    private final String plateNumber;
+    private final String vehicleType;
+
+    /**
+     * Creates a record.
+     *
+     * @param lineNumber  Where the record was read, for error reports; 0 if unknown.
+     * @param name        The customer's name.
+     * @param phoneNumber The customer's phone number.
+     * @param plateNumber The plate number of the customer's vehicle.
+     * @param vehicleType The type of the customer's vehicle.
+     */
+    public CustomerRecord(long lineNumber, String name, String phoneNumber, String plateNumber, String vehicleType) {
+        this.lineNumber = lineNumber;
+        this.name = name;
+        this.phoneNumber = phoneNumber;
+        this.plateNumber = plateNumber;
+        this.vehicleType = vehicleType;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getPlateNumber() {
+        return plateNumber;
+    }
+
+    public String getVehicleType() {
+        return vehicleType;
+    }
+
+    /**
+     * Returns the first rule the record breaks, or null if it is valid. Does not allocate.
+     */
+    public String validate() {
+        String error = CustomerValidator.checkName(name);
+        if (error == null) {
+            error = CustomerValidator.checkPhoneNumber(phoneNumber);
+        }
+        if (error == null) {
+            error = CustomerValidator.checkPlateNumber(plateNumber);
+        }
+        if (error == null) {
+            error = CustomerValidator.checkVehicleType(vehicleType);
+        }
+        return error;
+    }
+
+    /**
+     * Creates the customer described by this record, without an ID.
+     *
+     * @throws IllegalArgumentException If the record is invalid.
+     */
+    public Customer toCustomer() {
+        return new Customer(name, phoneNumber, new Vehicle(plateNumber, vehicleType));
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerRecord{" +
+                "lineNumber=" + lineNumber +
+                ", name='" + name + '\'' +
+                ", phoneNumber='" + phoneNumber + '\'' +
+                ", plateNumber='" + plateNumber + '\'' +
+                ", vehicleType='" + vehicleType + '\'' +
+                '}';
+    }
+}
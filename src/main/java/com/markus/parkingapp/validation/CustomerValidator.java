@@ -0,0 +1,71 @@
+package com.markus.parkingapp.validation;
+
+/**
+ * The rules for customer and vehicle fields, shared by the model setters and by batch validation.
+ * <p>
+ * Each check scans the characters of the value once and returns {@code null} if it is valid,
+ * or a constant message if not, so validating a valid value never allocates.
+ */
+public final class CustomerValidator {
+
+    public static final String NAME_REQUIRED = "Name should not be null or empty.";
+    public static final String PHONE_REQUIRED = "PhoneNumber should not be null or empty.";
+    public static final String PHONE_INVALID = "Invalid phone number format.";
+    public static final String PLATE_REQUIRED = "Plate number cannot be null or blank.";
+    public static final String VEHICLE_TYPE_REQUIRED = "Vehicle type cannot be null or blank.";
+
+    static final int MIN_PHONE_DIGITS = 10;
+    static final int MAX_PHONE_DIGITS = 15;
+
+    private CustomerValidator() {
+    }
+
+    public static String checkName(String name) {
+        return name == null || name.isEmpty() ? NAME_REQUIRED : null;
+    }
+
+    /**
+     * Checks a phone number: an optional leading {@code +} followed by
+     * {@value #MIN_PHONE_DIGITS} to {@value #MAX_PHONE_DIGITS} digits 0-9, and nothing else.
+     */
+    public static String checkPhoneNumber(String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.isEmpty()) {
+            return PHONE_REQUIRED;
+        }
+        int start = phoneNumber.charAt(0) == '+' ? 1 : 0;
+        int digits = phoneNumber.length() - start;
+        if (digits < MIN_PHONE_DIGITS || digits > MAX_PHONE_DIGITS) {
+            return PHONE_INVALID;
+        }
+        for (int i = start; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return PHONE_INVALID;
+            }
+        }
+        return null;
+    }
+
+    public static String checkPlateNumber(String plateNumber) {
+        return isBlank(plateNumber) ? PLATE_REQUIRED : null;
+    }
+
+    public static String checkVehicleType(String type) {
+        return isBlank(type) ? VEHICLE_TYPE_REQUIRED : null;
+    }
+
+    /**
+     * Throws an {@link IllegalArgumentException} with the message of a failed check.
+     *
+     * @param error The result of a check.
+     */
+    public static void require(String error) {
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -1,8 +1,9 @@
 package com.markus.parkingapp.view;
 
-import se.lexicon.model.Customer;
-import se.lexicon.model.ParkingSpot;
-import se.lexicon.model.Vehicle;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Vehicle;
+import com.markus.parkingapp.occupancy.OccupancySnapshot;
 
 import java.io.IOException;
 import java.util.List;
@@ -13,19 +14,30 @@ import java.util.Scanner;
  */
 public class ConsoleUI {
 
+    private static final int RENDER_CHUNK_CHARS = 32 * 1024; // Characters buffered before they are written out
+
     private final Scanner scanner = new Scanner(System.in);
 
+    // Reused for rendering tables, which are written out in chunks of RENDER_CHUNK_CHARS
+    private final StringBuilder renderBuffer = new StringBuilder(RENDER_CHUNK_CHARS + 256);
+
     /**
      * Displays the main menu options to the user.
      * Users can select options such as registering customers, viewing parking spots,
-     * reserving or vacating parking spots, and exiting the application.
+     * reserving, booking ahead or vacating one or several parking spots, writing reports, and exiting the application.
      */
     public void displayMenu() {
         System.out.println("1. Register Customer");
         System.out.println("2. Display Parking Spots");
         System.out.println("3. Reserve a Parking Spot");
         System.out.println("4. Vacate Parking Spot");
-        System.out.println("5. Exit");
+        System.out.println("5. Vacate Parking Spot by Spot ID");
+        System.out.println("6. Book a Parking Spot in Advance");
+        System.out.println("7. Reserve Multiple Parking Spots");
+        System.out.println("8. Vacate Multiple Parking Spots");
+        System.out.println("9. Dump Metrics to File");
+        System.out.println("10. Write Occupancy Report to File");
+        System.out.println("11. Exit");
     }
 
     /**
@@ -116,23 +128,96 @@ public class ConsoleUI {
      * @param parkingSpots The list of parking spots to display.
      */
     public void displayParkingSpots(List<ParkingSpot> parkingSpots) {
-        System.out.println("===== Parking Area =====");
+        StringBuilder out = renderBuffer;
+        out.append("===== Parking Area =====\n");
         if (parkingSpots.isEmpty()) {
-            System.out.println("No parking spots available.");
+            out.append("No parking spots available.\n");
         } else {
             for (ParkingSpot spot : parkingSpots) {
-                // Determine the status icon based on occupancy
-                String statusIcon = spot.isOccupied() ? "X" : "✓";
-
-                // Display parking spot details
-                System.out.printf(
-                        "Spot ID: %-3d | Area Code: %-3d | Status: %s\n",
-                        spot.getSpotNumber(),
-                        spot.getAreaCode(),
-                        statusIcon
-                );
+                appendSpotRow(spot.getSpotNumber(), spot.getAreaCode(), spot.isOccupied());
+            }
+        }
+        out.append("=========================\n");
+        flushRender();
+    }
+
+    /**
+     * Displays one page of the parking spots of an occupancy snapshot that match a filter,
+     * in the same format as {@link #displayParkingSpots}, followed by the page number.
+     *
+     * @param snapshot The occupancy snapshot to display.
+     * @param filter   Which spots to display.
+     * @param page     The page to display, starting at 0.
+     * @param pageSize The number of spots per page.
+     * @return The number of spots matching the filter, across all pages.
+     */
+    public int displayOccupancy(OccupancySnapshot snapshot, SpotFilter filter, int page, int pageSize) {
+        StringBuilder out = renderBuffer;
+        out.append("===== Parking Area =====\n");
+        long first = (long) page * pageSize;
+        long last = first + pageSize;
+        int matched = 0;
+        for (int position = 0; position < snapshot.size(); position++) {
+            if (!filter.matches(snapshot, position)) {
+                continue;
             }
+            if (matched >= first && matched < last) {
+                appendSpotRow(snapshot.spotNumberAt(position), snapshot.areaCodeAt(position), snapshot.isOccupiedAt(position));
+            }
+            matched++;
+        }
+        if (matched == 0) {
+            out.append("No parking spots available.\n");
+        }
+        out.append("=========================\n");
+        int pages = Math.max(1, (int) ((matched + (long) pageSize - 1) / pageSize));
+        if (pages > 1 || filter != SpotFilter.ALL) {
+            out.append("Page ").append(Math.min(page, pages - 1) + 1).append(" of ").append(pages)
+                    .append(" (").append(matched).append(' ').append(filter).append(", ")
+                    .append(snapshot.getAvailableCount()).append(" of ").append(snapshot.size())
+                    .append(" spots available)\n");
+        }
+        flushRender();
+        return matched;
+    }
+
+    /**
+     * Appends one row of the spot table, formatted like {@code "Spot ID: %-3d | Area Code: %-3d | Status: %s"}
+     * without parsing a format string, and writes the buffer out once it holds a large chunk.
+     */
+    private void appendSpotRow(int spotNumber, int areaCode, boolean occupied) {
+        StringBuilder out = renderBuffer;
+        out.append("Spot ID: ");
+        appendPadded(out, spotNumber, 3);
+        out.append(" | Area Code: ");
+        appendPadded(out, areaCode, 3);
+        out.append(" | Status: ").append(occupied ? 'X' : '✓').append('\n');
+        if (out.length() >= RENDER_CHUNK_CHARS) {
+            writeRender();
+        }
+    }
+
+    private static void appendPadded(StringBuilder out, int value, int width) {
+        int start = out.length();
+        out.append(value);
+        for (int i = out.length() - start; i < width; i++) {
+            out.append(' ');
+        }
+    }
+
+    /**
+     * Writes the buffered text as one chunk, so the synchronized stream is entered once per chunk instead of once per row.
+     */
+    private void writeRender() {
+        System.out.print(renderBuffer);
+        renderBuffer.setLength(0);
+    }
+
+    private void flushRender() {
+        writeRender();
+        System.out.flush();
+        if (renderBuffer.capacity() > 4 * RENDER_CHUNK_CHARS) {
+            renderBuffer.trimToSize(); // Don't hold on to the memory of an unusually long row
         }
-        System.out.println("=========================");
     }
 }
@@ -0,0 +1,36 @@
+package com.markus.parkingapp.view;
+
+import com.markus.parkingapp.occupancy.OccupancySnapshot;
+
+/**
+ * Selects which parking spots of an {@link OccupancySnapshot} are displayed, by area and by status.
+ */
+public final class SpotFilter {
+
+    public static final SpotFilter ALL = new SpotFilter(null, null);
+
+    private final Integer areaCode;  // Null for every area
+    private final Boolean occupied;  // Null for every status
+
+    /**
+     * Creates a filter.
+     *
+     * @param areaCode The area to display, or null for every area.
+     * @param occupied True to display occupied spots only, false for vacant spots only, or null for both.
+     */
+    public SpotFilter(Integer areaCode, Boolean occupied) {
+        this.areaCode = areaCode;
+        this.occupied = occupied;
+    }
+
+    public boolean matches(OccupancySnapshot snapshot, int position) {
+        return (areaCode == null || snapshot.areaCodeAt(position) == areaCode)
+                && (occupied == null || snapshot.isOccupiedAt(position) == occupied);
+    }
+
+    @Override
+    public String toString() {
+        String status = occupied == null ? "all spots" : occupied ? "occupied spots" : "available spots";
+        return areaCode == null ? status : status + " in area " + areaCode;
+    }
+}
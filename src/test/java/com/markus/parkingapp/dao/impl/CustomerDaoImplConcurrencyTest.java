@@ -0,0 +1,122 @@
+package com.markus.parkingapp.dao.impl;
+
+import com.markus.parkingapp.dao.sequencer.CustomerIdSequencer;
+import com.markus.parkingapp.dao.sequencer.IdBlockStore;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.Vehicle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Registers customers from many threads at once, some of them racing for the same plate number,
+ * and checks that every customer gets an ID of its own and can be found by plate and phone number.
+ */
+class CustomerDaoImplConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int CUSTOMERS_PER_THREAD = 500;
+    private static final int CONTESTED_PLATES = 200;
+    private static final int BLOCK_SIZE = 7; // Small, so threads keep leasing new blocks
+
+    @TempDir
+    Path dir;
+
+    private final CustomerDaoImpl dao = CustomerDaoImpl.getInstance();
+
+    @BeforeEach
+    void leaseIdsFromAFreshStore() {
+        CustomerIdSequencer.configure(new IdBlockStore(dir.resolve("customer-ids"), 1), BLOCK_SIZE);
+        // The DAO is a singleton; start past the customers other tests left in it
+        CustomerIdSequencer.advanceTo(dao.findAll().stream().mapToInt(Customer::getId).max().orElse(0));
+    }
+
+    @AfterEach
+    void restoreIds() {
+        CustomerIdSequencer.useDataDirectory(Path.of("data"));
+    }
+
+    @Test
+    void concurrentCreatesGetUniqueIdsAndCompleteIndexes() throws Exception {
+        AtomicReferenceArray<Customer> contestWinners = new AtomicReferenceArray<>(CONTESTED_PLATES);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Customer>>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return register(thread, contestWinners);
+                }));
+            }
+            start.countDown();
+
+            List<Customer> created = new ArrayList<>();
+            for (Future<List<Customer>> result : results) {
+                created.addAll(result.get());
+            }
+            assertEquals(THREADS * CUSTOMERS_PER_THREAD + CONTESTED_PLATES, created.size());
+
+            Set<Integer> ids = new HashSet<>();
+            for (Customer customer : created) {
+                assertTrue(ids.add(customer.getId()), "customer ID " + customer.getId() + " was issued twice");
+                assertSame(customer, dao.findById(customer.getId()).orElseThrow());
+                assertSame(customer, dao.findByPlate(customer.getVehicle().getPlateNumber()).orElseThrow());
+                assertSame(customer, dao.findByPhone(customer.getPhoneNumber()).orElseThrow());
+            }
+            for (int i = 0; i < CONTESTED_PLATES; i++) {
+                Customer winner = contestWinners.get(i);
+                assertNotNull(winner, "nobody registered contested plate " + i);
+                assertSame(winner, dao.findByPlate("CZ" + i).orElseThrow());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Registers the thread's own customers, interleaved with attempts to register the contested plates,
+     * and returns every customer the thread registered.
+     */
+    private List<Customer> register(int thread, AtomicReferenceArray<Customer> contestWinners) {
+        List<Customer> created = new ArrayList<>();
+        for (int i = 0; i < CUSTOMERS_PER_THREAD; i++) {
+            String suffix = "%02d%05d".formatted(thread, i);
+            created.add(dao.create(new Customer("Driver " + suffix, "+4670" + suffix,
+                    new Vehicle("ct-" + suffix, "Car"))));
+
+            if (i < CONTESTED_PLATES) {
+                // Every thread tries each contested plate; exactly one may get it
+                Customer contender = new Customer("Contender " + suffix, "+4680" + suffix,
+                        new Vehicle("cz " + i, "Car"));
+                try {
+                    dao.create(contender);
+                    assertTrue(contestWinners.compareAndSet(i, null, contender), "contested plate " + i + " registered twice");
+                    created.add(contender);
+                } catch (IllegalArgumentException e) {
+                    // Another thread registered the plate first
+                }
+            }
+        }
+        return created;
+    }
+}
@@ -0,0 +1,157 @@
+package com.markus.parkingapp.dao.impl;
+
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+import com.markus.parkingapp.model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers a {@link ParkingSpotDaoImpl} from many threads and checks that no occupancy change is lost:
+ * the free count, the bitmap and the per-area counters must all agree with the spots at the end.
+ */
+class ParkingSpotDaoImplConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int OPERATIONS = 20_000;
+    private static final int AREAS = 4;
+    private static final int SHARED_AREA = 99;
+    private static final int SHARED_SPOTS = 16;
+
+    private static final Customer CUSTOMER = new Customer(1, "Test Driver", "+46700000000", new Vehicle("ABC123", "Car"));
+
+    /**
+     * The state a thread expects one of its own spots to be in.
+     */
+    private static final class OwnedSpot {
+        int areaCode;
+        boolean occupied;
+        Reservation holder; // Null if vacant or occupied without a reservation
+    }
+
+    @Test
+    void concurrentChangesKeepCountsConsistent() throws Exception {
+        ParkingSpotDaoImpl dao = new ParkingSpotDaoImpl();
+        for (int i = 0; i < SHARED_SPOTS; i++) {
+            dao.create(new ParkingSpot(i, SHARED_AREA));
+        }
+        AtomicIntegerArray holders = new AtomicIntegerArray(SHARED_SPOTS); // Reservations holding each shared spot
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<Integer, OwnedSpot>>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return hammer(dao, thread, holders);
+                }));
+            }
+            start.countDown();
+
+            int[] expectedFree = new int[AREAS];
+            int expectedTotal = 0;
+            for (Future<Map<Integer, OwnedSpot>> result : results) {
+                for (OwnedSpot spot : result.get().values()) {
+                    expectedTotal++;
+                    if (!spot.occupied) {
+                        expectedFree[spot.areaCode]++;
+                    }
+                }
+            }
+
+            int totalFree = SHARED_SPOTS;
+            for (int area = 0; area < AREAS; area++) {
+                assertEquals(expectedFree[area], dao.countAvailableByArea(area), "free count of area " + area);
+                assertEquals(expectedFree[area], dao.findAvailableByArea(area).size(), "free spots of area " + area);
+                totalFree += expectedFree[area];
+            }
+            assertEquals(SHARED_SPOTS, dao.countAvailableByArea(SHARED_AREA));
+            assertEquals(totalFree, dao.countAvailableSpots());
+            assertEquals(totalFree, dao.findAvailableSpots().size());
+            assertEquals(expectedTotal + SHARED_SPOTS, dao.findAll().size());
+            for (ParkingSpot spot : dao.findAvailableSpots()) {
+                assertFalse(spot.isOccupied(), "spot " + spot.getSpotNumber() + " is listed as available");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs random operations on the thread's own spots and on the shared spots, and returns
+     * the state the thread left its own spots in.
+     */
+    private static Map<Integer, OwnedSpot> hammer(ParkingSpotDaoImpl dao, int thread, AtomicIntegerArray holders) {
+        Random random = new Random(thread);
+        Map<Integer, OwnedSpot> owned = new HashMap<>();
+        List<Integer> spotNumbers = new ArrayList<>();
+        int firstSpotNumber = 1_000 + thread * OPERATIONS;
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            int operation = spotNumbers.isEmpty() ? 0 : random.nextInt(8);
+            if (operation == 0) {
+                // Created occupied or vacant, beyond the bitmaps' current length
+                OwnedSpot spot = new OwnedSpot();
+                spot.areaCode = random.nextInt(AREAS);
+                spot.occupied = random.nextBoolean();
+                int spotNumber = firstSpotNumber + spotNumbers.size();
+                dao.create(new ParkingSpot(spotNumber, spot.occupied, spot.areaCode));
+                owned.put(spotNumber, spot);
+                spotNumbers.add(spotNumber);
+            } else if (operation <= 4) {
+                int spotNumber = spotNumbers.get(random.nextInt(spotNumbers.size()));
+                OwnedSpot spot = owned.get(spotNumber);
+                ParkingSpot stored = dao.findBySpotNumber(spotNumber).orElseThrow();
+                if (!spot.occupied) {
+                    Reservation reservation = new Reservation(stored, CUSTOMER, 1);
+                    assertTrue(dao.tryOccupy(spotNumber, reservation), "claim of vacant spot " + spotNumber);
+                    spot.holder = reservation;
+                    spot.occupied = true;
+                } else if (spot.holder != null) {
+                    assertTrue(dao.tryVacate(spotNumber, spot.holder), "release of spot " + spotNumber);
+                    spot.holder = null;
+                    spot.occupied = false;
+                } else {
+                    stored.vacate();
+                    spot.occupied = false;
+                }
+            } else if (operation == 5) {
+                // Replace the spot object, possibly moving it to another area
+                int spotNumber = spotNumbers.get(random.nextInt(spotNumbers.size()));
+                OwnedSpot spot = owned.get(spotNumber);
+                spot.areaCode = random.nextInt(AREAS);
+                spot.occupied = random.nextBoolean();
+                spot.holder = null;
+                dao.update(new ParkingSpot(spotNumber, spot.occupied, spot.areaCode));
+            } else {
+                // Contend for the shared spots; at most one reservation may hold each
+                int spotNumber = random.nextInt(SHARED_SPOTS);
+                ParkingSpot stored = dao.findBySpotNumber(spotNumber).orElseThrow();
+                Reservation reservation = new Reservation(stored, CUSTOMER, 1);
+                if (dao.tryOccupy(spotNumber, reservation)) {
+                    assertEquals(1, holders.incrementAndGet(spotNumber), "holders of shared spot " + spotNumber);
+                    holders.decrementAndGet(spotNumber);
+                    assertTrue(dao.tryVacate(spotNumber, reservation), "release of shared spot " + spotNumber);
+                }
+            }
+        }
+        return owned;
+    }
+}
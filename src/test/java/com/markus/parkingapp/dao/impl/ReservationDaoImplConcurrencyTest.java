@@ -0,0 +1,176 @@
+package com.markus.parkingapp.dao.impl;
+
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+import com.markus.parkingapp.model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Creates, updates and completes reservations from many threads, with threads also completing
+ * each other's reservations, and checks that every reservation ends up either active or archived,
+ * never both or neither, and that the indexes by customer and by spot agree with the reservations.
+ */
+class ReservationDaoImplConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int OPERATIONS = 5_000;
+    private static final int SPOTS_PER_THREAD = 8;
+    private static final int SHARED_SLOTS = 64; // Recent reservations any thread may complete
+
+    @Test
+    void concurrentChangesKeepActiveArchiveAndIndexesConsistent() throws Exception {
+        ReservationDaoImpl dao = new ReservationDaoImpl();
+        AtomicReferenceArray<Reservation> shared = new AtomicReferenceArray<>(SHARED_SLOTS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Reservation>>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return hammer(dao, thread, shared);
+                }));
+            }
+            start.countDown();
+
+            List<List<Reservation>> createdByThread = new ArrayList<>();
+            int total = 0;
+            for (Future<List<Reservation>> result : results) {
+                createdByThread.add(result.get());
+                total += createdByThread.get(createdByThread.size() - 1).size();
+            }
+
+            // Every reservation is stored exactly once, active unless completed
+            Map<String, Integer> stored = new HashMap<>();
+            for (Reservation reservation : dao.findAll()) {
+                stored.merge(reservation.getReservationId(), 1, Integer::sum);
+            }
+            assertEquals(total, stored.size());
+            Map<String, Reservation> active = new HashMap<>();
+            for (Reservation reservation : dao.findActive()) {
+                active.put(reservation.getReservationId(), reservation);
+            }
+            Map<Integer, Reservation> holderBySpot = new HashMap<>();
+            for (List<Reservation> created : createdByThread) {
+                for (Reservation reservation : created) {
+                    String id = reservation.getReservationId();
+                    assertEquals(1, stored.get(id), "copies of reservation " + id);
+                    boolean completed = reservation.getStatus() == Reservation.Status.COMPLETED;
+                    assertEquals(!completed, active.containsKey(id), "reservation " + id + " listed as active");
+                    assertEquals(reservation.getStatus(), dao.findById(id).orElseThrow().getStatus());
+                    if (reservation.getStatus() == Reservation.Status.ACTIVE) {
+                        assertSame(reservation, active.get(id));
+                        assertEquals(null, holderBySpot.put(reservation.getParkingSpot().getSpotNumber(), reservation),
+                                "active reservations of spot " + reservation.getParkingSpot().getSpotNumber());
+                    }
+                }
+            }
+
+            // The spot index holds exactly the active reservations
+            for (int spotNumber = 0; spotNumber < THREADS * SPOTS_PER_THREAD; spotNumber++) {
+                Optional<Reservation> indexed = dao.findActiveBySpotNumber(spotNumber);
+                Reservation holder = holderBySpot.get(spotNumber);
+                if (holder == null) {
+                    assertFalse(indexed.isPresent(), "spot " + spotNumber + " indexed as held by "
+                            + indexed.map(Reservation::getReservationId).orElse(null));
+                } else {
+                    assertSame(holder, indexed.orElseThrow(), "holder of spot " + spotNumber);
+                }
+            }
+
+            // The customer index lists each thread's reservations in the order they were created
+            for (int thread = 0; thread < THREADS; thread++) {
+                assertEquals(createdByThread.get(thread).stream().map(Reservation::getReservationId).toList(),
+                        dao.findByCustomerId(thread).stream().map(Reservation::getReservationId).toList(),
+                        "reservations of customer " + thread);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs random operations on reservations of the thread's own customer and spots, and completes
+     * reservations shared by other threads. Returns the thread's reservations, oldest first.
+     */
+    private static List<Reservation> hammer(ReservationDaoImpl dao, int thread, AtomicReferenceArray<Reservation> shared) {
+        Random random = new Random(thread);
+        Customer customer = new Customer(thread, "Driver " + thread, "+467000000" + (10 + thread),
+                new Vehicle("RT" + thread, "Car"));
+        ParkingSpot[] spots = new ParkingSpot[SPOTS_PER_THREAD];
+        Reservation[] holders = new Reservation[SPOTS_PER_THREAD]; // Last active reservation created per spot
+        for (int i = 0; i < SPOTS_PER_THREAD; i++) {
+            spots[i] = new ParkingSpot(thread * SPOTS_PER_THREAD + i, 1);
+        }
+        List<Reservation> created = new ArrayList<>();
+
+        for (int n = 0; n < OPERATIONS; n++) {
+            int operation = created.isEmpty() ? 0 : random.nextInt(10);
+            int spot = random.nextInt(SPOTS_PER_THREAD);
+            if (operation <= 2) {
+                Reservation reservation;
+                if (random.nextBoolean()) {
+                    reservation = new Reservation(spots[spot], customer, LocalDateTime.now().plusDays(1), 1);
+                } else if (holders[spot] == null || holders[spot].getStatus() == Reservation.Status.COMPLETED) {
+                    reservation = new Reservation(spots[spot], customer, 1);
+                    holders[spot] = reservation;
+                } else {
+                    continue; // At most one active reservation per spot
+                }
+                created.add(dao.create(reservation));
+                shared.set(random.nextInt(SHARED_SLOTS), reservation);
+            } else if (operation <= 5) {
+                // Extend one of the thread's reservations, racing with other threads completing it
+                Reservation reservation = created.get(random.nextInt(created.size()));
+                if (reservation.getStatus() != Reservation.Status.COMPLETED) {
+                    reservation.setEndTimeByHours(1 + random.nextInt(4));
+                    update(dao, reservation);
+                }
+            } else if (operation <= 7) {
+                Reservation reservation = created.get(random.nextInt(created.size()));
+                reservation.complete();
+                dao.update(reservation);
+            } else {
+                Reservation reservation = shared.get(random.nextInt(SHARED_SLOTS));
+                if (reservation != null) {
+                    reservation.complete();
+                    dao.update(reservation);
+                }
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Saves a change to a reservation that another thread may complete meanwhile.
+     */
+    private static void update(ReservationDaoImpl dao, Reservation reservation) {
+        try {
+            dao.update(reservation);
+        } catch (IllegalArgumentException e) {
+            // Refused only because it was completed first
+            assertEquals(Reservation.Status.COMPLETED, reservation.getStatus(), e.getMessage());
+        }
+    }
+}
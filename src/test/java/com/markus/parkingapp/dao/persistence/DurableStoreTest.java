@@ -0,0 +1,192 @@
+package com.markus.parkingapp.dao.persistence;
+
+import com.markus.parkingapp.dao.CustomerDao;
+import com.markus.parkingapp.dao.ParkingSpotDao;
+import com.markus.parkingapp.dao.ReservationDao;
+import com.markus.parkingapp.dao.impl.ParkingSpotDaoImpl;
+import com.markus.parkingapp.dao.impl.ReservationDaoImpl;
+import com.markus.parkingapp.dao.sequencer.CustomerIdSequencer;
+import com.markus.parkingapp.dao.sequencer.IdBlockStore;
+import com.markus.parkingapp.dao.sequencer.IdGenerator;
+import com.markus.parkingapp.dao.sequencer.SequenceIdGenerator;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Reservation;
+import com.markus.parkingapp.model.Vehicle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurableStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private IdGenerator savedGenerator;
+
+    @BeforeEach
+    void useFreshIds() {
+        savedGenerator = Reservation.getIdGenerator();
+        Reservation.setIdGenerator(new SequenceIdGenerator(1));
+        CustomerIdSequencer.configure(new IdBlockStore(dir.resolve("customer-ids"), 1), 10);
+    }
+
+    @AfterEach
+    void restoreIds() {
+        Reservation.setIdGenerator(savedGenerator);
+        CustomerIdSequencer.useDataDirectory(Path.of("data"));
+    }
+
+    @Test
+    void recoversTheSnapshotPlusTheLogWrittenAfterIt() {
+        DurableStore store = open();
+        assertEquals(1, CustomerIdSequencer.nextId());
+        Customer customer = store.getCustomerDao().restore(customer(7));
+        for (int spotNumber = 1; spotNumber <= 3; spotNumber++) {
+            store.getParkingSpotDao().create(new ParkingSpot(spotNumber, 1));
+        }
+        Reservation first = reserve(store, 1, customer);
+        Reservation second = reserve(store, 2, customer);
+        store.snapshot();
+
+        // Logged after the snapshot only
+        second.complete();
+        store.getParkingSpotDao().tryVacate(2, second);
+        store.getReservationDao().update(second);
+        store.getParkingSpotDao().create(new ParkingSpot(4, 2));
+        store.getParkingSpotDao().delete(3);
+        Reservation third = reserve(store, 4, customer);
+        // Crash: the store is never closed, so no final snapshot is written
+
+        Reservation.setIdGenerator(new SequenceIdGenerator(1));
+        DurableStore recovered = open();
+        try {
+            ParkingSpotDao spots = recovered.getParkingSpotDao();
+            ReservationDao reservations = recovered.getReservationDao();
+            assertTrue(recovered.getCustomerDao().findById(7).isPresent());
+            assertEquals(List.of(1, 2, 4), spots.findAll().stream().map(ParkingSpot::getSpotNumber).sorted().toList());
+            assertEquals(Reservation.Status.COMPLETED, reservations.findById(second.getReservationId()).orElseThrow().getStatus());
+            assertEquals(List.of(first.getReservationId(), third.getReservationId()),
+                    reservations.findActive().stream().map(Reservation::getReservationId).sorted().toList());
+
+            // Recovery.finish occupies the spots of the active reservations again
+            assertSame(reservations.findById(first.getReservationId()).orElseThrow(),
+                    spots.findBySpotNumber(1).orElseThrow().getCurrentReservation());
+            assertFalse(spots.findBySpotNumber(2).orElseThrow().isOccupied());
+            assertTrue(spots.findBySpotNumber(4).orElseThrow().isOccupied());
+
+            // ... and moves the ID generator and the customer sequencer past every recovered ID
+            assertTrue(Reservation.getIdGenerator().nextId() > Long.parseLong(third.getReservationId()));
+            assertTrue(CustomerIdSequencer.nextId() > 7);
+        } finally {
+            recovered.close();
+        }
+    }
+
+    @Test
+    void dropsAChangeTornByACrashAndKeepsTheOnesBeforeIt() throws IOException {
+        DurableStore store = open();
+        Customer customer = store.getCustomerDao().restore(customer(7));
+        store.getParkingSpotDao().create(new ParkingSpot(1, 1));
+        store.getParkingSpotDao().create(new ParkingSpot(2, 1));
+        Reservation kept = reserve(store, 1, customer);
+        reserve(store, 2, customer);
+
+        Path segment = newestSegment();
+        byte[] content = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(content, content.length - 5));
+
+        DurableStore recovered = open();
+        try {
+            List<Reservation> active = recovered.getReservationDao().findActive();
+            assertEquals(List.of(kept.getReservationId()), active.stream().map(Reservation::getReservationId).toList());
+            assertTrue(recovered.getParkingSpotDao().findBySpotNumber(1).orElseThrow().isOccupied());
+            assertFalse(recovered.getParkingSpotDao().findBySpotNumber(2).orElseThrow().isOccupied());
+        } finally {
+            recovered.close();
+        }
+    }
+
+    private DurableStore open() {
+        return DurableStore.open(dir, new MapCustomerDao(), new ParkingSpotDaoImpl(), new ReservationDaoImpl(),
+                DurableStore.Durability.SYNC, Duration.ofHours(1));
+    }
+
+    private static Reservation reserve(DurableStore store, int spotNumber, Customer customer) {
+        ParkingSpot spot = store.getParkingSpotDao().findBySpotNumber(spotNumber).orElseThrow();
+        Reservation reservation = new Reservation(spot, customer, 2);
+        assertTrue(store.getParkingSpotDao().tryOccupy(spotNumber, reservation));
+        return store.getReservationDao().create(reservation);
+    }
+
+    private static Customer customer(int id) {
+        return new Customer(id, "Test Driver", "+4670000000" + id, new Vehicle("ABC12" + id, "Car"));
+    }
+
+    private Path newestSegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("wal-")
+                            && path.toFile().length() > 0)
+                    .max(Path::compareTo).orElseThrow();
+        }
+    }
+
+    /**
+     * A customer DAO of its own per store; {@code CustomerDaoImpl} is a process-wide singleton.
+     */
+    private static final class MapCustomerDao implements CustomerDao {
+
+        private final Map<Integer, Customer> customers = new ConcurrentHashMap<>();
+
+        @Override
+        public Customer create(Customer customer) {
+            return restore(customer);
+        }
+
+        @Override
+        public Customer restore(Customer customer) {
+            customers.put(customer.getId(), customer);
+            return customer;
+        }
+
+        @Override
+        public Optional<Customer> findById(int id) {
+            return Optional.ofNullable(customers.get(id));
+        }
+
+        @Override
+        public Optional<Customer> findByPlate(String plateNumber) {
+            return customers.values().stream()
+                    .filter(customer -> customer.getVehicle().getPlateNumber().equals(plateNumber)).findFirst();
+        }
+
+        @Override
+        public Optional<Customer> findByPhone(String phoneNumber) {
+            return customers.values().stream()
+                    .filter(customer -> customer.getPhoneNumber().equals(phoneNumber)).findFirst();
+        }
+
+        @Override
+        public List<Customer> findAll() {
+            return new ArrayList<>(customers.values());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.markus.parkingapp.dao.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysRecordsInLsnOrder() throws IOException {
+        try (WriteAheadLog log = open()) {
+            log.append((byte) 1, new byte[]{10});
+            log.append((byte) 2, new byte[]{20, 21});
+            log.awaitDurable(log.append((byte) 1, new byte[]{30}));
+        }
+        assertEquals(List.of("1:1:[10]", "2:2:[20, 21]", "3:1:[30]"), replay());
+    }
+
+    @Test
+    void dropsATornTailAndContinuesAfterTheLastCompleteRecord() throws IOException {
+        try (WriteAheadLog log = open()) {
+            log.append((byte) 1, new byte[]{10});
+            log.append((byte) 1, new byte[]{20});
+            log.append((byte) 1, new byte[]{30, 31, 32});
+        }
+        truncateNewestSegment(3); // Cut the last record short, as a crash during its write would
+
+        assertEquals(List.of("1:1:[10]", "2:1:[20]"), replay());
+        try (WriteAheadLog log = open()) {
+            assertEquals(3, log.append((byte) 1, new byte[]{40}));
+        }
+        assertEquals(List.of("1:1:[10]", "2:1:[20]", "3:1:[40]"), replay());
+    }
+
+    @Test
+    void stopsAtARecordWithABadChecksum() throws IOException {
+        try (WriteAheadLog log = open()) {
+            log.append((byte) 1, new byte[]{10});
+            log.append((byte) 1, new byte[]{20});
+            log.append((byte) 1, new byte[]{30});
+        }
+        Path segment = newestSegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        int secondPayload = 2 * WriteAheadLog.frameSize(new byte[1]) - 1;
+        bytes[secondPayload] ^= 0x7F;
+        Files.write(segment, bytes);
+
+        assertEquals(List.of("1:1:[10]"), replay());
+    }
+
+    @Test
+    void replaysABatchCompletelyOrNotAtAll() throws IOException {
+        try (WriteAheadLog log = open()) {
+            log.append((byte) 1, new byte[]{10});
+            log.appendAll((byte) 4, List.of(new byte[]{1}, new byte[]{2, 3}, new byte[]{4}));
+        }
+        assertEquals(List.of("1:1:[10]", "2:4:[1]", "2:4:[2, 3]", "2:4:[4]"), replay());
+
+        truncateNewestSegment(1);
+        assertEquals(List.of("1:1:[10]"), replay());
+    }
+
+    private WriteAheadLog open() {
+        return WriteAheadLog.open(dir, 1, 1, TimeUnit.MILLISECONDS);
+    }
+
+    private List<String> replay() throws IOException {
+        List<String> records = new ArrayList<>();
+        WriteAheadLog.replay(dir, 0, (lsn, type, payload) -> {
+            List<Byte> bytes = new ArrayList<>();
+            try {
+                while (true) {
+                    bytes.add(payload.readByte());
+                }
+            } catch (IOException end) {
+                // End of the payload
+            }
+            records.add(lsn + ":" + type + ":" + Arrays.toString(bytes.toArray()));
+        });
+        return records;
+    }
+
+    private void truncateNewestSegment(int bytes) throws IOException {
+        Path segment = newestSegment();
+        byte[] content = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(content, content.length - bytes));
+    }
+
+    private Path newestSegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> Files.isRegularFile(path) && path.toFile().length() > 0)
+                    .max(Path::compareTo).orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.markus.parkingapp.dao.sequencer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdBlockStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void leasesConsecutiveBlocksAcrossInstances() {
+        Path file = dir.resolve("ids");
+        assertEquals(1, new IdBlockStore(file, 1).lease(100));
+        assertEquals(101, new IdBlockStore(file, 1).lease(100));
+        assertEquals(201, new IdBlockStore(file, 1).lease(10));
+    }
+
+    @Test
+    void advancesPastAnIdInUseButNeverBackwards() {
+        Path file = dir.resolve("ids");
+        IdBlockStore store = new IdBlockStore(file, 1);
+        store.advanceTo(41);
+        assertEquals(42, store.lease(10));
+        store.advanceTo(7);
+        assertEquals(52, store.lease(10));
+    }
+
+    @Test
+    void rejectsAnEmptyOrCorruptMarkInsteadOfStartingOver() throws Exception {
+        Path file = dir.resolve("ids");
+        IdBlockStore store = new IdBlockStore(file, 1);
+        store.lease(100);
+
+        Files.write(file, new byte[0]);
+        assertThrows(IllegalStateException.class, () -> store.lease(100));
+
+        Files.writeString(file, "12x");
+        assertThrows(IllegalStateException.class, () -> store.lease(100));
+    }
+}
@@ -0,0 +1,91 @@
+package com.markus.parkingapp.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventBusTest {
+
+    private static final int CAPACITY = 8;
+    private static final int MAX_BATCH_SIZE = 4;
+    private static final int EVENTS = 1_000;
+
+    /**
+     * Requests two batches and then nothing more until told to, as a consumer that got stuck would.
+     */
+    private static final class StalledSubscriber implements Flow.Subscriber<List<ParkingEvent>> {
+        final List<List<ParkingEvent>> batches = new CopyOnWriteArrayList<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(2);
+        }
+
+        @Override
+        public void onNext(List<ParkingEvent> batch) {
+            batches.add(batch);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        void resume() {
+            subscription.request(Long.MAX_VALUE);
+        }
+    }
+
+    @Test
+    void aSubscriberThatStopsRequestingSkipsOverwrittenEventsWithoutBlockingPublishers() throws Exception {
+        EventBus bus = new EventBus(CAPACITY, MAX_BATCH_SIZE);
+        StalledSubscriber subscriber = new StalledSubscriber();
+        bus.subscribe(subscriber);
+
+        // The ring is lapped many times over while the subscriber has no demand left
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < EVENTS; i++) {
+                bus.publish(ParkingEvent.Type.SPOT_OCCUPIED, i, 1, 0);
+            }
+        }, "publishing blocked on a stalled subscriber");
+
+        subscriber.resume();
+        bus.close();
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS), "subscriber was not completed");
+
+        long received = 0;
+        long skipped = 0;
+        long expected = 0; // The next sequence number if nothing was skipped
+        for (List<ParkingEvent> batch : subscriber.batches) {
+            assertTrue(batch.size() <= MAX_BATCH_SIZE, "batch of " + batch.size() + " events");
+            for (ParkingEvent event : batch) {
+                assertTrue(event.getSequence() >= expected, "event " + event.getSequence() + " delivered out of order");
+                skipped += event.getSequence() - expected;
+                expected = event.getSequence() + 1;
+                received++;
+            }
+        }
+        skipped += EVENTS - expected;
+
+        assertTrue(skipped > 0, "a stalled subscriber cannot have kept up");
+        assertEquals(EVENTS, received + skipped);
+        assertEquals(skipped, bus.getDroppedCount());
+    }
+}
@@ -0,0 +1,92 @@
+package com.markus.parkingapp.importer;
+
+import com.markus.parkingapp.dao.impl.CustomerDaoImpl;
+import com.markus.parkingapp.dao.impl.ParkingSpotDaoImpl;
+import com.markus.parkingapp.dao.impl.ReservationDaoImpl;
+import com.markus.parkingapp.model.Customer;
+import com.markus.parkingapp.model.ParkingSpot;
+import com.markus.parkingapp.model.Vehicle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the importer with chunks of a few lines, so records are cut across chunk boundaries.
+ */
+class BulkImporterTest {
+
+    private static final int CHUNK_SIZE = 24;
+
+    @TempDir
+    Path dir;
+
+    private final ParkingSpotDaoImpl parkingSpotDao = new ParkingSpotDaoImpl();
+    private final ReservationDaoImpl reservationDao = new ReservationDaoImpl();
+
+    @Test
+    void numbersLinesAcrossChunksAndSkipsHeaderCommentsAndBlankLines() throws IOException {
+        // CRLF line breaks, and a last line without one
+        Path file = write("spots.csv", "spotNumber,areaCode\r\n1,10\r\n# a comment\r\n\r\n2,10\r\nx,10\r\n300, 20\r\n4,20");
+
+        ImportResult result = importer(CHUNK_SIZE).importSpots(file);
+
+        assertEquals(List.of("Line 6: Invalid spot number: x"), result.getErrors());
+        assertEquals(4, result.getImported());
+        assertEquals(List.of(1, 2, 4, 300), parkingSpotDao.findAll().stream().map(ParkingSpot::getSpotNumber).sorted().toList());
+        assertEquals(20, parkingSpotDao.findBySpotNumber(300).orElseThrow().getAreaCode());
+    }
+
+    @Test
+    void readsALineSplitAcrossEveryChunkBoundary() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int spotNumber = 1; spotNumber <= 100; spotNumber++) {
+            csv.append(spotNumber).append(",1\n");
+        }
+        ImportResult result = importer(BinarySpotFile.RECORD_SIZE).importSpots(write("spots.csv", csv.toString()));
+
+        assertEquals(List.of(), result.getErrors());
+        assertEquals(100, result.getImported());
+    }
+
+    @Test
+    void refusesALineLongerThanAChunk() throws IOException {
+        Path file = write("spots.csv", "1,10\n2,10\n3," + "0".repeat(CHUNK_SIZE) + "\n4,10\n");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> importer(CHUNK_SIZE).importSpots(file));
+        assertTrue(e.getMessage().startsWith("Line 3 of "), e.getMessage());
+    }
+
+    @Test
+    void reportsReservationsOverlappingAnEarlierLineOfTheSameFile() throws IOException {
+        CustomerDaoImpl.getInstance().restore(new Customer(990001, "Import Test", "+46700990001", new Vehicle("IMP001", "Car")));
+        parkingSpotDao.create(new ParkingSpot(1, 10));
+        parkingSpotDao.create(new ParkingSpot(2, 10));
+        Path file = write("reservations.csv", "spotNumber,plateNumber,startTime,endTime\n"
+                + "1,IMP001,2030-01-01T08:00,2030-01-01T10:00\n"
+                + "1,IMP001,2030-01-01T09:00,2030-01-01T11:00\n"
+                + "2,IMP001,2030-01-01T09:00,2030-01-01T11:00\n"
+                + "1,IMP001,2030-01-01T10:00,2030-01-01T12:00\n");
+
+        ImportResult result = importer(64).importReservations(file);
+
+        assertEquals(List.of("Line 3: Parking spot 1 is already booked for that time."), result.getErrors());
+        assertEquals(3, result.getImported());
+        assertEquals(3, reservationDao.findAll().size());
+    }
+
+    private BulkImporter importer(int chunkSize) {
+        return new BulkImporter(CustomerDaoImpl.getInstance(), parkingSpotDao, reservationDao, chunkSize, 2);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content);
+    }
+}